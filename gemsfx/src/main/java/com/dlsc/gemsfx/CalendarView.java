@@ -29,6 +29,7 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableSet;
 import javafx.css.CssMetaData;
@@ -49,8 +50,12 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static java.lang.Double.MAX_VALUE;
 import static java.util.Objects.requireNonNull;
@@ -908,8 +913,24 @@ public class CalendarView extends Control {
             DATE_RANGE
         }
 
+        /**
+         * Mirrors the list of selected dates so that {@link #isSelected(LocalDate)} does not have to scan
+         * the list. Maps each date to the number of times it appears in the list.
+         */
+        private final Map<LocalDate, Integer> selectedDateCounts = new HashMap<>();
+
         public SelectionModel() {
             selectionMode.addListener(it -> clearSelection());
+            selectedDates.addListener((ListChangeListener<LocalDate>) change -> {
+                while (change.next()) {
+                    for (LocalDate date : change.getRemoved()) {
+                        selectedDateCounts.computeIfPresent(date, (key, count) -> count > 1 ? count - 1 : null);
+                    }
+                    for (LocalDate date : change.getAddedSubList()) {
+                        selectedDateCounts.merge(date, 1, Integer::sum);
+                    }
+                }
+            });
         }
 
         public final void clearSelection() {
@@ -948,7 +969,9 @@ public class CalendarView extends Control {
                     setSelectedDate(date);
                     break;
                 case MULTIPLE_DATES:
-                    getSelectedDates().add(date);
+                    if (!isSelected(date)) {
+                        getSelectedDates().add(date);
+                    }
                     break;
                 case DATE_RANGE:
                     if (getSelectedDate() == null) {
@@ -978,6 +1001,81 @@ public class CalendarView extends Control {
             }
         }
 
+        /**
+         * Selects all dates from the given start date to the given end date (both inclusive). In
+         * {@link SelectionMode#MULTIPLE_DATES} mode the dates that are not selected yet get added to
+         * the selected dates with a single change of the list, in {@link SelectionMode#DATE_RANGE}
+         * mode the range becomes the selected range and in {@link SelectionMode#SINGLE_DATE} mode
+         * the end date gets selected.
+         *
+         * @param startDate the first date of the range
+         * @param endDate   the last date of the range
+         */
+        public void selectRange(LocalDate startDate, LocalDate endDate) {
+            requireNonNull(startDate, "start date can not be null");
+            requireNonNull(endDate, "end date can not be null");
+            if (endDate.isBefore(startDate)) {
+                throw new IllegalArgumentException("the end date can not be before the start date, start = " + startDate + ", end = " + endDate);
+            }
+
+            switch (getSelectionMode()) {
+                case SINGLE_DATE:
+                    setSelectedDate(endDate);
+                    break;
+                case MULTIPLE_DATES:
+                    List<LocalDate> dates = new ArrayList<>();
+                    for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                        if (!isSelected(date)) {
+                            dates.add(date);
+                        }
+                    }
+                    getSelectedDates().addAll(dates);
+                    break;
+                case DATE_RANGE:
+                    setSelectedDate(startDate);
+                    setSelectedEndDate(endDate);
+                    break;
+            }
+        }
+
+        /**
+         * Deselects all dates from the given start date to the given end date (both inclusive). In
+         * {@link SelectionMode#MULTIPLE_DATES} mode the dates get removed from the selected dates with
+         * a single change of the list, in the other modes the selected date and the selected end date
+         * get cleared if they are within the range.
+         *
+         * @param startDate the first date of the range
+         * @param endDate   the last date of the range
+         */
+        public void clearSelectionRange(LocalDate startDate, LocalDate endDate) {
+            requireNonNull(startDate, "start date can not be null");
+            requireNonNull(endDate, "end date can not be null");
+
+            if (getSelectionMode() == SelectionMode.MULTIPLE_DATES) {
+                Set<LocalDate> dates = new HashSet<>();
+                for (LocalDate date : selectedDateCounts.keySet()) {
+                    if (isWithin(date, startDate, endDate)) {
+                        dates.add(date);
+                    }
+                }
+                if (!dates.isEmpty()) {
+                    getSelectedDates().removeAll(dates);
+                }
+                return;
+            }
+
+            if (isWithin(getSelectedDate(), startDate, endDate)) {
+                setSelectedDate(null);
+            }
+            if (isWithin(getSelectedEndDate(), startDate, endDate)) {
+                setSelectedEndDate(null);
+            }
+        }
+
+        private static boolean isWithin(LocalDate date, LocalDate startDate, LocalDate endDate) {
+            return date != null && !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+
         public boolean isSelected(LocalDate date) {
             if (date == null) {
                 return false;
@@ -988,7 +1086,7 @@ public class CalendarView extends Control {
                 case SINGLE_DATE:
                     return Objects.equals(selectedDate, date);
                 case MULTIPLE_DATES:
-                    return getSelectedDates().contains(date);
+                    return selectedDateCounts.containsKey(date);
                 case DATE_RANGE:
                     LocalDate selectedEndDate = getSelectedEndDate();
                     if (selectedDate == null && selectedEndDate == null) {
@@ -1,6 +1,7 @@
 package com.dlsc.gemsfx;
 
 import com.dlsc.gemsfx.skins.PhotoViewSkin;
+import com.dlsc.gemsfx.util.ImageUtil;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
@@ -11,6 +12,7 @@ import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.MapChangeListener;
 import javafx.css.PseudoClass;
+import javafx.geometry.Dimension2D;
 import javafx.scene.Node;
 import javafx.scene.control.ContentDisplay;
 import javafx.scene.control.Control;
@@ -28,11 +30,11 @@ import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.materialdesign.MaterialDesign;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -53,6 +55,8 @@ import java.util.logging.Logger;
  *     <li>keyboard support: backspace and delete keys delete the picture, space or enter trigger the file supplier (default: show the file chooser)</li>
  *     <li>pseudo class support: "empty" if the {@link #photoProperty()} is null</li>
  *     <li>an effect can be applied directly to the image (see {@link #photoEffectProperty()})</li>
+ *     <li>photos selected via the file chooser or drag and drop are decoded at the size of the view, more pixels
+ *     get loaded in the background when the user zooms in (see {@link #progressiveLoadingProperty()})</li>
  * </ul>
  * <b>Note: the values for the zoom and translate properties will all be reset when a new photo is set.</b>
  */
@@ -62,6 +66,8 @@ public class PhotoView extends Control {
 
     private static final PseudoClass EMPTY_PSEUDO_CLASS = PseudoClass.getPseudoClass("empty");
 
+    private static final double DEFAULT_PREVIEW_SIZE = 512;
+
     private static final String[] SUPPORTED_EXTENSIONS = {".bmp", ".png", ".gif", ".jpg", ".jpeg"};
 
     public enum ClipShape {
@@ -111,8 +117,8 @@ public class PhotoView extends Control {
 
             File file = fileChooser.showOpenDialog(getScene().getWindow());
             if (file != null) {
-                try (FileInputStream stream = new FileInputStream(file)) {
-                    return new Image(stream);
+                try {
+                    return loadPhoto(file.toURI().toURL().toExternalForm());
                 } catch (IOException e) {
                     LOG.log(Level.SEVERE, "error when trying to load selected image file", e);
                 }
@@ -149,7 +155,7 @@ public class PhotoView extends Control {
                             .findFirst()
                             .ifPresentOrElse(supportedFile -> {
                                 try {
-                                    setPhoto(new Image(supportedFile.toURI().toURL().toExternalForm(), true));
+                                    setPhoto(loadPhoto(supportedFile.toURI().toURL().toExternalForm()));
                                     evt.setDropCompleted(true);
                                 } catch (IOException e) {
                                     LOG.log(Level.SEVERE, "error when trying to use dropped image file", e);
@@ -195,6 +201,40 @@ public class PhotoView extends Control {
         });
     }
 
+    /*
+     * Decodes a preview of the photo that is large enough for the current size of the view
+     * instead of decoding the full photo. The preview box is twice the size of the view so
+     * that the short side of photos with an aspect ratio of up to 2:1 still covers the view.
+     * The skin loads more pixels later on if the user zooms past the resolution of the preview.
+     * Photos that are not larger than the preview box get decoded at their native size, as
+     * the image would otherwise get enlarged to the requested size. The native size gets read
+     * from the file header on the FX thread, which is why this only happens for local files.
+     */
+    private Image loadPhoto(String url) {
+        if (!isProgressiveLoading() || !url.startsWith("file:")) {
+            return new Image(url, true);
+        }
+
+        double size = Math.max(getWidth(), getHeight());
+        if (size <= 0) {
+            size = DEFAULT_PREVIEW_SIZE;
+        }
+
+        double renderScale = 1;
+        if (getScene() != null && getScene().getWindow() != null) {
+            renderScale = getScene().getWindow().getRenderScaleX();
+        }
+
+        double previewSize = Math.ceil(size * renderScale * 2);
+
+        Dimension2D nativeSize = ImageUtil.readImageSize(url);
+        if (nativeSize == null || Math.max(nativeSize.getWidth(), nativeSize.getHeight()) <= previewSize) {
+            return new Image(url, true);
+        }
+
+        return new Image(url, previewSize, previewSize, true, true, true);
+    }
+
     @Override
     protected Skin<?> createDefaultSkin() {
         return new PhotoViewSkin(this);
@@ -247,6 +287,47 @@ public class PhotoView extends Control {
         return croppedImage.getReadOnlyProperty();
     }
 
+    /**
+     * Encodes the current cropped image in the given format. The encoding happens on a
+     * background thread, the returned future completes with the encoded bytes, e.g. for
+     * uploading them to a server.
+     *
+     * @param format the output format (PNG or JPEG)
+     * @return a future that completes with the encoded bytes
+     * @throws IllegalStateException if there is currently no cropped image
+     * @see #maxCroppedImageSizeProperty()
+     */
+    public final CompletableFuture<byte[]> encodeCroppedImage(ImageUtil.Format format) {
+        Image image = getCroppedImage();
+        if (image == null) {
+            throw new IllegalStateException("there is no cropped image");
+        }
+        return ImageUtil.encode(image, format);
+    }
+
+    private final DoubleProperty maxCroppedImageSize = new SimpleDoubleProperty(this, "maxCroppedImageSize", -1);
+
+    public final double getMaxCroppedImageSize() {
+        return maxCroppedImageSize.get();
+    }
+
+    /**
+     * The maximum width and height (in pixels) of the cropped image. Crops that are larger
+     * than this size will be scaled down (preserving their aspect ratio) while cropping. This
+     * keeps the memory footprint of the cropped image small, e.g. when a large photo gets
+     * turned into a small avatar. The default value is -1 (the crop keeps the resolution of
+     * the original photo).
+     *
+     * @return the maximum size of the cropped image
+     */
+    public final DoubleProperty maxCroppedImageSizeProperty() {
+        return maxCroppedImageSize;
+    }
+
+    public final void setMaxCroppedImageSize(double maxCroppedImageSize) {
+        this.maxCroppedImageSize.set(maxCroppedImageSize);
+    }
+
     // photo effect
 
     private final ObjectProperty<Effect> photoEffect = new SimpleObjectProperty<>(this, "photoEffect");
@@ -381,6 +462,32 @@ public class PhotoView extends Control {
         this.photo.set(photo);
     }
 
+    // progressive loading
+
+    private final BooleanProperty progressiveLoading = new SimpleBooleanProperty(this, "progressiveLoading", true);
+
+    public final boolean isProgressiveLoading() {
+        return progressiveLoading.get();
+    }
+
+    /**
+     * Determines whether photos selected via the file chooser or drag and drop get decoded
+     * as a preview sized to the view (with more pixels being loaded once the user zooms in)
+     * or at their full resolution. When enabled, {@link #getPhoto()} returns the preview,
+     * its URL can be used for loading the full photo. The cropped image still gets created
+     * from the full resolution photo (see {@link #maxCroppedImageSizeProperty()}). The default
+     * value is true.
+     *
+     * @return true if photos will be loaded progressively
+     */
+    public final BooleanProperty progressiveLoadingProperty() {
+        return progressiveLoading;
+    }
+
+    public final void setProgressiveLoading(boolean progressiveLoading) {
+        this.progressiveLoading.set(progressiveLoading);
+    }
+
     // photo zoom
 
     private final DoubleProperty photoZoom = new SimpleDoubleProperty(this, "photoZoom", 1);
@@ -449,6 +556,32 @@ public class PhotoView extends Control {
         this.photoTranslateY.set(photoTranslateY);
     }
 
+    // tiled rendering
+
+    private final BooleanProperty tiledRendering = new SimpleBooleanProperty(this, "tiledRendering", false);
+
+    public final boolean isTiledRendering() {
+        return tiledRendering.get();
+    }
+
+    /**
+     * Determines whether the photo will be displayed as a set of tiles taken from an image
+     * pyramid (the photo at several resolutions) instead of a single image. The pyramid gets
+     * created in the background, afterwards only the tiles that are visible at the current
+     * zoom level and translation are part of the scene graph. This keeps the texture sizes
+     * small and panning smooth when zooming deeply into very large photos (e.g. scans) but
+     * it requires extra memory for the pyramid. The default value is false.
+     *
+     * @return true if the photo will be displayed via tiles
+     */
+    public final BooleanProperty tiledRenderingProperty() {
+        return tiledRendering;
+    }
+
+    public final void setTiledRendering(boolean tiledRendering) {
+        this.tiledRendering.set(tiledRendering);
+    }
+
     // max zoom
 
     private final DoubleProperty maxZoom = new SimpleDoubleProperty(this, "maxZoom", 5);
@@ -0,0 +1,149 @@
+package com.dlsc.gemsfx;
+
+import com.dlsc.gemsfx.util.SVGIconAtlas;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+
+/**
+ * A lightweight view for displaying a single icon of an {@link SVGIconAtlas}. The view
+ * is a plain {@link ImageView} (no control, no skin) that shows the region of the atlas
+ * image that belongs to the icon. All views using the same atlas share the same image,
+ * which makes this view a good fit for large numbers of small icons, e.g. inside the
+ * cells of a table or list view.
+ * <p>
+ * If the atlas does not contain the icon in the requested size then nothing will be shown.
+ * For icons that need arbitrary sizes use {@link SVGImageView} instead.
+ * </p>
+ * By default the view shows the icon at its logical size. A fit width or fit height
+ * set by the application is left untouched.
+ */
+public class SVGIconAtlasView extends ImageView {
+
+    private static final String DEFAULT_STYLE_CLASS = "svg-icon-atlas-view";
+
+    /*
+     * The fit size last applied by the view itself. A different value means that the
+     * application has set its own fit size.
+     */
+    private double autoFitWidth;
+    private double autoFitHeight;
+
+    /**
+     * Constructs a new view.
+     */
+    public SVGIconAtlasView() {
+        getStyleClass().add(DEFAULT_STYLE_CLASS);
+
+        InvalidationListener updateListener = it -> updateViewport();
+        atlas.addListener(updateListener);
+        svgUrl.addListener(updateListener);
+        size.addListener(updateListener);
+    }
+
+    /**
+     * Constructs a new view that shows the given icon of the given atlas.
+     *
+     * @param atlas  the atlas containing the icon
+     * @param svgUrl the url of the SVG icon
+     * @param size   the size of the icon
+     */
+    public SVGIconAtlasView(SVGIconAtlas atlas, String svgUrl, double size) {
+        this();
+        setSize(size);
+        setSvgUrl(svgUrl);
+        setAtlas(atlas);
+    }
+
+    private void updateViewport() {
+        SVGIconAtlas atlas = getAtlas();
+        String url = getSvgUrl();
+
+        Rectangle2D viewport = null;
+        if (atlas != null && url != null && !url.isEmpty()) {
+            viewport = atlas.getViewport(url, getSize());
+        }
+
+        if (viewport == null) {
+            setImage(null);
+            setViewport(null);
+            return;
+        }
+
+        setImage(atlas.getImage(url, getSize()));
+        setViewport(viewport);
+
+        // the atlas might have been rendered for a hidpi screen, show the icon at its logical size
+        if (getFitWidth() == autoFitWidth && getFitHeight() == autoFitHeight) {
+            autoFitWidth = viewport.getWidth() / atlas.getOutputScale();
+            autoFitHeight = viewport.getHeight() / atlas.getOutputScale();
+            setFitWidth(autoFitWidth);
+            setFitHeight(autoFitHeight);
+        }
+    }
+
+    private final ObjectProperty<SVGIconAtlas> atlas = new SimpleObjectProperty<>(this, "atlas");
+
+    public final SVGIconAtlas getAtlas() {
+        return atlas.get();
+    }
+
+    /**
+     * The atlas that contains the icon.
+     *
+     * @return the atlas
+     */
+    public final ObjectProperty<SVGIconAtlas> atlasProperty() {
+        return atlas;
+    }
+
+    public final void setAtlas(SVGIconAtlas atlas) {
+        this.atlas.set(atlas);
+    }
+
+    private final StringProperty svgUrl = new SimpleStringProperty(this, "svgUrl");
+
+    public final String getSvgUrl() {
+        return svgUrl.get();
+    }
+
+    /**
+     * The URL of the SVG icon. The URL has to match the one that was used when
+     * creating the atlas.
+     *
+     * @return the url of the icon
+     */
+    public final StringProperty svgUrlProperty() {
+        return svgUrl;
+    }
+
+    public final void setSvgUrl(String svgUrl) {
+        this.svgUrl.set(svgUrl);
+    }
+
+    private final DoubleProperty size = new SimpleDoubleProperty(this, "size");
+
+    public final double getSize() {
+        return size.get();
+    }
+
+    /**
+     * The size of the icon, has to be one of the sizes that were used when
+     * creating the atlas.
+     *
+     * @return the size of the icon
+     */
+    public final DoubleProperty sizeProperty() {
+        return size;
+    }
+
+    public final void setSize(double size) {
+        this.size.set(size);
+    }
+}
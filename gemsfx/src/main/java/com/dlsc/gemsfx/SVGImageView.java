@@ -3,14 +3,17 @@ package com.dlsc.gemsfx;
 import com.dlsc.gemsfx.skins.SVGImageViewSkin;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.StringProperty;
 import javafx.css.CssMetaData;
 import javafx.css.Styleable;
 import javafx.css.StyleableBooleanProperty;
 import javafx.css.StyleableDoubleProperty;
+import javafx.css.StyleableObjectProperty;
 import javafx.css.StyleableProperty;
 import javafx.css.StyleableStringProperty;
 import javafx.css.converter.BooleanConverter;
+import javafx.css.converter.EnumConverter;
 import javafx.css.converter.SizeConverter;
 import javafx.css.converter.URLConverter;
 import javafx.scene.control.Control;
@@ -27,7 +30,8 @@ import java.util.List;
  * <p/>
  * Note for SvgImageView:
  * Currently, due to the limitation that weisj can only render BufferedImage from SVG,
- * SvgImageView does not support usage in native packaging scenarios.
+ * SvgImageView does not support usage in native packaging scenarios when using
+ * {@link RenderMode#IMAGE}. Use {@link RenderMode#VECTOR} for these scenarios.
  */
 public class SVGImageView extends Control {
 
@@ -37,6 +41,35 @@ public class SVGImageView extends Control {
     private static final boolean DEFAULT_PRESERVE_RATIO = true;
     private static final boolean DEFAULT_SMOOTH = true;
     private static final boolean DEFAULT_BACKGROUND_LOADING = false;
+    private static final RenderMode DEFAULT_RENDER_MODE = RenderMode.IMAGE;
+
+    /**
+     * The different ways of displaying the SVG.
+     */
+    public enum RenderMode {
+
+        /**
+         * The SVG gets rasterized into an image. The image has to be rendered again
+         * whenever the size of the view changes.
+         */
+        IMAGE,
+
+        /**
+         * The SVG gets converted once into a scene graph of JavaFX shapes (see
+         * {@link com.dlsc.gemsfx.util.SVGShapeUtil}). Size changes are applied via
+         * a transform, no rendering is needed. Only the subset of SVG supported by
+         * the converter will be displayed, but no AWT classes are needed.
+         * <p>
+         * Known limitations: gradients and patterns are drawn with the color of their
+         * first stop, {@code <use>} references, clip paths, masks, filters, text and
+         * embedded images are ignored. SVGs relying on these features should be shown
+         * in {@link #IMAGE} mode.
+         * </p>
+         * When {@link SVGImageView#backgroundLoadingProperty() background loading} is enabled the
+         * conversion happens on the same background queue as the rasterization.
+         */
+        VECTOR
+    }
 
     /**
      * Constructs a new SVGImageView.
@@ -346,6 +379,53 @@ public class SVGImageView extends Control {
         this.backgroundLoading.set(backgroundLoading);
     }
 
+    private final ObjectProperty<RenderMode> renderMode = new StyleableObjectProperty<>(DEFAULT_RENDER_MODE) {
+
+        @Override
+        public CssMetaData<? extends Styleable, RenderMode> getCssMetaData() {
+            return SVGImageView.StyleableProperties.RENDER_MODE;
+        }
+
+        @Override
+        public Object getBean() {
+            return SVGImageView.this;
+        }
+
+        @Override
+        public String getName() {
+            return "renderMode";
+        }
+    };
+
+    /**
+     * Gets the value of the renderMode property.
+     *
+     * @return The render mode value.
+     */
+    public final RenderMode getRenderMode() {
+        return renderMode.get();
+    }
+
+    /**
+     * A property that determines whether the SVG image will be rasterized into an image
+     * ({@link RenderMode#IMAGE}) or whether it will be converted into vector shapes
+     * ({@link RenderMode#VECTOR}).
+     * <p>
+     * defaultValue {@link RenderMode#IMAGE}
+     */
+    public final ObjectProperty<RenderMode> renderModeProperty() {
+        return renderMode;
+    }
+
+    /**
+     * Sets the value of the renderMode property.
+     *
+     * @param renderMode The render mode value.
+     */
+    public final void setRenderMode(RenderMode renderMode) {
+        this.renderMode.set(renderMode);
+    }
+
     private static class StyleableProperties {
 
         public static final CssMetaData<SVGImageView, Number> FIT_WIDTH = new CssMetaData<>("-fx-fit-width", SizeConverter.getInstance(), DEFAULT_FIT_WIDTH) {
@@ -424,11 +504,25 @@ public class SVGImageView extends Control {
                 return (StyleableProperty<Boolean>) ((SVGImageView) styleable).backgroundLoading;
             }
         };
+
+        private static final CssMetaData<SVGImageView, RenderMode> RENDER_MODE = new CssMetaData<>("-fx-render-mode", new EnumConverter<>(RenderMode.class), DEFAULT_RENDER_MODE) {
+            @Override
+            public boolean isSettable(SVGImageView styleable) {
+                return !styleable.renderMode.isBound();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public StyleableProperty<RenderMode> getStyleableProperty(SVGImageView styleable) {
+                return (StyleableProperty<RenderMode>) styleable.renderModeProperty();
+            }
+        };
+
         private static final List<CssMetaData<? extends Styleable, ?>> STYLEABLES;
 
         static {
             List<CssMetaData<? extends Styleable, ?>> styleables = new ArrayList<>(Control.getClassCssMetaData());
-            Collections.addAll(styleables, FIT_WIDTH, FIT_HEIGHT, SVG_URL, PRESERVE_RATIO, SMOOTH, BACKGROUND_LOADING);
+            Collections.addAll(styleables, FIT_WIDTH, FIT_HEIGHT, SVG_URL, PRESERVE_RATIO, SMOOTH, BACKGROUND_LOADING, RENDER_MODE);
             STYLEABLES = Collections.unmodifiableList(styleables);
         }
 
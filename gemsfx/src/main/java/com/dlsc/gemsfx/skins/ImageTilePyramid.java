@@ -0,0 +1,411 @@
+package com.dlsc.gemsfx.skins;
+
+import com.dlsc.gemsfx.util.ImageUtil;
+import javafx.application.Platform;
+import javafx.geometry.Dimension2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * A multi-resolution pyramid of an image, used by the {@link PhotoViewSkin} for zooming
+ * into very large photos. Level 0 has the resolution of the source image, every following
+ * level has half the width and height of the previous one, down to a level that fits into
+ * a single tile. JavaFX images are only created for the tiles that are actually requested
+ * (and a small number of them is cached), so only the visible tiles need to be uploaded to
+ * the graphics card.
+ * <p>
+ * Only the levels with at most {@link #MAX_DECODED_PIXELS} pixels are kept in memory as
+ * plain pixel arrays. The tiles of the larger levels get read from the source when they
+ * are requested: for photos with a URL the region of the tile gets decoded from the source
+ * file in the background, for images without a URL the pixels are taken from the image
+ * itself. This way the memory needed by a pyramid does not depend on the size of the photo.
+ * </p>
+ * <p>
+ * Pyramids of photos with a URL get decoded from the source file, so deep zoom levels
+ * show the real pixels of the photo even when the photo view only holds a preview.
+ * Creating a pyramid decodes the source, so it should be done on a background thread.
+ * Tiles have to be requested on the JavaFX application thread.
+ * </p>
+ */
+final class ImageTilePyramid {
+
+    private static final Logger LOG = Logger.getLogger(ImageTilePyramid.class.getName());
+
+    static final int TILE_SIZE = 256;
+
+    /*
+     * 16 MB per decoded level. Creating the first decoded level temporarily needs four
+     * times as many pixels, as it gets scaled down from a level with twice the resolution.
+     */
+    static final long MAX_DECODED_PIXELS = 2048 * 2048;
+
+    private static final int BAND_HEIGHT = 256;
+
+    private static final int MAX_CACHED_TILES = 64;
+
+    private static final ExecutorService TILE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r);
+        thread.setName("Image Tile Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String url;
+    private final Image image;
+    private final List<Level> levels;
+
+    private final Map<Long, Image> tileCache = new LinkedHashMap<>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+
+    private final Set<Long> pendingTiles = ConcurrentHashMap.newKeySet();
+
+    private Runnable onTileLoaded;
+
+    private ImageTilePyramid(String url, Image image, List<Level> levels) {
+        this.url = url;
+        this.image = image;
+        this.levels = levels;
+    }
+
+    /**
+     * Creates the pyramid for the image at the given URL. The first level that fits into
+     * {@link #MAX_DECODED_PIXELS} gets decoded with subsampling, so no full resolution copy
+     * of the photo is needed at any time.
+     *
+     * @param url the URL of the source image
+     * @return the pyramid or null if the current thread was interrupted while creating it
+     * @throws IOException if the image could not be decoded
+     */
+    static ImageTilePyramid create(String url) throws IOException {
+        Dimension2D size = ImageUtil.readImageSize(url);
+        if (size == null) {
+            throw new IOException("unable to read the size of " + url);
+        }
+
+        List<Level> levels = createLevels((int) size.getWidth(), (int) size.getHeight());
+        int first = getFirstDecodedLevel(levels);
+        Level level = levels.get(first);
+
+        if (first == 0) {
+            level.pixels = ImageUtil.readRegion(url, 0, 0, level.width, level.height, 1);
+        } else {
+            // decode at twice the resolution of the level, so that the box filter of the downscaling averages the pixels
+            int subsampling = 1 << (first - 1);
+            int[] pixels = ImageUtil.readRegion(url, 0, 0, levels.get(0).width, levels.get(0).height, subsampling);
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            int width = ceilDiv(levels.get(0).width, subsampling);
+            int height = ceilDiv(levels.get(0).height, subsampling);
+            level.pixels = ImageUtil.downscale(pixels, width, height, level.width, level.height);
+        }
+
+        return decodeLevels(levels, first) ? new ImageTilePyramid(url, null, levels) : null;
+    }
+
+    /**
+     * Creates the pyramid for the given (fully loaded) image. Used for photos that have not
+     * been loaded from a URL. The image already holds all of its pixels, so it serves the
+     * tiles of the levels that are not kept in memory itself.
+     *
+     * @param image the source image
+     * @return the pyramid or null if the current thread was interrupted while creating it
+     */
+    static ImageTilePyramid create(Image image) {
+        List<Level> levels = createLevels((int) image.getWidth(), (int) image.getHeight());
+        int first = getFirstDecodedLevel(levels);
+        Level level = levels.get(first);
+
+        if (first == 0) {
+            level.pixels = readPixels(image.getPixelReader(), 0, 0, level.width, level.height, 1);
+        } else {
+            int subsampling = 1 << (first - 1);
+            int[] pixels = readPixels(image.getPixelReader(), 0, 0, levels.get(0).width, levels.get(0).height, subsampling);
+            if (pixels == null) {
+                return null;
+            }
+            int width = ceilDiv(levels.get(0).width, subsampling);
+            int height = ceilDiv(levels.get(0).height, subsampling);
+            level.pixels = ImageUtil.downscale(pixels, width, height, level.width, level.height);
+        }
+
+        return level.pixels != null && decodeLevels(levels, first) ? new ImageTilePyramid(null, image, levels) : null;
+    }
+
+    /*
+     * Reads every n-th pixel of every n-th row of the given region, one row at a time, so
+     * that only the subsampled pixels get copied. Returns null if the thread was interrupted.
+     */
+    private static int[] readPixels(PixelReader reader, int x, int y, int width, int height, int subsampling) {
+        int targetWidth = ceilDiv(width, subsampling);
+        int targetHeight = ceilDiv(height, subsampling);
+        int[] pixels = new int[targetWidth * targetHeight];
+        int[] line = subsampling > 1 ? new int[width] : null;
+
+        for (int row = 0; row < targetHeight; row++) {
+            if (row % BAND_HEIGHT == 0 && Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            int sourceY = y + row * subsampling;
+            if (line == null) {
+                reader.getPixels(x, sourceY, width, 1, PixelFormat.getIntArgbPreInstance(), pixels, row * targetWidth, targetWidth);
+            } else {
+                reader.getPixels(x, sourceY, width, 1, PixelFormat.getIntArgbPreInstance(), line, 0, width);
+                for (int column = 0; column < targetWidth; column++) {
+                    pixels[row * targetWidth + column] = line[column * subsampling];
+                }
+            }
+        }
+
+        return pixels;
+    }
+
+    /*
+     * Creates the (still empty) levels for a source of the given size.
+     */
+    private static List<Level> createLevels(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("invalid image size " + width + "x" + height);
+        }
+
+        List<Level> levels = new ArrayList<>();
+        Level level = new Level(width, height, 0);
+        levels.add(level);
+
+        while (level.width > TILE_SIZE || level.height > TILE_SIZE) {
+            level = new Level(Math.max(1, level.width / 2), Math.max(1, level.height / 2), levels.size());
+            levels.add(level);
+        }
+
+        return levels;
+    }
+
+    private static int getFirstDecodedLevel(List<Level> levels) {
+        int first = 0;
+        while ((long) levels.get(first).width * levels.get(first).height > MAX_DECODED_PIXELS) {
+            first++;
+        }
+        return first;
+    }
+
+    /*
+     * Scales down the given decoded level into all following levels.
+     */
+    private static boolean decodeLevels(List<Level> levels, int first) {
+        for (int i = first + 1; i < levels.size(); i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            Level previous = levels.get(i - 1);
+            Level level = levels.get(i);
+            level.pixels = ImageUtil.downscale(previous.pixels, previous.width, previous.height, level.width, level.height);
+        }
+
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    int getLevelCount() {
+        return levels.size();
+    }
+
+    int getWidth(int level) {
+        return levels.get(level).width;
+    }
+
+    int getHeight(int level) {
+        return levels.get(level).height;
+    }
+
+    int getColumns(int level) {
+        return (getWidth(level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    int getRows(int level) {
+        return (getHeight(level) + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    int getTileWidth(int level, int column) {
+        return Math.min(TILE_SIZE, getWidth(level) - column * TILE_SIZE);
+    }
+
+    int getTileHeight(int level, int row) {
+        return Math.min(TILE_SIZE, getHeight(level) - row * TILE_SIZE);
+    }
+
+    /**
+     * Returns the level whose resolution best matches the given number of device pixels
+     * per source pixel, e.g. 0.25 when the image gets shown at a quarter of its size.
+     *
+     * @param pixelScale device pixels per pixel of the source image
+     * @return the level
+     */
+    int getLevel(double pixelScale) {
+        if (pixelScale <= 0) {
+            return levels.size() - 1;
+        }
+
+        // pick the smallest level that still has at least one pixel per device pixel
+        int level = (int) Math.floor(Math.log(1 / pixelScale) / Math.log(2));
+        return Math.max(0, Math.min(levels.size() - 1, level));
+    }
+
+    /**
+     * Sets the callback that gets invoked on the JavaFX application thread whenever a tile
+     * that had to be read from the source file becomes available.
+     *
+     * @param onTileLoaded the callback or null
+     */
+    void setOnTileLoaded(Runnable onTileLoaded) {
+        this.onTileLoaded = onTileLoaded;
+    }
+
+    /**
+     * Returns the image of the given tile. Tiles at the right and bottom edges can be smaller
+     * than {@link #TILE_SIZE}. Tiles of levels that are not kept in memory get read from the
+     * source file in the background, in which case this method returns null and the callback
+     * set via {@link #setOnTileLoaded(Runnable)} gets invoked once the tile is available.
+     *
+     * @param level  the level
+     * @param column the column of the tile
+     * @param row    the row of the tile
+     * @return the tile image or null if the tile is still being read
+     */
+    Image getTile(int level, int column, int row) {
+        long key = ((long) level << 48) | ((long) row << 24) | column;
+        Image tile = tileCache.get(key);
+        if (tile == null) {
+            Level l = levels.get(level);
+            if (l.pixels != null) {
+                tile = createTile(l, column, row);
+            } else if (image != null) {
+                tile = readTile(l, column, row);
+            } else {
+                loadTile(key, l, column, row);
+                return null;
+            }
+            tileCache.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Drops all tile reads that have been requested but not started yet, e.g. because the
+     * user zoomed or panned to another area of the photo. Tiles that are still visible get
+     * requested again by the next call to {@link #getTile(int, int, int)}.
+     */
+    void discardPendingTiles() {
+        pendingTiles.clear();
+    }
+
+    private Image createTile(Level level, int column, int row) {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        int tileWidth = getTileWidth(level.index, column);
+        int tileHeight = getTileHeight(level.index, row);
+
+        int[] pixels = new int[tileWidth * tileHeight];
+        for (int line = 0; line < tileHeight; line++) {
+            System.arraycopy(level.pixels, (y + line) * level.width + x, pixels, line * tileWidth, tileWidth);
+        }
+
+        return ImageUtil.createImage(pixels, tileWidth, tileHeight);
+    }
+
+    /*
+     * Reads the tile from the source image, skipping the pixels in between for levels > 0.
+     */
+    private Image readTile(Level level, int column, int row) {
+        int tileWidth = getTileWidth(level.index, column);
+        int tileHeight = getTileHeight(level.index, row);
+        int[] region = getSourceRegion(level, column, row);
+
+        int[] pixels = readPixels(image.getPixelReader(), region[0], region[1], region[2], region[3], 1 << level.index);
+        return ImageUtil.createImage(pixels, tileWidth, tileHeight);
+    }
+
+    /*
+     * The region of the source covered by the given tile. Clamped to the source, as levels
+     * never get narrower or lower than one pixel.
+     */
+    private int[] getSourceRegion(Level level, int column, int row) {
+        int subsampling = 1 << level.index;
+        Level source = levels.get(0);
+        int x = Math.min(column * TILE_SIZE * subsampling, source.width - 1);
+        int y = Math.min(row * TILE_SIZE * subsampling, source.height - 1);
+        int width = Math.min(getTileWidth(level.index, column) * subsampling, source.width - x);
+        int height = Math.min(getTileHeight(level.index, row) * subsampling, source.height - y);
+        return new int[]{x, y, width, height};
+    }
+
+    private void loadTile(long key, Level level, int column, int row) {
+        if (!pendingTiles.add(key)) {
+            return;
+        }
+
+        int tileWidth = getTileWidth(level.index, column);
+        int tileHeight = getTileHeight(level.index, row);
+        int[] region = getSourceRegion(level, column, row);
+        int subsampling = 1 << level.index;
+
+        TILE_EXECUTOR.execute(() -> {
+            if (!pendingTiles.remove(key)) {
+                // discarded
+                return;
+            }
+
+            Image tile;
+            try {
+                int[] pixels = ImageUtil.readRegion(url, region[0], region[1], region[2], region[3], subsampling);
+                tile = ImageUtil.createImage(pixels, tileWidth, tileHeight);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(java.util.logging.Level.WARNING, "failed to read tile " + column + "/" + row + " of level " + level.index + " from " + url, e);
+                return;
+            }
+
+            Platform.runLater(() -> {
+                tileCache.put(key, tile);
+                if (onTileLoaded != null) {
+                    onTileLoaded.run();
+                }
+            });
+        });
+    }
+
+    private static final class Level {
+
+        private final int width;
+        private final int height;
+        private final int index;
+
+        // null for the levels that are read from the source on demand
+        private int[] pixels;
+
+        private Level(int width, int height, int index) {
+            this.width = width;
+            this.height = height;
+            this.index = index;
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.dlsc.gemsfx.skins;
 
 import com.dlsc.gemsfx.PhotoView;
 import com.dlsc.gemsfx.PhotoView.ClipShape;
-import javafx.application.Platform;
+import com.dlsc.gemsfx.util.ImageUtil;
 import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Dimension2D;
+import javafx.geometry.Bounds;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Node;
@@ -16,8 +19,8 @@ import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.InnerShadow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.WritableImage;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
@@ -25,10 +28,17 @@ import javafx.scene.layout.VBox;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class PhotoViewSkin extends SkinBase<PhotoView> {
 
+    private static final Logger LOG = Logger.getLogger(PhotoViewSkin.class.getName());
+
     public PhotoViewSkin(PhotoView view) {
         super(view);
 
@@ -81,20 +91,39 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
     public class ImageBox extends StackPane {
 
         private final CropService cropService;
+        private final PyramidService pyramidService;
+        private final NativeSizeService nativeSizeService;
 
         private final ImageView imageView;
+        private final Pane tilePane;
+        private final Map<Long, ImageView> tileViews = new HashMap<>();
+        private ImageTilePyramid pyramid;
+        private int tileLevel = -1;
         private final Circle circle;
         private final Rectangle rectangle;
 
+        private Image upgradeImage;
+        private double upgradeWidth;
+
+        private Image nativeSizePhoto;
+        private Dimension2D nativeSize;
+        private boolean nativeSizeKnown;
+
         private double startY;
         private double startX;
 
         public ImageBox(PhotoView view) {
             cropService = new CropService();
+            cropService.setOnSucceeded(evt -> {
+                Image croppedImage = cropService.getValue();
+                if (croppedImage != null) {
+                    getSkinnable().getProperties().put("cropped.image", croppedImage);
+                }
+            });
 
             imageView = new ImageView();
             imageView.setPreserveRatio(true);
-            imageView.imageProperty().bind(view.photoProperty());
+            imageView.setImage(view.getPhoto());
             imageView.scaleXProperty().bind(view.photoZoomProperty());
             imageView.scaleYProperty().bind(view.photoZoomProperty());
             imageView.translateXProperty().bind(Bindings.createDoubleBinding(() -> view.getPhotoTranslateX() * imageView.getFitWidth(), view.photoTranslateXProperty(), imageView.fitWidthProperty()));
@@ -103,22 +132,64 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
             imageView.effectProperty().bind(view.photoEffectProperty());
             imageView.setManaged(false);
 
+            pyramidService = new PyramidService();
+            pyramidService.setOnSucceeded(evt -> {
+                pyramid = pyramidService.getValue();
+                if (pyramid != null) {
+                    pyramid.setOnTileLoaded(this::updateTiles);
+                    dropUpgradeImage();
+                }
+                updateTiles();
+            });
+            pyramidService.setOnFailed(evt -> LOG.log(Level.WARNING, "failed to create image pyramid", pyramidService.getException()));
+
+            nativeSizeService = new NativeSizeService();
+            nativeSizeService.setOnSucceeded(evt -> {
+                if (nativeSizePhoto == getSkinnable().getPhoto()) {
+                    nativeSize = nativeSizeService.getValue();
+                    nativeSizeKnown = true;
+                    updateResolution();
+                }
+            });
+
+            tilePane = new Pane();
+            tilePane.getStyleClass().add("tile-pane");
+            tilePane.setManaged(false);
+            tilePane.setVisible(false);
+            tilePane.setCursor(Cursor.MOVE);
+            tilePane.scaleXProperty().bind(imageView.scaleXProperty());
+            tilePane.scaleYProperty().bind(imageView.scaleYProperty());
+            tilePane.translateXProperty().bind(imageView.translateXProperty());
+            tilePane.translateYProperty().bind(imageView.translateYProperty());
+            tilePane.effectProperty().bind(view.photoEffectProperty());
+
             view.photoProperty().addListener(it -> {
                 Image photo = view.getPhoto();
-                if (photo != null) {
-                    if (photo.isBackgroundLoading()) {
-                        photo.progressProperty().addListener(it2 -> {
-                            if (photo.getProgress() == 1.0) {
-                                requestLayout();
-                            }
-                        });
-                    } else {
-                        requestLayout();
-                    }
+                if (upgradeImage != null) {
+                    upgradeImage.cancel();
+                    upgradeImage = null;
+                }
+                imageView.setImage(photo);
+                if (photo != null && photo.isBackgroundLoading()) {
+                    photo.progressProperty().addListener(it2 -> {
+                        if (photo.getProgress() == 1.0) {
+                            requestLayout();
+                            updatePyramid();
+                        }
+                    });
                 } else {
                     requestLayout();
                 }
+                updatePyramid();
+            });
+
+            view.photoZoomProperty().addListener(it -> {
+                updateResolution();
+                updateTiles();
             });
+            view.photoTranslateXProperty().addListener(it -> updateTiles());
+            view.photoTranslateYProperty().addListener(it -> updateTiles());
+            view.tiledRenderingProperty().addListener(it -> updatePyramid());
 
             setOnMousePressed(evt -> {
                 if (view.isEditable()) {
@@ -192,6 +263,208 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
             view.photoTranslateXProperty().addListener(cropListener);
             view.photoTranslateYProperty().addListener(cropListener);
             view.createCroppedImageProperty().addListener(cropListener);
+            view.maxCroppedImageSizeProperty().addListener(cropListener);
+
+            // the photo might have been set before the skin was created
+            updatePyramid();
+        }
+
+        /*
+         * Photos that were decoded at a reduced size (e.g. the previews created by the photo view
+         * itself) get replaced by a version with more pixels as soon as the user zooms past the
+         * resolution of the preview. The new version is large enough for the maximum zoom, so this
+         * happens at most once per photo. It never exceeds the native size of the photo, as the
+         * image would otherwise get enlarged to the requested size.
+         */
+        private void updateResolution() {
+            PhotoView view = getSkinnable();
+            if (pyramid != null && view.isTiledRendering()) {
+                // the tiles provide the pixels
+                return;
+            }
+
+            Image photo = view.getPhoto();
+            if (!view.isProgressiveLoading() || photo == null || photo.getUrl() == null || photo.isError() || photo.getProgress() < 1) {
+                return;
+            }
+
+            if (photo.getRequestedWidth() <= 0 && photo.getRequestedHeight() <= 0) {
+                // already decoded at full resolution
+                return;
+            }
+
+            if (!updateNativeSize(photo)) {
+                // called again once the size is known
+                return;
+            }
+
+            if (nativeSize != null && photo.getWidth() >= nativeSize.getWidth()) {
+                // the preview already contains all pixels of the photo
+                return;
+            }
+
+            double neededWidth = imageView.getFitWidth() * view.getPhotoZoom() * getRenderScale();
+            double availableWidth = upgradeImage != null ? upgradeWidth : photo.getWidth();
+            if (neededWidth <= availableWidth) {
+                return;
+            }
+
+            if (upgradeImage != null) {
+                upgradeImage.cancel();
+            }
+
+            double requestedWidth = Math.ceil(Math.max(neededWidth, imageView.getFitWidth() * view.getMaxZoom() * getRenderScale()));
+
+            Image image;
+            if (nativeSize == null || requestedWidth >= nativeSize.getWidth()) {
+                image = new Image(photo.getUrl(), true);
+                upgradeWidth = nativeSize != null ? nativeSize.getWidth() : Double.MAX_VALUE;
+            } else {
+                image = new Image(photo.getUrl(), requestedWidth, 0, true, true, true);
+                upgradeWidth = requestedWidth;
+            }
+
+            upgradeImage = image;
+            image.progressProperty().addListener(it -> {
+                if (image.getProgress() == 1.0 && !image.isError() && upgradeImage == image && view.getPhoto() == photo) {
+                    imageView.setImage(image);
+                    crop();
+                }
+            });
+        }
+
+        /*
+         * The size is read from the header of the image file once per photo. This happens in
+         * the background, as the URL might point to a remote server. Returns true if the size
+         * of the given photo is known (a size of null means it could not be read).
+         */
+        private boolean updateNativeSize(Image photo) {
+            if (nativeSizePhoto != photo) {
+                nativeSizePhoto = photo;
+                nativeSize = null;
+                nativeSizeKnown = false;
+                nativeSizeService.url = photo.getUrl();
+                nativeSizeService.restart();
+            }
+            return nativeSizeKnown;
+        }
+
+        private double getRenderScale() {
+            if (getScene() != null && getScene().getWindow() != null) {
+                return getScene().getWindow().getRenderScaleX();
+            }
+            return 1;
+        }
+
+        /*
+         * Once the tiles are showing, the image view is hidden and there is no need to keep
+         * the larger version of the photo in memory.
+         */
+        private void dropUpgradeImage() {
+            if (upgradeImage != null) {
+                upgradeImage.cancel();
+                upgradeImage = null;
+                imageView.setImage(getSkinnable().getPhoto());
+            }
+        }
+
+        /*
+         * Creates the image pyramid for the tiled rendering mode in the background. Until it is
+         * available the photo gets displayed by the image view. Photos with a URL get decoded
+         * again at full resolution, as the photo itself might only be a preview.
+         */
+        private void updatePyramid() {
+            pyramidService.cancel();
+            if (pyramid != null) {
+                pyramid.setOnTileLoaded(null);
+                pyramid.discardPendingTiles();
+                pyramid = null;
+            }
+
+            Image photo = getSkinnable().getPhoto();
+            if (getSkinnable().isTiledRendering() && photo != null && !photo.isError() && photo.getProgress() == 1.0) {
+                pyramidService.url = photo.getUrl();
+                pyramidService.image = photo.getUrl() == null ? photo : null;
+                pyramidService.restart();
+            }
+
+            updateTiles();
+            updateResolution();
+        }
+
+        /*
+         * Attaches the tiles that are visible at the current zoom and translation to the
+         * scene graph and removes all others. The pyramid level gets picked so that a tile
+         * pixel maps to roughly one screen pixel.
+         */
+        private void updateTiles() {
+            boolean tiled = pyramid != null && getSkinnable().isTiledRendering();
+            tilePane.setVisible(tiled);
+            imageView.setVisible(!tiled);
+
+            double pw = tilePane.getWidth();
+            double ph = tilePane.getHeight();
+
+            if (!tiled || pw <= 0 || ph <= 0) {
+                tileViews.clear();
+                tilePane.getChildren().clear();
+                tileLevel = -1;
+                return;
+            }
+
+            // tiles that are still waiting to be read might have scrolled out of view
+            pyramid.discardPendingTiles();
+
+            int level = pyramid.getLevel(pw * getSkinnable().getPhotoZoom() * getRenderScale() / pyramid.getWidth(0));
+            if (level != tileLevel) {
+                tileViews.clear();
+                tilePane.getChildren().clear();
+                tileLevel = level;
+            }
+
+            double tileScaleX = pw / pyramid.getWidth(level);
+            double tileScaleY = ph / pyramid.getHeight(level);
+            double tileWidth = ImageTilePyramid.TILE_SIZE * tileScaleX;
+            double tileHeight = ImageTilePyramid.TILE_SIZE * tileScaleY;
+
+            // the visible area of the box in the coordinate space of the tile pane
+            Bounds visibleBounds = tilePane.parentToLocal(new BoundingBox(0, 0, getWidth(), getHeight()));
+
+            int firstColumn = Math.max(0, (int) Math.floor(visibleBounds.getMinX() / tileWidth));
+            int lastColumn = Math.min(pyramid.getColumns(level) - 1, (int) Math.floor(visibleBounds.getMaxX() / tileWidth));
+            int firstRow = Math.max(0, (int) Math.floor(visibleBounds.getMinY() / tileHeight));
+            int lastRow = Math.min(pyramid.getRows(level) - 1, (int) Math.floor(visibleBounds.getMaxY() / tileHeight));
+
+            Map<Long, ImageView> visibleTiles = new HashMap<>();
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    long key = ((long) row << 32) | column;
+                    ImageView tileView = tileViews.remove(key);
+                    if (tileView == null) {
+                        tileView = new ImageView();
+                        tileView.setSmooth(true);
+                        tileView.setManaged(false);
+                        tilePane.getChildren().add(tileView);
+                    }
+
+                    if (tileView.getImage() == null) {
+                        // null while the tile gets read from the source file
+                        tileView.setImage(pyramid.getTile(level, column, row));
+                    }
+
+                    tileView.setLayoutX(column * tileWidth);
+                    tileView.setLayoutY(row * tileHeight);
+                    tileView.setFitWidth(pyramid.getTileWidth(level, column) * tileScaleX);
+                    tileView.setFitHeight(pyramid.getTileHeight(level, row) * tileScaleY);
+
+                    visibleTiles.put(key, tileView);
+                }
+            }
+
+            // whatever is left is no longer visible
+            tilePane.getChildren().removeAll(tileViews.values());
+            tileViews.clear();
+            tileViews.putAll(visibleTiles);
         }
 
         private void updateBorderShape() {
@@ -214,16 +487,16 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
 
             if (newPlaceholder != null) {
                 if (view.getClipShape().equals(ClipShape.CIRCLE)) {
-                    getChildren().setAll(imageView, newPlaceholder, circle);
+                    getChildren().setAll(imageView, tilePane, newPlaceholder, circle);
                 } else {
-                    getChildren().setAll(imageView, newPlaceholder, rectangle);
+                    getChildren().setAll(imageView, tilePane, newPlaceholder, rectangle);
                 }
                 newPlaceholder.visibleProperty().bind(view.photoSupplierProperty().isNotNull().and(view.photoProperty().isNull()).and(view.editableProperty()));
             } else {
                 if (view.getClipShape().equals(ClipShape.CIRCLE)) {
-                    getChildren().setAll(imageView, circle);
+                    getChildren().setAll(imageView, tilePane, circle);
                 } else {
-                    getChildren().setAll(imageView, rectangle);
+                    getChildren().setAll(imageView, tilePane, rectangle);
                 }
             }
         }
@@ -239,43 +512,173 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
         /*
          * We use a service for cropping so that we do not crop
          * every single time the user moves the original image but
-         * instead wait until the user is done moving.
+         * instead wait until the user is done moving. Restarting the
+         * service cancels the previous (now stale) crop. The pixels
+         * get copied on the service thread, only the result gets
+         * published on the FX thread.
          */
-        class CropService extends Service<Void> {
+        class CropService extends Service<Image> {
+
+            private CropRequest request;
+
+            @Override
+            protected Task<Image> createTask() {
+                return new CropTask(request);
+            }
+        }
+
+        class PyramidService extends Service<ImageTilePyramid> {
+
+            private String url;
+            private Image image;
+
+            @Override
+            protected Task<ImageTilePyramid> createTask() {
+                String sourceUrl = url;
+                Image sourceImage = image;
+
+                // only the task references the source
+                url = null;
+                image = null;
+
+                return new Task<>() {
+                    @Override
+                    protected ImageTilePyramid call() throws Exception {
+                        return sourceUrl != null ? ImageTilePyramid.create(sourceUrl) : ImageTilePyramid.create(sourceImage);
+                    }
+                };
+            }
+        }
+
+        class NativeSizeService extends Service<Dimension2D> {
+
+            private String url;
 
             @Override
-            protected Task<Void> createTask() {
-                return new CropTask();
+            protected Task<Dimension2D> createTask() {
+                String sourceUrl = url;
+                return new Task<>() {
+                    @Override
+                    protected Dimension2D call() {
+                        return ImageUtil.readImageSize(sourceUrl);
+                    }
+                };
             }
         }
 
-        class CropTask extends Task<Void> {
+        class CropTask extends Task<Image> {
+
+            private final CropRequest request;
+
+            CropTask(CropRequest request) {
+                this.request = request;
+            }
 
             @Override
-            protected Void call() throws Exception {
+            protected Image call() throws Exception {
                 Thread.sleep(200);
-                if (!isCancelled()) {
-                    Platform.runLater(ImageBox.this::doCrop);
+                if (isCancelled() || request == null) {
+                    return null;
+                }
+
+                int[] pixels = null;
+                int width = request.width;
+                int height = request.height;
+
+                if (request.sourceUrl != null) {
+                    Dimension2D sourceSize = request.sourceSize != null ? request.sourceSize : ImageUtil.readImageSize(request.sourceUrl);
+                    if (sourceSize != null && sourceSize.getWidth() > request.image.getWidth() && sourceSize.getHeight() > request.image.getHeight()) {
+                        // map the crop onto the full resolution photo
+                        double scale = sourceSize.getWidth() / request.image.getWidth();
+                        int sx = (int) (request.x * scale);
+                        int sy = (int) (request.y * scale);
+                        int sw = (int) Math.min(sourceSize.getWidth() - sx, Math.round(request.width * scale));
+                        int sh = (int) Math.min(sourceSize.getHeight() - sy, Math.round(request.height * scale));
+
+                        // the reader skips pixels that would get dropped by the downscaling anyway
+                        int subsampling = request.maxSize > 0 ? Math.max(1, (int) (Math.max(sw, sh) / request.maxSize)) : 1;
+
+                        try {
+                            pixels = ImageUtil.readRegion(request.sourceUrl, sx, sy, sw, sh, subsampling);
+                            width = (sw + subsampling - 1) / subsampling;
+                            height = (sh + subsampling - 1) / subsampling;
+                        } catch (IOException | RuntimeException e) {
+                            LOG.log(Level.WARNING, "failed to read the full resolution photo, cropping the preview instead", e);
+                        }
+                    }
+                }
+
+                if (isCancelled()) {
+                    return null;
+                }
+
+                if (pixels == null) {
+                    pixels = new int[width * height];
+                    request.image.getPixelReader().getPixels(request.x, request.y, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+                }
+
+                int[] size = ImageUtil.computeBoundedSize(width, height, request.maxSize);
+                if (size[0] != width || size[1] != height) {
+                    pixels = ImageUtil.downscale(pixels, width, height, size[0], size[1]);
+                    if (isCancelled()) {
+                        return null;
+                    }
                 }
 
-                return null;
+                return ImageUtil.createImage(pixels, size[0], size[1]);
             }
         }
 
-        public void crop() {
-            if (getSkinnable().isCreateCroppedImage()) {
-                cropService.restart();
+        /*
+         * The crop geometry, captured on the FX thread at the time the crop was requested. The
+         * geometry is relative to the displayed image. If that image was decoded at a reduced
+         * size, the source URL and (if already known) the native size of the photo are set, so
+         * that the task can crop the full resolution photo instead.
+         */
+        private final class CropRequest {
+
+            private final Image image;
+            private final int x;
+            private final int y;
+            private final int width;
+            private final int height;
+            private final double maxSize;
+            private final String sourceUrl;
+            private final Dimension2D sourceSize;
+
+            private CropRequest(Image image, int x, int y, int width, int height, double maxSize, String sourceUrl, Dimension2D sourceSize) {
+                this.image = image;
+                this.x = x;
+                this.y = y;
+                this.width = width;
+                this.height = height;
+                this.maxSize = maxSize;
+                this.sourceUrl = sourceUrl;
+                this.sourceSize = sourceSize;
             }
         }
 
-        private void doCrop() {
-            Image image = getSkinnable().getPhoto();
+        public void crop() {
+            if (getSkinnable().isCreateCroppedImage()) {
+                // the displayed image might have more pixels than the photo itself (see updateResolution())
+                Image image = getSkinnable().getPhoto() != null ? imageView.getImage() : null;
+                if (image == null) {
+                    cropService.cancel();
+                    getSkinnable().getProperties().put("cropped.image", null);
+                    return;
+                }
 
-            if (image == null) {
-                getSkinnable().getProperties().put("cropped.image", null);
-                return;
+                CropRequest request = createCropRequest(image);
+                if (request != null) {
+                    cropService.request = request;
+                    cropService.restart();
+                } else {
+                    cropService.cancel();
+                }
             }
+        }
 
+        private CropRequest createCropRequest(Image image) {
             double scale = image.getWidth() / (imageView.getFitWidth() * getSkinnable().getPhotoZoom());
             double moveX = getSkinnable().getPhotoTranslateX() * image.getWidth() / getSkinnable().getPhotoZoom();
             double moveY = getSkinnable().getPhotoTranslateY() * image.getHeight() / getSkinnable().getPhotoZoom();
@@ -297,17 +700,24 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
                 h = (int) (rectangle.getHeight() * scale);
             }
 
-            PixelReader reader = getSkinnable().getPhoto().getPixelReader();
-
             int ix = Math.max(0, x);
             int iy = Math.max(0, y);
             int iw = (int) Math.min(image.getWidth() - ix, w);
             int ih = (int) Math.min(image.getHeight() - iy, h);
 
             if (iw > 0 && ih > 0) {
-                WritableImage croppedImage = new WritableImage(reader, ix, iy, iw, ih);
-                getSkinnable().getProperties().put("cropped.image", croppedImage);
+                String sourceUrl = null;
+                Dimension2D sourceSize = null;
+                if (image.getUrl() != null && (image.getRequestedWidth() > 0 || image.getRequestedHeight() > 0)) {
+                    sourceUrl = image.getUrl();
+                    if (nativeSizeKnown && nativeSizePhoto == getSkinnable().getPhoto()) {
+                        sourceSize = nativeSize;
+                    }
+                }
+                return new CropRequest(image, ix, iy, iw, ih, getSkinnable().getMaxCroppedImageSize(), sourceUrl, sourceSize);
             }
+
+            return null;
         }
 
         @Override
@@ -343,7 +753,10 @@ public class PhotoViewSkin extends SkinBase<PhotoView> {
                 imageView.setFitHeight(ph);
 
                 imageView.resizeRelocate(mw - pw / 2, mh - ph / 2, pw, ph);
+                tilePane.resizeRelocate(mw - pw / 2, mh - ph / 2, pw, ph);
             }
+
+            updateTiles();
         }
 
         private void updateRectangleClip() {
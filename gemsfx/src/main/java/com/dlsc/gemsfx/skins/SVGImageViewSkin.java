@@ -1,47 +1,256 @@
 package com.dlsc.gemsfx.skins;
 
 import com.dlsc.gemsfx.SVGImageView;
-import com.dlsc.gemsfx.util.SVGUtil;
+import com.dlsc.gemsfx.SVGImageView.RenderMode;
+import com.dlsc.gemsfx.util.SVGImageCache;
+import com.dlsc.gemsfx.util.SVGShapeUtil;
+import javafx.animation.PauseTransition;
 import javafx.beans.InvalidationListener;
 import javafx.beans.WeakInvalidationListener;
-import javafx.concurrent.Service;
-import javafx.concurrent.Task;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
+import javafx.scene.Group;
+import javafx.scene.Scene;
 import javafx.scene.control.SkinBase;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Region;
+import javafx.scene.transform.Scale;
+import javafx.stage.Window;
+import javafx.util.Duration;
+import one.jpro.jproutils.treeshowing.TreeShowing;
 
 import java.net.URI;
+import java.net.URL;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SVGImageViewSkin extends SkinBase<SVGImageView> {
 
-    private Service<Image> imageService;
+    private static final Logger LOG = Logger.getLogger(SVGImageViewSkin.class.getName());
+
+    /*
+     * The time that has to pass after the last change of the fit size before the
+     * image gets rendered again. Until then the current image is shown scaled.
+     */
+    private static final Duration RESIZE_RENDER_DELAY = Duration.millis(100);
+
+    private SVGRenderQueue.Request<?> renderRequest;
+    private boolean renderPending;
     private final ImageView imageView = new ImageView();
-    private final InvalidationListener listener = it -> loadingImage();
+
+    /*
+     * Used for RenderMode.VECTOR, the shapes only get created once per url, size
+     * changes are applied via the scale transform.
+     */
+    private final Group vectorContainer = new Group();
+    private final Scale vectorScale = new Scale();
+    private Group vectorGroup;
+    private final PauseTransition resizeDelay = new PauseTransition(RESIZE_RENDER_DELAY);
+
+    private final InvalidationListener listener = it -> urlChanged();
     private final WeakInvalidationListener weakListener = new WeakInvalidationListener(listener);
 
+    private final InvalidationListener fitSizeListener = it -> fitSizeChanged();
+    private final WeakInvalidationListener weakFitSizeListener = new WeakInvalidationListener(fitSizeListener);
+
+    private final InvalidationListener showingListener = it -> showingChanged();
+    private final WeakInvalidationListener weakShowingListener = new WeakInvalidationListener(showingListener);
+
+    private final InvalidationListener preserveRatioListener = it -> updateVectorScale();
+    private final WeakInvalidationListener weakPreserveRatioListener = new WeakInvalidationListener(preserveRatioListener);
+
+    private final InvalidationListener renderModeListener = it -> renderModeChanged();
+    private final WeakInvalidationListener weakRenderModeListener = new WeakInvalidationListener(renderModeListener);
+
+    /*
+     * The output scale used for rendering, follows the render scale of the window
+     * that is currently hosting the control (e.g. 2.0 on a 200% display). Starts
+     * out as NaN so that the initial scale update triggers the first rendering.
+     */
+    private double outputScaleX = Double.NaN;
+    private double outputScaleY = Double.NaN;
+
+    private final InvalidationListener renderScaleListener = it -> updateOutputScale();
+    private final WeakInvalidationListener weakRenderScaleListener = new WeakInvalidationListener(renderScaleListener);
+
+    private final ChangeListener<Window> windowListener = (obs, oldWindow, newWindow) -> windowChanged(oldWindow, newWindow);
+    private final WeakChangeListener<Window> weakWindowListener = new WeakChangeListener<>(windowListener);
+
+    // referenced weakly by the cache
+    private final Consumer<URL> cacheInvalidationListener = this::cacheInvalidated;
+
+    private final ChangeListener<Scene> sceneListener = (obs, oldScene, newScene) -> sceneChanged(oldScene, newScene);
+    private final WeakChangeListener<Scene> weakSceneListener = new WeakChangeListener<>(sceneListener);
+
     public SVGImageViewSkin(SVGImageView svgImageView) {
         super(svgImageView);
 
         svgImageView.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
 
-        imageView.fitWidthProperty().bind(svgImageView.fitWidthProperty());
-        imageView.fitHeightProperty().bind(svgImageView.fitHeightProperty());
         imageView.preserveRatioProperty().bind(svgImageView.preserveRatioProperty());
         imageView.smoothProperty().bind(svgImageView.smoothProperty());
 
+        resizeDelay.setOnFinished(evt -> loadingImage());
+
         svgImageView.svgUrlProperty().addListener(weakListener);
-        svgImageView.fitWidthProperty().addListener(weakListener);
-        svgImageView.fitHeightProperty().addListener(weakListener);
+        svgImageView.fitWidthProperty().addListener(weakFitSizeListener);
+        svgImageView.fitHeightProperty().addListener(weakFitSizeListener);
+        svgImageView.preserveRatioProperty().addListener(weakPreserveRatioListener);
+        svgImageView.renderModeProperty().addListener(weakRenderModeListener);
+        TreeShowing.treeShowing(svgImageView).addListener(weakShowingListener);
+        SVGImageCache.addInvalidationListener(cacheInvalidationListener);
+
+        getChildren().setAll(isVectorMode() ? vectorContainer : imageView);
+
+        // determines the initial output scale and renders the image
+        svgImageView.sceneProperty().addListener(weakSceneListener);
+        sceneChanged(null, svgImageView.getScene());
+    }
+
+    private void sceneChanged(Scene oldScene, Scene newScene) {
+        Window oldWindow = null;
+        if (oldScene != null) {
+            oldScene.windowProperty().removeListener(weakWindowListener);
+            oldWindow = oldScene.getWindow();
+        }
+
+        Window newWindow = null;
+        if (newScene != null) {
+            newScene.windowProperty().addListener(weakWindowListener);
+            newWindow = newScene.getWindow();
+        }
+
+        windowChanged(oldWindow, newWindow);
+    }
+
+    private void windowChanged(Window oldWindow, Window newWindow) {
+        if (oldWindow != null) {
+            oldWindow.renderScaleXProperty().removeListener(weakRenderScaleListener);
+            oldWindow.renderScaleYProperty().removeListener(weakRenderScaleListener);
+        }
+
+        if (newWindow != null) {
+            newWindow.renderScaleXProperty().addListener(weakRenderScaleListener);
+            newWindow.renderScaleYProperty().addListener(weakRenderScaleListener);
+        }
+
+        updateOutputScale();
+    }
+
+    /*
+     * Only re-render when the scale actually changed, e.g. when the window moved
+     * to a monitor with a different scaling factor.
+     */
+    private void updateOutputScale() {
+        double scaleX = 1;
+        double scaleY = 1;
+
+        Scene scene = getSkinnable().getScene();
+        if (scene != null && scene.getWindow() != null) {
+            Window window = scene.getWindow();
+            scaleX = window.getRenderScaleX();
+            scaleY = window.getRenderScaleY();
+        }
+
+        if (scaleX != outputScaleX || scaleY != outputScaleY) {
+            outputScaleX = scaleX;
+            outputScaleY = scaleY;
+
+            // vector shapes are rendered by javafx itself and do not depend on the output scale
+            if (!isVectorMode() || vectorGroup == null) {
+                loadingImage();
+            }
+        }
+    }
+
+    /*
+     * Requests that are still waiting in the render queue get re-submitted so that
+     * their priority reflects whether the view is showing or not. This also brings
+     * back requests that the queue dropped while the view was not showing.
+     */
+    private void showingChanged() {
+        if (renderRequest != null && renderRequest.cancel()) {
+            renderRequest = null;
+            loadingImage();
+        }
+    }
+
+    /*
+     * The cached images of the SVG have been evicted, e.g. because the disk cache found
+     * out that the source has changed. The current image is stale and gets rendered again.
+     */
+    private void cacheInvalidated(URL url) {
+        String svgUrl = getSkinnable().getSvgUrl();
+        if (isVectorMode() || imageView.getImage() == null || svgUrl == null || svgUrl.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (new URI(svgUrl).toURL().toExternalForm().equals(url.toExternalForm())) {
+                loadingImage();
+            }
+        } catch (Exception e) {
+            // not a valid url, nothing has been rendered for it
+        }
+    }
+
+    private boolean isVectorMode() {
+        return getSkinnable().getRenderMode() == RenderMode.VECTOR;
+    }
+
+    /*
+     * A request of the previous mode that is already running gets discarded when it
+     * finishes, see loadingImage().
+     */
+    private void renderModeChanged() {
+        setImage(null);
+        setVectorGroup(null);
+        getChildren().setAll(isVectorMode() ? vectorContainer : imageView);
 
         loadingImage();
-        getChildren().add(imageView);
+    }
+
+    private void urlChanged() {
+        if (getSkinnable().isBackgroundLoading()) {
+            // do not show the previous svg while the new one is being loaded
+            setImage(null);
+        }
+        loadingImage();
+    }
+
+    /*
+     * Resizing (e.g. when the fit width is bound to the width of a container) can fire
+     * many changes in a row. Show the current image scaled to the new size and only render
+     * again once the size has settled.
+     */
+    private void fitSizeChanged() {
+        if (isVectorMode()) {
+            updateVectorScale();
+            return;
+        }
+
+        if (imageView.getImage() == null) {
+            loadingImage();
+            return;
+        }
+
+        updateFitSize();
+        resizeDelay.playFromStart();
     }
 
     private void loadingImage() {
-        if (imageService != null && imageService.isRunning()) {
-            imageService.cancel();
-            imageView.setImage(null);
+        resizeDelay.stop();
+
+        if (renderRequest != null) {
+            if (!renderRequest.cancel()) {
+                // only one render per view at a time, the latest state gets rendered when it is done
+                renderPending = true;
+                return;
+            }
+            // stale request that has not been started, yet (e.g. a recycled cell)
+            renderRequest = null;
         }
 
         SVGImageView skinnable = getSkinnable();
@@ -50,41 +259,165 @@ public class SVGImageViewSkin extends SkinBase<SVGImageView> {
             return;
         }
 
-        if (!skinnable.isBackgroundLoading()) {
+        if (isVectorMode()) {
+            if (skinnable.isBackgroundLoading()) {
+                renderRequest = SVGRenderQueue.submit(url, TreeShowing.isTreeShowing(skinnable),
+                        () -> SVGShapeUtil.toGroup(new URI(url).toURL()), this::vectorFinished);
+            } else {
+                try {
+                    setVectorGroup(SVGShapeUtil.toGroup(new URI(url).toURL()));
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "failed to convert svg: " + url, e);
+                    setVectorGroup(null);
+                }
+            }
+        } else if (!skinnable.isBackgroundLoading()) {
             try {
-                Image image = SVGUtil.parseSVGFromUrl(new URI(url).toURL(), skinnable.getFitWidth(), skinnable.getFitHeight());
-                imageView.setImage(image);
+                Image image = SVGImageCache.getImage(new URI(url).toURL(), skinnable.getFitWidth(), skinnable.getFitHeight(), outputScaleX, outputScaleY);
+                setImage(image);
             } catch (Exception e) {
-                imageView.setImage(null);
+                setImage(null);
             }
         } else {
-            if (imageService == null) {
-                imageService = createLoadingImageService();
-                imageService.setOnSucceeded(evt -> imageView.setImage(imageService.getValue()));
+            renderRequest = SVGRenderQueue.submit(url, skinnable.getFitWidth(), skinnable.getFitHeight(), outputScaleX, outputScaleY,
+                    TreeShowing.isTreeShowing(skinnable), this::renderFinished);
+        }
+    }
+
+    private void renderFinished(Image image) {
+        if (getSkinnable() == null) {
+            // skin has been disposed while rendering
+            return;
+        }
+
+        renderRequest = null;
+        if (renderPending) {
+            renderPending = false;
+            loadingImage();
+        } else {
+            setImage(image);
+        }
+    }
+
+    private void vectorFinished(Group group) {
+        if (getSkinnable() == null) {
+            // skin has been disposed while converting
+            return;
+        }
+
+        renderRequest = null;
+        if (renderPending) {
+            renderPending = false;
+            loadingImage();
+        } else {
+            setVectorGroup(group);
+        }
+    }
+
+    private void setImage(Image image) {
+        imageView.setImage(image);
+        updateFitSize();
+    }
+
+    /*
+     * The image has been rendered with the output scale, so it has more pixels than
+     * it should occupy on screen. When no fit size is given we have to tell the image
+     * view the logical size of the image.
+     */
+    private void updateFitSize() {
+        SVGImageView skinnable = getSkinnable();
+        double fitWidth = skinnable.getFitWidth();
+        double fitHeight = skinnable.getFitHeight();
+
+        Image image = imageView.getImage();
+        if (image != null && fitWidth <= 0 && fitHeight <= 0) {
+            fitWidth = image.getWidth() / outputScaleX;
+            fitHeight = image.getHeight() / outputScaleY;
+        }
+
+        imageView.setFitWidth(fitWidth);
+        imageView.setFitHeight(fitHeight);
+    }
+
+    private void setVectorGroup(Group group) {
+        if (vectorGroup != null) {
+            vectorGroup.getTransforms().remove(vectorScale);
+        }
+
+        vectorGroup = group;
+
+        if (group != null) {
+            group.getTransforms().add(vectorScale);
+            vectorContainer.getChildren().setAll(group);
+            updateVectorScale();
+        } else {
+            vectorContainer.getChildren().clear();
+        }
+    }
+
+    /*
+     * Scales the shapes to the fit size, following the same rules as an image view.
+     */
+    private void updateVectorScale() {
+        if (vectorGroup == null) {
+            return;
+        }
+
+        double width = vectorGroup.getLayoutBounds().getWidth();
+        double height = vectorGroup.getLayoutBounds().getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        SVGImageView skinnable = getSkinnable();
+        double fitWidth = skinnable.getFitWidth();
+        double fitHeight = skinnable.getFitHeight();
+
+        double scaleX = fitWidth > 0 ? fitWidth / width : 1;
+        double scaleY = fitHeight > 0 ? fitHeight / height : 1;
+
+        if (skinnable.isPreserveRatio()) {
+            if (fitWidth > 0 && fitHeight > 0) {
+                scaleX = scaleY = Math.min(scaleX, scaleY);
+            } else if (fitWidth > 0) {
+                scaleY = scaleX;
+            } else if (fitHeight > 0) {
+                scaleX = scaleY;
             }
-            imageService.restart();
         }
+
+        vectorScale.setX(scaleX);
+        vectorScale.setY(scaleY);
     }
 
-    private Service<Image> createLoadingImageService() {
+    @Override
+    public void dispose() {
+        if (renderRequest != null) {
+            renderRequest.cancel();
+            renderRequest = null;
+        }
+        resizeDelay.stop();
+
         SVGImageView skinnable = getSkinnable();
-        return new Service<>() {
-            @Override
-            protected Task<Image> createTask() {
-                return new Task<>() {
-                    @Override
-                    protected Image call() {
-                        if (isCancelled()) {
-                            return null;
-                        }
-                        try {
-                            return SVGUtil.parseSVGFromUrl(new URI(skinnable.getSvgUrl()).toURL(), skinnable.getFitWidth(), skinnable.getFitHeight());
-                        } catch (Exception e) {
-                            return null;
-                        }
-                    }
-                };
+        skinnable.svgUrlProperty().removeListener(weakListener);
+        skinnable.fitWidthProperty().removeListener(weakFitSizeListener);
+        skinnable.fitHeightProperty().removeListener(weakFitSizeListener);
+        skinnable.preserveRatioProperty().removeListener(weakPreserveRatioListener);
+        skinnable.renderModeProperty().removeListener(weakRenderModeListener);
+        skinnable.sceneProperty().removeListener(weakSceneListener);
+        TreeShowing.treeShowing(skinnable).removeListener(weakShowingListener);
+        SVGImageCache.removeInvalidationListener(cacheInvalidationListener);
+
+        Scene scene = skinnable.getScene();
+        if (scene != null) {
+            scene.windowProperty().removeListener(weakWindowListener);
+            Window window = scene.getWindow();
+            if (window != null) {
+                window.renderScaleXProperty().removeListener(weakRenderScaleListener);
+                window.renderScaleYProperty().removeListener(weakRenderScaleListener);
             }
-        };
+        }
+
+        super.dispose();
     }
 }
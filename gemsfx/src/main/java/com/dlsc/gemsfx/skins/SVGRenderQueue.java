@@ -0,0 +1,184 @@
+package com.dlsc.gemsfx.skins;
+
+import com.dlsc.gemsfx.util.SVGImageCache;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A render queue shared by all {@link SVGImageViewSkin} instances that use background
+ * loading, for rasterized images as well as for vector shapes. The queue is worked off
+ * by a small, bounded number of threads. Requests of views that are currently showing
+ * are rendered before the requests of views that are not showing (e.g. views inside a
+ * collapsed pane or in a scrolled-off cell). Requests that have not been started yet can
+ * be cancelled, e.g. when a cell gets recycled and now displays a different SVG.
+ * <p>
+ * The number of pending requests is capped. When the cap is reached the request with the
+ * lowest priority that belongs to a view that is not showing gets dropped. Dropped requests
+ * behave like cancelled ones, the skin submits them again once its view starts showing.
+ * Requests of showing views are never dropped, so the cap can be exceeded when more views
+ * are showing than the cap allows.
+ * </p>
+ */
+final class SVGRenderQueue {
+
+    private static final Logger LOG = Logger.getLogger(SVGRenderQueue.class.getName());
+
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final int MAX_PENDING = 256;
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r);
+        thread.setName("SVG Render Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private SVGRenderQueue() {
+    }
+
+    /**
+     * Adds a new render request to the queue.
+     *
+     * @param url          the URL of the SVG file
+     * @param fitWidth     the requested width
+     * @param fitHeight    the requested height
+     * @param outputScaleX the horizontal output scale
+     * @param outputScaleY the vertical output scale
+     * @param showing      true if the requesting view is currently showing
+     * @param onFinished   invoked on the FX thread with the rendered image (or null if rendering failed), never invoked for cancelled requests
+     * @return the request
+     */
+    static Request<Image> submit(String url, double fitWidth, double fitHeight, double outputScaleX, double outputScaleY, boolean showing, Consumer<Image> onFinished) {
+        return submit(url, showing, () -> SVGImageCache.getImage(new URI(url).toURL(), fitWidth, fitHeight, outputScaleX, outputScaleY), onFinished);
+    }
+
+    /**
+     * Adds a new request to the queue that creates its result via the given task, e.g. the
+     * shapes of an SVG file. The task gets executed on one of the threads of the queue.
+     *
+     * @param url        the URL of the SVG file, used for logging
+     * @param showing    true if the requesting view is currently showing
+     * @param task       the task creating the result
+     * @param onFinished invoked on the FX thread with the result (or null if the task failed), never invoked for cancelled requests
+     * @param <T>        the type of the result
+     * @return the request
+     */
+    static <T> Request<T> submit(String url, boolean showing, Callable<T> task, Consumer<T> onFinished) {
+        Request<T> request = new Request<>(url, showing, task, onFinished);
+        synchronized (EXECUTOR) {
+            if (EXECUTOR.getQueue().size() >= MAX_PENDING) {
+                Request<?> lowest = findLowestPriorityHidden(request);
+                if (lowest == request) {
+                    request.drop();
+                    return request;
+                }
+                if (lowest != null) {
+                    lowest.drop();
+                }
+            }
+            EXECUTOR.execute(request);
+        }
+        return request;
+    }
+
+    /*
+     * Returns the queued (or the given) request with the lowest priority among the ones
+     * of views that are not showing, or null if all of them belong to showing views.
+     */
+    private static Request<?> findLowestPriorityHidden(Request<?> candidate) {
+        Request<?> lowest = candidate.showing ? null : candidate;
+        for (Runnable runnable : EXECUTOR.getQueue()) {
+            Request<?> request = (Request<?>) runnable;
+            if (!request.showing && (lowest == null || request.compareTo(lowest) > 0)) {
+                lowest = request;
+            }
+        }
+        return lowest;
+    }
+
+    static final class Request<T> implements Runnable, Comparable<Request<?>> {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+        private static final int DROPPED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final long sequence = SEQUENCE.getAndIncrement();
+
+        private final String url;
+        private final boolean showing;
+        private final Callable<T> task;
+        private final Consumer<T> onFinished;
+
+        private Request(String url, boolean showing, Callable<T> task, Consumer<T> onFinished) {
+            this.url = url;
+            this.showing = showing;
+            this.task = task;
+            this.onFinished = onFinished;
+        }
+
+        /**
+         * Cancels the request if it has not been started, yet.
+         *
+         * @return true if the request will not be rendered, false if it is already being rendered
+         */
+        boolean cancel() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                EXECUTOR.remove(this);
+                return true;
+            }
+            return state.get() != RUNNING;
+        }
+
+        private void drop() {
+            if (state.compareAndSet(QUEUED, DROPPED)) {
+                EXECUTOR.remove(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+
+            T result = null;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "failed to render svg: " + url, e);
+            }
+
+            T finalResult = result;
+            Platform.runLater(() -> onFinished.accept(finalResult));
+        }
+
+        @Override
+        public int compareTo(Request<?> other) {
+            if (showing != other.showing) {
+                return showing ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
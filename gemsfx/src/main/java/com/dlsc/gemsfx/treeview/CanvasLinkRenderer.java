@@ -0,0 +1,534 @@
+package com.dlsc.gemsfx.treeview;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurve;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.HLineTo;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.QuadCurve;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.SVGPath;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.shape.VLineTo;
+import javafx.scene.transform.Scale;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Paints the links of a {@link TreeNodeView} onto a set of canvas tiles instead of adding the
+ * link nodes to the scene graph (see {@link TreeNodeView.LinkRenderMode#CANVAS}). The nodes
+ * created by the link strategy only serve as a description of the geometry, they never become
+ * part of the scene, so they do not take part in CSS processing, layout or picking.
+ * <p>
+ * The styles of the links get resolved once for every combination of node type and style
+ * classes by temporarily adding the first link of this combination to the content group of the
+ * view. The content is split into tiles of {@link #TILE_SIZE} pixels, each tile keeps track of
+ * the links that cross it, so that adding, moving or removing a link only repaints the affected
+ * area of the affected tiles.
+ * </p>
+ * <p>
+ * The tiles that intersect the visible area get rasterized at the current scale of the view (see
+ * {@link #setScale(double, Bounds)}), rounded up to the next power of two and limited to
+ * {@link #MAX_RESOLUTION}, so that the links stay sharp when the view is zoomed in. Beyond that
+ * limit the links get slightly soft again. All other tiles keep one canvas pixel per logical pixel,
+ * so the memory used by the tiles depends on the size of the viewport, not on the size of the tree.
+ * </p>
+ * Supported are lines, paths, cubic and quad curves, circles, rectangles and regions (e.g. the
+ * arrows), other nodes get rejected and have to be added to the scene graph by the caller. Besides
+ * the links the renderer also paints the proxies that replace the cells when the view is zoomed out
+ * (see {@link TreeNodeView#cellDetailThresholdProperty()}).
+ */
+final class CanvasLinkRenderer {
+
+    static final int TILE_SIZE = 512;
+
+    /**
+     * The maximum number of canvas pixels per logical pixel, a tile never gets larger than
+     * {@code TILE_SIZE * MAX_RESOLUTION} pixels.
+     */
+    static final int MAX_RESOLUTION = 4;
+
+    private final Group group;
+
+    private final Map<String, LinkStyle> styles = new HashMap<>();
+
+    private final Map<Node, Bounds> linkBounds = new HashMap<>();
+
+    private final Map<Long, Tile> tiles = new HashMap<>();
+
+    private int resolution = 1;
+
+    private Bounds viewport;
+
+    CanvasLinkRenderer(Group group) {
+        this.group = group;
+    }
+
+    /**
+     * Adds the given link, it will be painted by the next call to {@link #render()}.
+     *
+     * @param link the link node
+     * @return false if the type of the link is not supported
+     */
+    boolean add(Node link) {
+        if (!isSupported(link)) {
+            return false;
+        }
+
+        Bounds bounds = computeBounds(link, getStyle(link));
+        linkBounds.put(link, bounds);
+        forEachTile(bounds, true, tile -> {
+            tile.links.add(link);
+            tile.markDirty(bounds);
+        });
+        return true;
+    }
+
+    /**
+     * Removes the given link, its area will be repainted by the next call to {@link #render()}.
+     *
+     * @param link the link node
+     * @return false if the link was not painted by this renderer
+     */
+    boolean remove(Node link) {
+        Bounds bounds = linkBounds.remove(link);
+        if (bounds == null) {
+            return false;
+        }
+
+        forEachTile(bounds, false, tile -> {
+            tile.links.remove(link);
+            tile.markDirty(bounds);
+        });
+        return true;
+    }
+
+    /**
+     * Moves the given link by setting its translation.
+     *
+     * @return false if the link was not painted by this renderer
+     */
+    boolean move(Node link, double translateX, double translateY) {
+        if (!remove(link)) {
+            return false;
+        }
+
+        link.setTranslateX(translateX);
+        link.setTranslateY(translateY);
+        add(link);
+        return true;
+    }
+
+    /**
+     * Adjusts the resolution of the tiles to the given scale of the view (including the output
+     * scale of the screen). Only the tiles intersecting the given visible area get the higher
+     * resolution. Tiles get repainted when their resolution changes.
+     *
+     * @param scale    the number of screen pixels per logical pixel of the content
+     * @param viewport the visible area in content coordinates or null if it is not known
+     */
+    void setScale(double scale, Bounds viewport) {
+        int newResolution = 1;
+        while (newResolution < scale && newResolution < MAX_RESOLUTION) {
+            newResolution *= 2;
+        }
+
+        resolution = newResolution;
+        this.viewport = viewport;
+
+        boolean changed = false;
+        for (Tile tile : tiles.values()) {
+            int tileResolution = getResolution(tile.column, tile.row);
+            if (tile.resolution != tileResolution) {
+                tile.setResolution(tileResolution);
+                tile.markDirty(tile.getBounds());
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            render();
+        }
+    }
+
+    /*
+     * Off-screen tiles stay at the lowest resolution, so zooming in does not multiply the
+     * memory used by all tiles.
+     */
+    private int getResolution(int column, int row) {
+        if (resolution == 1 || viewport == null) {
+            return 1;
+        }
+        return viewport.intersects(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE) ? resolution : 1;
+    }
+
+    /**
+     * Repaints the dirty areas of all tiles and removes the tiles that no longer show any link.
+     */
+    void render() {
+        tiles.values().removeIf(tile -> {
+            if (tile.links.isEmpty()) {
+                group.getChildren().remove(tile.canvas);
+                return true;
+            }
+            if (tile.dirty != null) {
+                paint(tile);
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Forgets the resolved styles and repaints all links, e.g. after the view was added to a scene.
+     */
+    void refresh() {
+        styles.clear();
+        for (Node link : linkBounds.keySet().toArray(new Node[0])) {
+            remove(link);
+            add(link);
+        }
+        tiles.values().forEach(tile -> tile.markDirty(tile.getBounds()));
+        render();
+    }
+
+    /**
+     * Removes all links and tiles and forgets the resolved styles.
+     */
+    void clear() {
+        tiles.values().forEach(tile -> group.getChildren().remove(tile.canvas));
+        tiles.clear();
+        linkBounds.clear();
+        styles.clear();
+    }
+
+    private static boolean isSupported(Node link) {
+        return link instanceof Line || link instanceof Path || link instanceof CubicCurve || link instanceof QuadCurve
+                || link instanceof Circle || link instanceof Rectangle || link instanceof Region;
+    }
+
+    private void forEachTile(Bounds bounds, boolean create, Consumer<Tile> action) {
+        int minColumn = (int) Math.floor(bounds.getMinX() / TILE_SIZE);
+        int maxColumn = (int) Math.floor(bounds.getMaxX() / TILE_SIZE);
+        int minRow = (int) Math.floor(bounds.getMinY() / TILE_SIZE);
+        int maxRow = (int) Math.floor(bounds.getMaxY() / TILE_SIZE);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                long key = ((long) row << 32) | (column & 0xFFFFFFFFL);
+                Tile tile = tiles.get(key);
+                if (tile == null && create) {
+                    tile = new Tile(column, row, getResolution(column, row));
+                    tiles.put(key, tile);
+                    // behind the cells
+                    group.getChildren().add(0, tile.canvas);
+                }
+                if (tile != null) {
+                    action.accept(tile);
+                }
+            }
+        }
+    }
+
+    private void paint(Tile tile) {
+        Bounds dirty = tile.dirty;
+        tile.dirty = null;
+
+        double tileX = tile.column * TILE_SIZE;
+        double tileY = tile.row * TILE_SIZE;
+
+        GraphicsContext gc = tile.canvas.getGraphicsContext2D();
+        gc.save();
+        gc.scale(tile.resolution, tile.resolution);
+        gc.translate(-tileX, -tileY);
+        gc.clearRect(dirty.getMinX(), dirty.getMinY(), dirty.getWidth(), dirty.getHeight());
+        gc.beginPath();
+        gc.rect(dirty.getMinX(), dirty.getMinY(), dirty.getWidth(), dirty.getHeight());
+        gc.clip();
+
+        for (Node link : tile.links) {
+            if (linkBounds.get(link).intersects(dirty)) {
+                paint(gc, link, getStyle(link));
+            }
+        }
+
+        gc.restore();
+    }
+
+    private void paint(GraphicsContext gc, Node link, LinkStyle style) {
+        gc.save();
+        gc.setGlobalAlpha(style.opacity);
+
+        if (link instanceof Region region) {
+            // regions are not laid out, their layout position is their center (see AbstractLinkStrategy.createSimpleArrow())
+            gc.translate(region.getLayoutX() + region.getTranslateX() + region.getWidth() / 2, region.getLayoutY() + region.getTranslateY() + region.getHeight() / 2);
+            gc.rotate(region.getRotate());
+            paintRegion(gc, style);
+            gc.restore();
+            return;
+        }
+
+        gc.translate(link.getLayoutX() + link.getTranslateX(), link.getLayoutY() + link.getTranslateY());
+        if (link.getRotate() != 0) {
+            Bounds localBounds = link.getBoundsInLocal();
+            gc.translate(localBounds.getCenterX(), localBounds.getCenterY());
+            gc.rotate(link.getRotate());
+            gc.translate(-localBounds.getCenterX(), -localBounds.getCenterY());
+        }
+
+        gc.beginPath();
+        if (link instanceof Line line) {
+            gc.moveTo(line.getStartX(), line.getStartY());
+            gc.lineTo(line.getEndX(), line.getEndY());
+        } else if (link instanceof Path path) {
+            appendPath(gc, path);
+        } else if (link instanceof CubicCurve curve) {
+            gc.moveTo(curve.getStartX(), curve.getStartY());
+            gc.bezierCurveTo(curve.getControlX1(), curve.getControlY1(), curve.getControlX2(), curve.getControlY2(), curve.getEndX(), curve.getEndY());
+        } else if (link instanceof QuadCurve curve) {
+            gc.moveTo(curve.getStartX(), curve.getStartY());
+            gc.quadraticCurveTo(curve.getControlX(), curve.getControlY(), curve.getEndX(), curve.getEndY());
+        } else if (link instanceof Circle circle) {
+            gc.arc(circle.getCenterX(), circle.getCenterY(), circle.getRadius(), circle.getRadius(), 0, 360);
+            gc.closePath();
+        } else if (link instanceof Rectangle rectangle) {
+            gc.rect(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight());
+        }
+
+        if (isVisible(style.fill)) {
+            gc.setFill(style.fill);
+            gc.fill();
+        }
+        if (isVisible(style.stroke)) {
+            gc.setStroke(style.stroke);
+            gc.setLineWidth(style.strokeWidth);
+            gc.setLineCap(style.lineCap);
+            gc.setLineJoin(style.lineJoin);
+            gc.setLineDashes(style.dashes);
+            gc.stroke();
+        }
+
+        gc.restore();
+    }
+
+    private void paintRegion(GraphicsContext gc, LinkStyle style) {
+        if (!isVisible(style.fill)) {
+            return;
+        }
+
+        gc.setFill(style.fill);
+        if (style.shape == null || style.shapeBounds.getWidth() == 0 || style.shapeBounds.getHeight() == 0) {
+            gc.fillRect(-style.width / 2, -style.height / 2, style.width, style.height);
+            return;
+        }
+
+        // the shape gets scaled to the size of the region
+        gc.scale(style.width / style.shapeBounds.getWidth(), style.height / style.shapeBounds.getHeight());
+        gc.translate(-style.shapeBounds.getCenterX(), -style.shapeBounds.getCenterY());
+        gc.beginPath();
+        gc.appendSVGPath(style.shape);
+        gc.fill();
+    }
+
+    private static void appendPath(GraphicsContext gc, Path path) {
+        double x = 0;
+        double y = 0;
+        for (PathElement element : path.getElements()) {
+            double baseX = element.isAbsolute() ? 0 : x;
+            double baseY = element.isAbsolute() ? 0 : y;
+            if (element instanceof MoveTo moveTo) {
+                x = baseX + moveTo.getX();
+                y = baseY + moveTo.getY();
+                gc.moveTo(x, y);
+            } else if (element instanceof LineTo lineTo) {
+                x = baseX + lineTo.getX();
+                y = baseY + lineTo.getY();
+                gc.lineTo(x, y);
+            } else if (element instanceof HLineTo lineTo) {
+                x = baseX + lineTo.getX();
+                gc.lineTo(x, y);
+            } else if (element instanceof VLineTo lineTo) {
+                y = baseY + lineTo.getY();
+                gc.lineTo(x, y);
+            } else if (element instanceof CubicCurveTo curveTo) {
+                gc.bezierCurveTo(baseX + curveTo.getControlX1(), baseY + curveTo.getControlY1(), baseX + curveTo.getControlX2(), baseY + curveTo.getControlY2(),
+                        baseX + curveTo.getX(), baseY + curveTo.getY());
+                x = baseX + curveTo.getX();
+                y = baseY + curveTo.getY();
+            } else if (element instanceof QuadCurveTo curveTo) {
+                gc.quadraticCurveTo(baseX + curveTo.getControlX(), baseY + curveTo.getControlY(), baseX + curveTo.getX(), baseY + curveTo.getY());
+                x = baseX + curveTo.getX();
+                y = baseY + curveTo.getY();
+            } else if (element instanceof ArcTo arcTo) {
+                // approximated, none of the link strategies uses arcs
+                x = baseX + arcTo.getX();
+                y = baseY + arcTo.getY();
+                gc.lineTo(x, y);
+            } else if (element instanceof ClosePath) {
+                gc.closePath();
+            }
+        }
+    }
+
+    private static boolean isVisible(Paint paint) {
+        return paint != null && !Color.TRANSPARENT.equals(paint);
+    }
+
+    private static Bounds computeBounds(Node link, LinkStyle style) {
+        double margin = style.strokeWidth / 2 + 1;
+        if (link instanceof Region region) {
+            // might be rotated, so use the diagonal
+            double radius = Math.hypot(style.width, style.height) / 2 + 1;
+            double centerX = region.getLayoutX() + region.getTranslateX() + region.getWidth() / 2;
+            double centerY = region.getLayoutY() + region.getTranslateY() + region.getHeight() / 2;
+            return new BoundingBox(centerX - radius, centerY - radius, radius * 2, radius * 2);
+        }
+
+        Bounds bounds = link.getBoundsInParent();
+        return new BoundingBox(bounds.getMinX() - margin, bounds.getMinY() - margin, bounds.getWidth() + margin * 2, bounds.getHeight() + margin * 2);
+    }
+
+    /*
+     * Links with the same type and the same style classes share their style. The style gets resolved
+     * by applying the CSS to the first of these links while it is part of the content group. As long
+     * as the view is not showing, the current values of the link get used without caching them.
+     */
+    private LinkStyle getStyle(Node link) {
+        String key = link.getClass().getName() + link.getStyleClass();
+        LinkStyle style = styles.get(key);
+        if (style != null) {
+            return style;
+        }
+
+        if (group.getScene() == null) {
+            return new LinkStyle(link);
+        }
+
+        group.getChildren().add(link);
+        link.applyCss();
+        style = new LinkStyle(link);
+        group.getChildren().remove(link);
+
+        styles.put(key, style);
+        return style;
+    }
+
+    private static final class LinkStyle {
+
+        private final double opacity;
+        private final Paint stroke;
+        private final Paint fill;
+        private final double strokeWidth;
+        private final StrokeLineCap lineCap;
+        private final StrokeLineJoin lineJoin;
+        private final double[] dashes;
+
+        // regions
+        private final double width;
+        private final double height;
+        private final String shape;
+        private final Bounds shapeBounds;
+
+        private LinkStyle(Node link) {
+            opacity = link.getOpacity();
+
+            if (link instanceof Shape shapeNode) {
+                stroke = shapeNode.getStroke();
+                fill = shapeNode.getFill();
+                strokeWidth = stroke != null ? shapeNode.getStrokeWidth() : 0;
+                lineCap = shapeNode.getStrokeLineCap();
+                lineJoin = shapeNode.getStrokeLineJoin();
+                dashes = shapeNode.getStrokeDashArray().isEmpty() ? null : shapeNode.getStrokeDashArray().stream().mapToDouble(Double::doubleValue).toArray();
+                width = 0;
+                height = 0;
+                shape = null;
+                shapeBounds = null;
+            } else {
+                Region region = (Region) link;
+                Background background = region.getBackground();
+                fill = background != null && !background.getFills().isEmpty() ? background.getFills().get(background.getFills().size() - 1).getFill() : null;
+                stroke = null;
+                strokeWidth = 0;
+                lineCap = StrokeLineCap.SQUARE;
+                lineJoin = StrokeLineJoin.MITER;
+                dashes = null;
+                width = region.prefWidth(-1);
+                height = region.prefHeight(-1);
+                if (region.getShape() instanceof SVGPath svgPath) {
+                    shape = svgPath.getContent();
+                    shapeBounds = svgPath.getBoundsInLocal();
+                } else {
+                    shape = null;
+                    shapeBounds = null;
+                }
+            }
+        }
+    }
+
+    private static final class Tile {
+
+        private final int column;
+        private final int row;
+        private final Canvas canvas = new Canvas();
+        private final Set<Node> links = new LinkedHashSet<>();
+        private Bounds dirty;
+        private int resolution;
+
+        private Tile(int column, int row, int resolution) {
+            this.column = column;
+            this.row = row;
+            canvas.getStyleClass().add("link-canvas");
+            canvas.setLayoutX(column * TILE_SIZE);
+            canvas.setLayoutY(row * TILE_SIZE);
+            canvas.setMouseTransparent(true);
+            setResolution(resolution);
+        }
+
+        /*
+         * The canvas gets scaled down again, so that it still covers TILE_SIZE logical pixels.
+         */
+        private void setResolution(int resolution) {
+            this.resolution = resolution;
+            canvas.setWidth(TILE_SIZE * resolution);
+            canvas.setHeight(TILE_SIZE * resolution);
+            canvas.getTransforms().setAll(new Scale(1d / resolution, 1d / resolution));
+        }
+
+        private Bounds getBounds() {
+            return new BoundingBox(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        }
+
+        private void markDirty(Bounds bounds) {
+            if (dirty == null) {
+                dirty = bounds;
+            } else {
+                double minX = Math.min(dirty.getMinX(), bounds.getMinX());
+                double minY = Math.min(dirty.getMinY(), bounds.getMinY());
+                double maxX = Math.max(dirty.getMaxX(), bounds.getMaxX());
+                double maxY = Math.max(dirty.getMaxY(), bounds.getMaxY());
+                dirty = new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+            }
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.dlsc.gemsfx.treeview;
 
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -11,30 +14,69 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.util.Callback;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class TreeNode<T> {
 
+    private static final Logger LOG = Logger.getLogger(TreeNode.class.getName());
+
     private static final boolean DEFAULT_EXPANDED = true;
     public static final double USE_TREE_CELL_SIZE = Double.NEGATIVE_INFINITY;
     private static final double DEFAULT_WIDTH = USE_TREE_CELL_SIZE;
     private static final double DEFAULT_HEIGHT = USE_TREE_CELL_SIZE;
 
+    /*
+     * Structural information, maintained by the children listener so that it can be
+     * accessed in constant time.
+     */
+    private int depth;
+    private int index = -1;
+    private int subtreeSize = 1;
+
     public TreeNode() {
         children.addListener((ListChangeListener.Change<? extends TreeNode<T>> c) -> {
+            int from = Integer.MAX_VALUE;
             while (c.next()) {
-                if (c.wasAdded()) {
-                    c.getAddedSubList().forEach(each -> each.setParent(this));
-                }
+                from = Math.min(from, c.getFrom());
+                // removed nodes first, a replaced node might get added again by the same change
                 if (c.wasRemoved()) {
-                    c.getRemoved().forEach(each -> each.setParent(null));
+                    c.getRemoved().forEach(each -> {
+                        each.setParent(null);
+                        each.index = -1;
+                        each.updateDepth();
+                        updateSubtreeSize(-each.subtreeSize);
+                    });
                 }
+                if (c.wasAdded()) {
+                    c.getAddedSubList().forEach(each -> {
+                        each.setParent(this);
+                        each.updateDepth();
+                        updateSubtreeSize(each.subtreeSize);
+                    });
+                }
+            }
+            for (int i = from; i < children.size(); i++) {
+                children.get(i).index = i;
+            }
+        });
+
+        expanded.addListener((obs, wasExpanded, isExpanded) -> {
+            if (isExpanded) {
+                // expanding the node again also retries loading children that failed before
+                retryLoadingChildren();
             }
         });
     }
@@ -124,6 +166,159 @@ public class TreeNode<T> {
         this.expanded.set(expanded);
     }
 
+    private final ObjectProperty<Callback<TreeNode<T>, CompletableFuture<List<TreeNode<T>>>>> childrenProvider = new SimpleObjectProperty<>(this, "childrenProvider");
+
+    public Callback<TreeNode<T>, CompletableFuture<List<TreeNode<T>>>> getChildrenProvider() {
+        return childrenProvider.get();
+    }
+
+    /**
+     * A provider for loading the children of this node lazily, e.g. from a server. The provider
+     * gets called once, when the node gets expanded for the first time (or when the view decides
+     * to prefetch the children, see {@link TreeNodeView#prefetchDepthProperty()}). The children
+     * returned by the future replace the current children of the node on the JavaFX application
+     * thread. If the provider or the future fails the error gets logged and kept in the
+     * {@link #loadingErrorProperty() loading error} property, the provider only gets called again when
+     * the node gets expanded again or when {@link #retryLoadingChildren()} gets invoked. The nodes returned by the provider should usually be collapsed, expanded nodes
+     * load their own children as soon as they become visible.
+     *
+     * @return the provider for the children of this node
+     * @see #loadChildren()
+     */
+    public ObjectProperty<Callback<TreeNode<T>, CompletableFuture<List<TreeNode<T>>>>> childrenProviderProperty() {
+        return childrenProvider;
+    }
+
+    public void setChildrenProvider(Callback<TreeNode<T>, CompletableFuture<List<TreeNode<T>>>> childrenProvider) {
+        this.childrenProvider.set(childrenProvider);
+    }
+
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(this, "loading", false);
+
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    /**
+     * True while the children provider is loading the children of this node.
+     *
+     * @return true if the children are being loaded
+     */
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    private final ReadOnlyObjectWrapper<Throwable> loadingError = new ReadOnlyObjectWrapper<>(this, "loadingError");
+
+    public Throwable getLoadingError() {
+        return loadingError.get();
+    }
+
+    /**
+     * The error that occurred while the children provider was loading the children of this node,
+     * null if the children have not been loaded yet, are still loading or have been loaded successfully.
+     *
+     * @return the error of the last attempt to load the children
+     * @see #retryLoadingChildren()
+     */
+    public ReadOnlyObjectProperty<Throwable> loadingErrorProperty() {
+        return loadingError.getReadOnlyProperty();
+    }
+
+    private CompletableFuture<List<TreeNode<T>>> childrenFuture;
+
+    /**
+     * Loads the children of this node via the {@link #childrenProviderProperty() children provider}.
+     * Calling this method several times only calls the provider once, all callers receive the same
+     * future. Without a provider the returned future is already completed. After a failure the
+     * failed future gets returned until the loading gets retried.
+     *
+     * @return a future that completes with the children after they have been added to this node
+     */
+    public CompletableFuture<List<TreeNode<T>>> loadChildren() {
+        if (childrenFuture != null) {
+            return childrenFuture;
+        }
+
+        Callback<TreeNode<T>, CompletableFuture<List<TreeNode<T>>>> provider = getChildrenProvider();
+        if (provider == null) {
+            return CompletableFuture.completedFuture(children);
+        }
+
+        CompletableFuture<List<TreeNode<T>>> result = new CompletableFuture<>();
+        childrenFuture = result;
+        loading.set(true);
+
+        CompletableFuture<List<TreeNode<T>>> future;
+        try {
+            future = Objects.requireNonNull(provider.call(this), "children provider returned null");
+        } catch (RuntimeException ex) {
+            loadingFailed(result, ex);
+            return result;
+        }
+
+        future.whenComplete((loadedChildren, ex) -> runOnFxThread(() -> childrenLoaded(result, loadedChildren, ex)));
+
+        return result;
+    }
+
+    /*
+     * Invoked on the FX thread once the future returned by the provider has completed. A future
+     * that completes with null counts as a failure, so the node can be retried like any other.
+     */
+    void childrenLoaded(CompletableFuture<List<TreeNode<T>>> result, List<TreeNode<T>> loadedChildren, Throwable ex) {
+        if (ex == null && loadedChildren == null) {
+            ex = new NullPointerException("children provider completed with null");
+        }
+
+        if (ex != null) {
+            loadingFailed(result, ex);
+        } else {
+            loading.set(false);
+            children.setAll(loadedChildren);
+            result.complete(children);
+        }
+    }
+
+    /*
+     * The failed future stays in place, otherwise the view would immediately call the provider again.
+     */
+    private void loadingFailed(CompletableFuture<List<TreeNode<T>>> result, Throwable ex) {
+        LOG.log(Level.WARNING, "failed to load the children of node " + getValue(), ex);
+        loadingError.set(ex);
+        loading.set(false);
+        result.completeExceptionally(ex);
+    }
+
+    /**
+     * Calls the {@link #childrenProviderProperty() children provider} again if the previous attempt
+     * to load the children failed, otherwise the same as {@link #loadChildren()}.
+     *
+     * @return a future that completes with the children after they have been added to this node
+     */
+    public CompletableFuture<List<TreeNode<T>>> retryLoadingChildren() {
+        if (getLoadingError() != null) {
+            childrenFuture = null;
+            loadingError.set(null);
+        }
+        return loadChildren();
+    }
+
+    /**
+     * @return true if the children of this node still need to be loaded by the children provider
+     */
+    public boolean isChildrenLoadingRequired() {
+        return getChildrenProvider() != null && (childrenFuture == null || isLoading());
+    }
+
+    private static void runOnFxThread(Runnable runnable) {
+        if (Platform.isFxApplicationThread()) {
+            runnable.run();
+        } else {
+            Platform.runLater(runnable);
+        }
+    }
+
     private final ObjectProperty<T> value = new SimpleObjectProperty<>(this, "value", null);
 
     public T getValue() {
@@ -172,10 +367,11 @@ public class TreeNode<T> {
     }
 
     /**
-     * @return true: if the node is a leaf node
+     * @return true: if the node is a leaf node, nodes with children that still need to be loaded
+     * by the {@link #childrenProviderProperty() children provider} (or failed to load) are no leaf nodes
      */
     public boolean isLeaf() {
-        return this.children.isEmpty();
+        return this.children.isEmpty() && !isChildrenLoadingRequired() && getLoadingError() == null;
     }
 
     /**
@@ -184,17 +380,47 @@ public class TreeNode<T> {
      * @return the depth of the node in the tree
      */
     public int getDepth() {
-        if (this.getParent() == null) {
-            return 0;
-        } else {
-            return 1 + this.getParent().getDepth();
-        }
+        return depth;
     }
 
     public int getLevel() {
         return getDepth();
     }
 
+    /**
+     * @return the position of this node in the children list of its parent, -1 if the node has no parent
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of nodes of the subtree starting at this node, including the node itself
+     */
+    public int getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    /*
+     * The depth of the node changed (new parent), the depth of all descendants changes as well.
+     */
+    private void updateDepth() {
+        Deque<TreeNode<T>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            TreeNode<T> node = stack.pop();
+            TreeNode<T> parentNode = node.getParent();
+            node.depth = parentNode == null ? 0 : parentNode.depth + 1;
+            node.children.forEach(stack::push);
+        }
+    }
+
+    private void updateSubtreeSize(int delta) {
+        for (TreeNode<T> node = this; node != null; node = node.getParent()) {
+            node.subtreeSize += delta;
+        }
+    }
+
     /**
      * If there is no parent node, it is the root node
      *
@@ -218,20 +444,20 @@ public class TreeNode<T> {
      * @return true: if this node is the last node of the parent
      */
     public boolean isLastChild() {
-        if (getParent() == null || getParent().getChildren().isEmpty()) {
+        if (getParent() == null) {
             return false;
         }
-        return this == getParent().getLastChild();
+        return index == getParent().getChildren().size() - 1;
     }
 
     /**
      * @return true: if this node is the first node of the parent
      */
     public boolean isFirstChild() {
-        if (getParent() == null || getParent().getChildren().isEmpty()) {
+        if (getParent() == null) {
             return false;
         }
-        return this == getParent().getFirstChild();
+        return index == 0;
     }
 
     /**
@@ -260,25 +486,76 @@ public class TreeNode<T> {
     }
 
     /**
-     * Convenient for traversing tree nodes.
+     * Convenient for traversing tree nodes. The nodes get visited in breadth-first order,
+     * see {@link #breadthFirstStream()}.
      */
     public Stream<TreeNode<T>> stream() {
-        return StreamSupport.stream(new TreeNodeSpliterator<>(this), false);
+        return breadthFirstStream();
     }
 
-    private static class TreeNodeSpliterator<T> implements Spliterator<TreeNode<T>> {
-        private final Queue<TreeNode<T>> queue = new LinkedList<>();
+    /**
+     * Returns a stream of this node and all of its descendants, level by level (breadth-first).
+     * The stream knows its size and can be split for parallel processing, however the parts
+     * handed to other threads are smaller than the ones of the {@link #depthFirstStream()}, which
+     * makes the depth-first stream the better choice for parallel processing. The tree must not
+     * be modified while the stream is being consumed.
+     *
+     * @return a stream of the nodes of this subtree in breadth-first order
+     */
+    public Stream<TreeNode<T>> breadthFirstStream() {
+        return StreamSupport.stream(new BreadthFirstSpliterator<>(this), false);
+    }
+
+    /**
+     * Returns a stream of this node and all of its descendants, each node followed by the subtrees
+     * of its children (depth-first, pre-order). The stream knows its size and splits by handing off
+     * whole subtrees, so parallel streams (e.g. for searching or aggregating the values of very large
+     * trees) can make use of all cores. The tree must not be modified while the stream is being consumed.
+     *
+     * @return a stream of the nodes of this subtree in depth-first order
+     */
+    public Stream<TreeNode<T>> depthFirstStream() {
+        return StreamSupport.stream(new DepthFirstSpliterator<>(null, this), false);
+    }
+
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.DISTINCT;
 
-        TreeNodeSpliterator(TreeNode<T> root) {
+    /*
+     * The remaining nodes are the subtrees of the nodes in the queue. A split hands off the first half
+     * of the queue (without their children), the children of these nodes get queued behind the other
+     * half, which keeps the breadth-first order.
+     */
+    private static class BreadthFirstSpliterator<T> implements Spliterator<TreeNode<T>> {
+
+        private final Deque<TreeNode<T>> queue;
+        private final boolean descend;
+        private long size;
+
+        BreadthFirstSpliterator(TreeNode<T> root) {
+            queue = new ArrayDeque<>();
             queue.add(root);
+            descend = true;
+            size = root.getSubtreeSize();
+        }
+
+        /*
+         * Only visits the given nodes, not their children.
+         */
+        private BreadthFirstSpliterator(Deque<TreeNode<T>> queue) {
+            this.queue = queue;
+            this.descend = false;
+            this.size = queue.size();
         }
 
         @Override
         public boolean tryAdvance(Consumer<? super TreeNode<T>> action) {
             TreeNode<T> node = queue.poll();
             if (node != null) {
+                if (descend) {
+                    queue.addAll(node.getChildren());
+                }
+                size--;
                 action.accept(node);
-                queue.addAll(node.getChildren());
                 return true;
             }
             return false;
@@ -286,17 +563,121 @@ public class TreeNode<T> {
 
         @Override
         public Spliterator<TreeNode<T>> trySplit() {
-            return null;
+            int count = queue.size() / 2;
+            if (count == 0) {
+                return null;
+            }
+
+            Deque<TreeNode<T>> prefix = new ArrayDeque<>(count);
+            List<TreeNode<T>> children = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                TreeNode<T> node = queue.poll();
+                prefix.add(node);
+                if (descend) {
+                    children.addAll(node.getChildren());
+                }
+            }
+            queue.addAll(children);
+            size -= count;
+            return new BreadthFirstSpliterator<>(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /*
+     * The remaining nodes are the optional head node (without its children) followed by the subtrees
+     * of the nodes on the stack. A split hands off the subtrees at the top of the stack, a single subtree
+     * gets split into its root and the subtrees of its children.
+     */
+    private static class DepthFirstSpliterator<T> implements Spliterator<TreeNode<T>> {
+
+        private final Deque<TreeNode<T>> stack = new ArrayDeque<>();
+        private TreeNode<T> head;
+        private long size;
+
+        DepthFirstSpliterator(TreeNode<T> head, TreeNode<T> root) {
+            this.head = head;
+            if (head != null) {
+                size++;
+            }
+            if (root != null) {
+                stack.push(root);
+                size += root.getSubtreeSize();
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super TreeNode<T>> action) {
+            TreeNode<T> node = head;
+            if (node != null) {
+                head = null;
+            } else {
+                node = stack.poll();
+                if (node == null) {
+                    return false;
+                }
+                List<TreeNode<T>> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+            size--;
+            action.accept(node);
+            return true;
+        }
+
+        @Override
+        public Spliterator<TreeNode<T>> trySplit() {
+            DepthFirstSpliterator<T> prefix = new DepthFirstSpliterator<>(head, null);
+            head = null;
+
+            if (stack.size() == 1 && prefix.head == null) {
+                // split the only subtree into its root and its children
+                TreeNode<T> node = stack.peek();
+                if (node.getChildren().isEmpty()) {
+                    return null;
+                }
+                stack.pop();
+                prefix.head = node;
+                prefix.size++;
+                List<TreeNode<T>> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+
+            // hand off the subtrees at the top of the stack, up to half of the remaining nodes
+            while (stack.size() > 1 && prefix.size < size / 2) {
+                TreeNode<T> node = stack.pop();
+                prefix.stack.addLast(node);
+                prefix.size += node.getSubtreeSize();
+            }
+
+            if (prefix.size == 0) {
+                return null;
+            }
+
+            size -= prefix.size;
+            return prefix;
         }
 
         @Override
         public long estimateSize() {
-            return Long.MAX_VALUE;
+            return size;
         }
 
         @Override
         public int characteristics() {
-            return ORDERED;
+            return CHARACTERISTICS;
         }
     }
 
@@ -1,7 +1,6 @@
 package com.dlsc.gemsfx.treeview;
 
 import javafx.beans.InvalidationListener;
-import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
@@ -26,6 +25,8 @@ public class TreeNodeCell<T> extends BorderPane {
     private static final String DEFAULT_STYLE_CLASS = "tree-node-cell";
     private static final PseudoClass EXPANDED_PSEUDOCLASS_STATE = PseudoClass.getPseudoClass("expanded");
     private static final PseudoClass COLLAPSED_PSEUDOCLASS_STATE = PseudoClass.getPseudoClass("collapsed");
+    private static final PseudoClass LOADING_PSEUDOCLASS_STATE = PseudoClass.getPseudoClass("loading");
+    private static final PseudoClass LOADING_FAILED_PSEUDOCLASS_STATE = PseudoClass.getPseudoClass("loading-failed");
     private InvalidationListener invalidationListener;
     private final Label innerLabel;
     private final StackPane arrowWrapper;
@@ -44,11 +45,10 @@ public class TreeNodeCell<T> extends BorderPane {
         arrowWrapper = new StackPane(arrow);
         arrowWrapper.getStyleClass().setAll("arrow-wrapper");
         arrowWrapper.managedProperty().bind(arrowWrapper.visibleProperty());
-        arrowWrapper.visibleProperty().bind(Bindings.createBooleanBinding(() ->
-                getTreeNode() != null && !getTreeNode().getChildren().isEmpty(), treeNodeProperty()));
+        arrowWrapper.setVisible(false);
 
         arrowWrapper.setOnMousePressed(event -> {
-            if (getTreeNode() != null && !getTreeNode().getChildren().isEmpty()) {
+            if (getTreeNode() != null && !getTreeNode().isLeaf()) {
                 setExpanded(!isExpanded());
             }
             event.consume();
@@ -62,12 +62,18 @@ public class TreeNodeCell<T> extends BorderPane {
             if (oldTreeNode != null && invalidationListener != null) {
                 expandedProperty().unbindBidirectional(oldTreeNode.expandedProperty());
                 oldTreeNode.getChildren().removeListener(invalidationListener);
+                oldTreeNode.loadingProperty().removeListener(invalidationListener);
             }
             if (newTreeNode != null) {
                 expandedProperty().bindBidirectional(newTreeNode.expandedProperty());
-                invalidationListener = it -> updateItem(getItem());
+                invalidationListener = it -> {
+                    updateTreeNodeState();
+                    updateItem(getItem());
+                };
                 newTreeNode.getChildren().addListener(invalidationListener);
+                newTreeNode.loadingProperty().addListener(invalidationListener);
             }
+            updateTreeNodeState();
             updateItem(getItem());
         });
 
@@ -79,6 +85,13 @@ public class TreeNodeCell<T> extends BorderPane {
 
     }
 
+    private void updateTreeNodeState() {
+        TreeNode<T> node = getTreeNode();
+        arrowWrapper.setVisible(node != null && !node.isLeaf());
+        pseudoClassStateChanged(LOADING_PSEUDOCLASS_STATE, node != null && node.isLoading());
+        pseudoClassStateChanged(LOADING_FAILED_PSEUDOCLASS_STATE, node != null && node.getLoadingError() != null);
+    }
+
     public TreeNodeCell(T item) {
         this();
         setItem(item);
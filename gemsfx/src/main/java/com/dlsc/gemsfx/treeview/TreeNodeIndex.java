@@ -0,0 +1,183 @@
+package com.dlsc.gemsfx.treeview;
+
+import javafx.util.Callback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A text index over the names and values of all nodes of a tree (including the nodes of collapsed
+ * subtrees). The index splits the texts into words and keeps them in a sorted array, so finding all
+ * nodes with a word that starts with a given prefix only requires a binary search. The index is a
+ * snapshot, it does not get updated when the tree changes.
+ *
+ * @param <T> the type of the values of the tree nodes
+ * @see TreeNodeView#search(String)
+ */
+public final class TreeNodeIndex<T> {
+
+    private final List<TreeNode<T>> nodes = new ArrayList<>();
+
+    /**
+     * The words of all nodes in ascending order, {@link #tokenNodes} contains the index of the
+     * node each word belongs to.
+     */
+    private final String[] tokens;
+    private final int[] tokenNodes;
+
+    /**
+     * Creates an index over the names and values of the given node and all of its descendants,
+     * the values get converted by calling {@link Object#toString()}.
+     *
+     * @param root the root of the tree
+     */
+    public TreeNodeIndex(TreeNode<T> root) {
+        this(root, value -> value != null ? value.toString() : null);
+    }
+
+    /**
+     * Creates an index over the names and values of the given node and all of its descendants.
+     *
+     * @param root         the root of the tree
+     * @param textProvider returns the text that gets indexed for the value of a node, can return null
+     */
+    public TreeNodeIndex(TreeNode<T> root, Callback<T, String> textProvider) {
+        Objects.requireNonNull(root, "root can not be null");
+        Objects.requireNonNull(textProvider, "text provider can not be null");
+
+        List<Token> tokenList = new ArrayList<>();
+        root.stream().forEach(node -> {
+            int id = nodes.size();
+            nodes.add(node);
+            for (String word : tokenize(node.getName())) {
+                tokenList.add(new Token(word, id));
+            }
+            for (String word : tokenize(textProvider.call(node.getValue()))) {
+                tokenList.add(new Token(word, id));
+            }
+        });
+
+        Token[] sortedTokens = tokenList.toArray(new Token[0]);
+        Arrays.sort(sortedTokens);
+
+        String[] words = new String[sortedTokens.length];
+        int[] ids = new int[sortedTokens.length];
+        int count = 0;
+        for (Token token : sortedTokens) {
+            // the same word can appear several times in the texts of a node
+            if (count > 0 && ids[count - 1] == token.node && words[count - 1].equals(token.word)) {
+                continue;
+            }
+            words[count] = token.word;
+            ids[count] = token.node;
+            count++;
+        }
+
+        tokens = Arrays.copyOf(words, count);
+        tokenNodes = Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Returns the nodes that match the given query. The query gets split into words and a node
+     * matches if every word of the query is the beginning of a word of the name or the value of
+     * the node, ignoring the case. The nodes are returned in breadth-first order.
+     *
+     * @param query the text to search for
+     * @return the matching nodes, an empty list if the query does not contain any words
+     */
+    public List<TreeNode<T>> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordMatches = new BitSet(nodes.size());
+            for (int i = findFirst(word); i < tokens.length && tokens[i].startsWith(word); i++) {
+                wordMatches.set(tokenNodes[i]);
+            }
+
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<TreeNode<T>> result = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of nodes in the index
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /*
+     * Returns the index of the first word that is greater than or equal to the given word.
+     */
+    private int findFirst(String word) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static final class Token implements Comparable<Token> {
+
+        private final String word;
+        private final int node;
+
+        private Token(String word, int node) {
+            this.word = word;
+            this.node = node;
+        }
+
+        @Override
+        public int compareTo(Token other) {
+            int result = word.compareTo(other.word);
+            return result != 0 ? result : Integer.compare(node, other.node);
+        }
+    }
+}
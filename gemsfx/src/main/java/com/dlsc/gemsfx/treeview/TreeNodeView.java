@@ -1,9 +1,17 @@
 package com.dlsc.gemsfx.treeview;
 
 import com.dlsc.gemsfx.treeview.link.LinkStrategy;
+import com.dlsc.gemsfx.treeview.layout.RegularTreeLayout;
+import com.dlsc.gemsfx.treeview.layout.TidyTreeLayout;
+import com.dlsc.gemsfx.treeview.layout.TreeLayoutAlgorithm;
 import com.dlsc.gemsfx.treeview.link.StraightLineLink;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.css.CssMetaData;
 import javafx.css.PseudoClass;
@@ -53,6 +61,8 @@ public class TreeNodeView<T> extends Control {
     public TreeNodeView() {
         getStyleClass().add(DEFAULT_STYLE_CLASS);
         layoutDirection.addListener(it -> activateDirectionPseudoClass());
+        root.addListener(it -> invalidateIndex());
+        searchTextProvider.addListener(it -> invalidateIndex());
     }
 
     public TreeNodeView(TreeNode<T> root) {
@@ -347,6 +357,155 @@ public class TreeNodeView<T> extends Control {
         this.linkStrategy.set(linkStrategy);
     }
 
+    private final BooleanProperty virtualized = new SimpleBooleanProperty(this, "virtualized", false);
+
+    public boolean isVirtualized() {
+        return virtualized.get();
+    }
+
+    /**
+     * Determines whether the view only creates cells and links for the part of the tree that is
+     * currently visible (e.g. inside a scroll pane), plus a margin around it. The layout of the whole
+     * tree is still computed, but the number of cells and links in the scene graph then depends on the
+     * size of the screen instead of the size of the tree. Cells that are scrolled out of view get reused
+     * for other nodes, so cell factories must not rely on a cell always showing the same node.
+     * The default value is false.
+     *
+     * @return true if the view only creates the visible cells and links
+     */
+    public BooleanProperty virtualizedProperty() {
+        return virtualized;
+    }
+
+    public void setVirtualized(boolean virtualized) {
+        this.virtualized.set(virtualized);
+    }
+
+    private final ObjectProperty<TreeLayoutAlgorithm> layoutAlgorithm = new SimpleObjectProperty<>(this, "layoutAlgorithm");
+
+    public TreeLayoutAlgorithm getLayoutAlgorithm() {
+        return layoutAlgorithm.get();
+    }
+
+    /**
+     * The algorithm used for computing the positions of the nodes. If set, this algorithm will be
+     * used instead of the one selected by the {@link #layoutTypeProperty() layout type}, which
+     * allows applications to plug in their own layouts. For large trees the algorithm gets invoked
+     * on a background thread, so it must not access the view or the tree nodes. The default value is null.
+     *
+     * @return the custom layout algorithm
+     * @see RegularTreeLayout
+     * @see TidyTreeLayout
+     */
+    public ObjectProperty<TreeLayoutAlgorithm> layoutAlgorithmProperty() {
+        return layoutAlgorithm;
+    }
+
+    public void setLayoutAlgorithm(TreeLayoutAlgorithm layoutAlgorithm) {
+        this.layoutAlgorithm.set(layoutAlgorithm);
+    }
+
+    private final IntegerProperty prefetchDepth = new SimpleIntegerProperty(this, "prefetchDepth", 0);
+
+    public int getPrefetchDepth() {
+        return prefetchDepth.get();
+    }
+
+    /**
+     * The number of levels below the visible, collapsed nodes whose children get loaded in advance
+     * by their {@link TreeNode#childrenProviderProperty() children providers}, so that expanding
+     * these nodes does not have to wait for the children. A value of zero only loads the children
+     * of expanded nodes. The default value is 0.
+     *
+     * @return the number of levels to prefetch
+     */
+    public IntegerProperty prefetchDepthProperty() {
+        return prefetchDepth;
+    }
+
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth.set(prefetchDepth);
+    }
+
+    private final DoubleProperty cellDetailThreshold = new SimpleDoubleProperty(this, "cellDetailThreshold", 0.25);
+
+    public double getCellDetailThreshold() {
+        return cellDetailThreshold.get();
+    }
+
+    /**
+     * The scale (e.g. caused by zooming out) below which the cells get replaced by simple
+     * rectangles, which get painted in bulk onto canvas tiles. The rectangles can be styled
+     * via the style class "tree-node-proxy". A value of zero always shows the cells. The default
+     * value is 0.25.
+     *
+     * @return the scale below which no cells get shown
+     */
+    public DoubleProperty cellDetailThresholdProperty() {
+        return cellDetailThreshold;
+    }
+
+    public void setCellDetailThreshold(double cellDetailThreshold) {
+        this.cellDetailThreshold.set(cellDetailThreshold);
+    }
+
+    private final DoubleProperty linkDetailThreshold = new SimpleDoubleProperty(this, "linkDetailThreshold", 0.25);
+
+    public double getLinkDetailThreshold() {
+        return linkDetailThreshold.get();
+    }
+
+    /**
+     * The scale (e.g. caused by zooming out) below which the links created by the
+     * {@link #linkStrategyProperty() link strategy} get replaced by straight lines between
+     * the parents and their children, which get painted onto canvas tiles. A value of zero
+     * always uses the link strategy. The default value is 0.25.
+     *
+     * @return the scale below which the links get simplified
+     */
+    public DoubleProperty linkDetailThresholdProperty() {
+        return linkDetailThreshold;
+    }
+
+    public void setLinkDetailThreshold(double linkDetailThreshold) {
+        this.linkDetailThreshold.set(linkDetailThreshold);
+    }
+
+    private final ObjectProperty<LinkRenderMode> linkRenderMode = new SimpleObjectProperty<>(this, "linkRenderMode", LinkRenderMode.NODES);
+
+    public LinkRenderMode getLinkRenderMode() {
+        return linkRenderMode.get();
+    }
+
+    /**
+     * Determines how the links between the nodes get displayed. By default every link consists of
+     * the nodes returned by the {@link #linkStrategyProperty() link strategy}. For large trees the
+     * links can instead be painted onto a few canvas tiles, which keeps the number of nodes in the
+     * scene graph small. The default value is {@link LinkRenderMode#NODES}.
+     *
+     * @return the link render mode
+     */
+    public ObjectProperty<LinkRenderMode> linkRenderModeProperty() {
+        return linkRenderMode;
+    }
+
+    public void setLinkRenderMode(LinkRenderMode linkRenderMode) {
+        this.linkRenderMode.set(linkRenderMode);
+    }
+
+    public enum LinkRenderMode {
+        /**
+         * The nodes created by the link strategy get added to the scene graph.
+         */
+        NODES,
+        /**
+         * The links get painted onto canvas tiles. The styles get resolved once per style class,
+         * links can not be picked (e.g. for tooltips or mouse handlers) and only lines, paths,
+         * curves, circles and regions are supported, other nodes still get added to the scene graph.
+         */
+        CANVAS
+    }
+
     private Node createDefaultPlaceholder() {
         Label label = new Label("No tree root.");
         label.getStyleClass().add("default-placeholder");
@@ -359,7 +518,8 @@ public class TreeNodeView<T> extends Control {
          */
         REGULAR,
         /**
-         * The tree node view will be layout in a compact way. may be narrower.
+         * The tree node view will be layout in a compact way. may be narrower. Parents get centered
+         * above their children and subtrees get moved as closely together as possible (tidy tree).
          */
         COMPACT;
     }
@@ -450,6 +610,95 @@ public class TreeNodeView<T> extends Control {
         }
     }
 
+    private final ObjectProperty<Callback<T, String>> searchTextProvider = new SimpleObjectProperty<>(this, "searchTextProvider", value -> value != null ? value.toString() : null);
+
+    public Callback<T, String> getSearchTextProvider() {
+        return searchTextProvider.get();
+    }
+
+    /**
+     * Returns the text that gets searched for the value of a node (in addition to the name of the
+     * node) by {@link #search(String)}. By default the text is the result of calling
+     * {@link Object#toString()} on the value.
+     *
+     * @return the search text provider
+     */
+    public ObjectProperty<Callback<T, String>> searchTextProviderProperty() {
+        return searchTextProvider;
+    }
+
+    public void setSearchTextProvider(Callback<T, String> searchTextProvider) {
+        this.searchTextProvider.set(searchTextProvider);
+    }
+
+    private TreeNodeIndex<T> index;
+
+    /**
+     * Searches the names and values of all nodes of the tree, including the nodes of collapsed
+     * subtrees. A node matches if every word of the query is the beginning of a word of its name
+     * or value (see {@link #searchTextProviderProperty()}), ignoring the case. The index needed for
+     * the search gets created by the first search and reused until the tree structure changes.
+     * Changes of the names or values of the nodes require a call to {@link #invalidateIndex()}.
+     *
+     * @param query the text to search for
+     * @return the matching nodes in breadth-first order
+     * @see #reveal(List)
+     */
+    public List<TreeNode<T>> search(String query) {
+        if (getRoot() == null) {
+            return Collections.emptyList();
+        }
+
+        if (index == null) {
+            index = new TreeNodeIndex<>(getRoot(), getSearchTextProvider());
+        }
+        return index.search(query);
+    }
+
+    /**
+     * Discards the index used by {@link #search(String)}, the next search creates a new one.
+     */
+    public void invalidateIndex() {
+        index = null;
+    }
+
+    /**
+     * Makes the given node visible by expanding all of its ancestors and scrolls the surrounding
+     * scroll pane (if any) so that the node is centered.
+     *
+     * @param node the node to reveal
+     */
+    public void reveal(TreeNode<T> node) {
+        reveal(List.of(node));
+    }
+
+    /**
+     * Makes the given nodes visible by expanding all of their ancestors, e.g. the results of a
+     * {@link #search(String) search}. All ancestors get expanded in one go, so the tree only gets
+     * laid out once. The surrounding scroll pane (if any) gets scrolled so that the first node
+     * is centered.
+     *
+     * @param nodes the nodes to reveal
+     */
+    public void reveal(List<TreeNode<T>> nodes) {
+        Objects.requireNonNull(nodes, "nodes can not be null");
+
+        Skin<?> skin = getSkin();
+        if (skin instanceof TreeNodeViewSkin) {
+            @SuppressWarnings("unchecked")
+            TreeNodeViewSkin<T> treeNodeSkin = (TreeNodeViewSkin<T>) skin;
+            treeNodeSkin.reveal(nodes);
+        } else {
+            nodes.forEach(TreeNodeView::expandAncestors);
+        }
+    }
+
+    static void expandAncestors(TreeNode<?> node) {
+        for (TreeNode<?> parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            parent.setExpanded(true);
+        }
+    }
+
     private static class StyleableProperties {
 
         public static final CssMetaData<TreeNodeView<?>, HPos> COLUMN_ALIGNMENT =
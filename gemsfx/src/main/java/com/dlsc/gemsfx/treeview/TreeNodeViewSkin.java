@@ -1,59 +1,188 @@
 package com.dlsc.gemsfx.treeview;
 
+import com.dlsc.gemsfx.treeview.layout.RegularTreeLayout;
+import com.dlsc.gemsfx.treeview.layout.TidyTreeLayout;
+import com.dlsc.gemsfx.treeview.layout.TreeLayoutAlgorithm;
+import com.dlsc.gemsfx.treeview.layout.TreeLayoutData;
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.ListChangeListener;
-import javafx.geometry.HPos;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
-import javafx.geometry.VPos;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.control.SkinBase;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Transform;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class TreeNodeViewSkin<T> extends SkinBase<TreeNodeView<T>> {
-    private final Map<TreeNode<T>, InvalidationListener> expandListenerMap = new HashMap<>();
-    private final Map<TreeNode<T>, InvalidationListener> invailidateListenerMap = new HashMap<>();
-    private final Map<TreeNode<T>, ListChangeListener<TreeNode<T>>> childrenListListenerMap = new HashMap<>();
 
-    private final Map<TreeNode<T>, List<Node>> nodeToComponentsMap = new HashMap<>();
+    private static final Logger LOG = Logger.getLogger(TreeNodeViewSkin.class.getName());
+
     /**
-     * The position of the nodes
+     * The distance (in pixels) around the visible area for which cells and links get created in
+     * virtualized mode, so that small scroll movements do not require an update.
      */
-    private final Map<TreeNode<T>, Point2D> nodeToPositionMap = new HashMap<>();
+    private static final double VIEWPORT_MARGIN = 200;
+
+    private static final int MAX_POOLED_CELLS = 200;
+
+    private static final String LOADING_PLACEHOLDER_STYLE_CLASS = "loading-placeholder";
+
+    private static final String PROXY_STYLE_CLASS = "tree-node-proxy";
+
+    private static final TreeLayoutAlgorithm REGULAR_LAYOUT = new RegularTreeLayout();
+
+    private static final TreeLayoutAlgorithm COMPACT_LAYOUT = new TidyTreeLayout();
+
     /**
-     * A map storing the total dimension (either width or height based on the layout direction) of each node.
-     * - For LEFT_TO_RIGHT or RIGHT_TO_LEFT layouts, it represents the total height of a node, which includes the node itself and its maximum subtree height.
-     * - For TOP_TO_BOTTOM or BOTTOM_TO_TOP layouts, it represents the total width of a node, including the node and its maximum subtree width.
-     * The purpose of this map is to dynamically adapt to different layout directions and provide a consistent way to handle node dimensions.
+     * Trees with at least this number of visible nodes get laid out on a background thread.
      */
-    private final Map<TreeNode<T>, Double> nodeTotalDimensionMap = new HashMap<>();
+    private static final int BACKGROUND_LAYOUT_THRESHOLD = 2000;
+
+    private static final ExecutorService LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r);
+        thread.setName("Tree Layout Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
-     * A map storing the maximum dimension (either width or height based on the layout direction) for each level (or depth) in the tree.
-     * - For LEFT_TO_RIGHT or RIGHT_TO_LEFT layouts, it represents the maximum height for a particular depth or level.
-     * - For TOP_TO_BOTTOM or BOTTOM_TO_TOP layouts, it represents the maximum width for a particular depth or level.
-     * This map ensures that nodes on the same level do not overlap and provides consistent spacing across different layout directions.
+     * The bookkeeping of every node of the tree: the listeners attached to the node, its position
+     * and size as computed by the last layout and its cell and links. Placeholder nodes (see
+     * {@link #loadingPlaceholders}) only have a record while they are visible.
      */
-    private final Map<Integer, Double> levelToMaxDimensionMap = new HashMap<>();
+    private final Map<TreeNode<T>, NodeRecord<T>> nodeRecords = new HashMap<>();
 
-    private final List<TreeNode<T>> currentLevelNodesCache = new ArrayList<>();
+    /**
+     * The records of the nodes that have been positioned by the last layout, in breadth-first order.
+     */
+    private List<NodeRecord<T>> positionedRecords = new ArrayList<>();
 
-//    private List<Node> additionalLinkedNodeList = new ArrayList<>();
+    /**
+     * The records of the nodes whose cell or link is currently part of the scene graph. They get reused
+     * when the tree is updated (e.g. after expanding or collapsing a node), only the nodes that appeared
+     * or disappeared cause cells and links to be created or removed.
+     */
+    private final Set<NodeRecord<T>> realizedRecords = new HashSet<>();
+
+    /**
+     * The nodes of the links between a node and its linked nodes (see {@link TreeNode#getLinkedNodes()}).
+     */
+    private final List<Node> additionalLinkNodes = new ArrayList<>();
+
+    /**
+     * The maximum dimension (either width or height based on the layout direction) for each level of the
+     * last layout, indexed by the depth relative to the root.
+     * - For LEFT_TO_RIGHT or RIGHT_TO_LEFT layouts, it represents the maximum width for a particular depth or level.
+     * - For TOP_TO_BOTTOM or BOTTOM_TO_TOP layouts, it represents the maximum height for a particular depth or level.
+     */
+    private double[] levelMaxDimension = new double[0];
 
     private final Group contentGroup = new Group();
 
+    private final Deque<TreeNodeCell<T>> cellPool = new ArrayDeque<>();
+
+    private final Rectangle contentBounds = new Rectangle();
+
+    /**
+     * The area for which cells and links exist in virtualized mode, null if all cells and links exist.
+     */
+    private Bounds realizedBounds;
+
+    /**
+     * Paints the links when the link render mode is {@link TreeNodeView.LinkRenderMode#CANVAS} and the
+     * proxies and simplified links when the view is zoomed out.
+     */
+    private final CanvasLinkRenderer canvasRenderer = new CanvasLinkRenderer(contentGroup);
+
+    /**
+     * True if the scale of the view is below the cell detail threshold, the cells get replaced by proxies.
+     */
+    private boolean proxyCells;
+
+    /**
+     * True if the scale of the view is below the link detail threshold, the links get replaced by straight lines.
+     */
+    private boolean simplifiedLinks;
+
+    /**
+     * Incremented for every layout request, used for discarding the results of outdated background layouts.
+     */
+    private final AtomicInteger layoutGeneration = new AtomicInteger();
+
+    /**
+     * The placeholders shown as the only child of expanded nodes whose children are being loaded.
+     */
+    private final Map<TreeNode<T>, TreeNode<T>> loadingPlaceholders = new HashMap<>();
+
+    private boolean updatesSuspended;
+
+    private boolean updatePending;
+
+    /**
+     * The node that should be scrolled into view as soon as it has been laid out, see {@link #reveal(List)}.
+     */
+    private TreeNode<T> revealedNode;
+
     public TreeNodeViewSkin(TreeNodeView<T> view) {
         super(view);
         contentGroup.getStyleClass().add("tree-content");
         getChildren().add(contentGroup);
 
+        contentBounds.setFill(null);
+        contentBounds.setStroke(null);
+        contentBounds.setMouseTransparent(true);
+        contentBounds.setManaged(false);
+
+        InvalidationListener viewportListener = it -> updateViewport();
+        contentGroup.localToSceneTransformProperty().addListener(it -> {
+            // validate the transform again, otherwise no further invalidation events will be received
+            contentGroup.getLocalToSceneTransform();
+            updateLevelOfDetail();
+            updateViewport();
+        });
+        view.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.widthProperty().removeListener(viewportListener);
+                oldScene.heightProperty().removeListener(viewportListener);
+            }
+            if (newScene != null) {
+                newScene.widthProperty().addListener(viewportListener);
+                newScene.heightProperty().addListener(viewportListener);
+            }
+            // the styles of the links can only be resolved while the view is part of a scene
+            canvasRenderer.refresh();
+            updateViewport();
+        });
+        if (view.getScene() != null) {
+            view.getScene().widthProperty().addListener(viewportListener);
+            view.getScene().heightProperty().addListener(viewportListener);
+        }
+
         initTree();
         view.rootProperty().addListener((ob, ov, newRoot) -> initTree());
 
@@ -70,6 +199,12 @@ public class TreeNodeViewSkin<T> extends SkinBase<TreeNodeView<T>> {
         view.columnAlignmentProperty().addListener(buildTreeListener);
         view.linkStrategyProperty().addListener(buildTreeListener);
         view.layoutDirectionProperty().addListener(buildTreeListener);
+        view.virtualizedProperty().addListener(buildTreeListener);
+        view.layoutAlgorithmProperty().addListener(buildTreeListener);
+        view.linkRenderModeProperty().addListener(buildTreeListener);
+        view.prefetchDepthProperty().addListener(it -> updateTree());
+        view.cellDetailThresholdProperty().addListener(it -> updateLevelOfDetail());
+        view.linkDetailThresholdProperty().addListener(it -> updateLevelOfDetail());
         view.placeholderProperty().addListener((ob, ov, nv) -> {
             if (view.getRoot() == null) {
                 contentGroup.getChildren().setAll(nv);
@@ -78,66 +213,83 @@ public class TreeNodeViewSkin<T> extends SkinBase<TreeNodeView<T>> {
     }
 
     private void initTree() {
-        buildTree();
+        // the listeners of the previous root are no longer needed, its cells and links get removed by buildTree()
+        nodeRecords.values().forEach(this::detachListeners);
+        nodeRecords.clear();
         initNodeListeners();
+        buildTree();
     }
 
     private void addListenersToNode(TreeNode<T> node) {
-        // Create and store the expansion listener
-        InvalidationListener expandListener = createExpandListener(node);
-        expandListenerMap.put(node, expandListener);
-        node.expandedProperty().addListener(expandListener);
-
-        // Create and store the invalidation listener
-        InvalidationListener invalidationListener = it -> buildTree();
-        invailidateListenerMap.put(node, invalidationListener);
+        NodeRecord<T> record = nodeRecords.computeIfAbsent(node, NodeRecord::new);
+        if (record.invalidationListener != null) {
+            // already tracked
+            return;
+        }
 
+        InvalidationListener invalidationListener = it -> updateTree();
+        node.expandedProperty().addListener(invalidationListener);
         node.getChildren().addListener(invalidationListener);
         node.widthProperty().addListener(invalidationListener);
         node.heightProperty().addListener(invalidationListener);
         node.getLinkedNodes().addListener(invalidationListener);
+        node.loadingProperty().addListener(invalidationListener);
 
         // Add listeners to the new nodes (if any) and remove listeners from removed nodes (if any) when they are added/removed to/from the children list.
-        ListChangeListener<TreeNode<T>> nodeListChangeListener = createNodeListChangeListener();
-        childrenListListenerMap.put(node, nodeListChangeListener);
-        node.getChildren().addListener(nodeListChangeListener);
-        node.getLinkedNodes().addListener(nodeListChangeListener);
+        ListChangeListener<TreeNode<T>> childrenListener = createNodeListChangeListener();
+        node.getChildren().addListener(childrenListener);
 
+        record.invalidationListener = invalidationListener;
+        record.childrenListener = childrenListener;
     }
 
     private void removeListenersFromNode(TreeNode<T> removedNode) {
-        InvalidationListener expandListener = expandListenerMap.remove(removedNode);
-        if (expandListener != null) {
-            removedNode.expandedProperty().removeListener(expandListener);
+        NodeRecord<T> record = nodeRecords.remove(removedNode);
+        if (record == null) {
+            return;
         }
 
-        InvalidationListener invalidationListener = invailidateListenerMap.remove(removedNode);
-        if (invalidationListener != null) {
-            removedNode.getChildren().removeListener(invalidationListener);
-            removedNode.widthProperty().removeListener(invalidationListener);
-            removedNode.heightProperty().removeListener(invalidationListener);
-            removedNode.getLinkedNodes().removeListener(invalidationListener);
+        detachListeners(record);
+        record.positioned = false;
+        if (realizedRecords.remove(record)) {
+            Set<Node> nodes = new HashSet<>();
+            record.collectNodes(nodes);
+            nodes.removeIf(canvasRenderer::remove);
+            canvasRenderer.render();
+            contentGroup.getChildren().removeAll(nodes);
+            record.cell = null;
+            record.proxy = null;
+            record.links = null;
         }
+    }
 
-        ListChangeListener<TreeNode<T>> nodeListChangeListener = childrenListListenerMap.remove(removedNode);
-        if (nodeListChangeListener != null) {
-            removedNode.getChildren().removeListener(nodeListChangeListener);
-            removedNode.getLinkedNodes().removeListener(nodeListChangeListener);
+    private void detachListeners(NodeRecord<T> record) {
+        if (record.invalidationListener == null) {
+            return;
         }
 
-        nodeToComponentsMap.remove(removedNode);
-        nodeToPositionMap.remove(removedNode);
-        nodeTotalDimensionMap.remove(removedNode);
+        TreeNode<T> node = record.node;
+        node.expandedProperty().removeListener(record.invalidationListener);
+        node.getChildren().removeListener(record.invalidationListener);
+        node.widthProperty().removeListener(record.invalidationListener);
+        node.heightProperty().removeListener(record.invalidationListener);
+        node.getLinkedNodes().removeListener(record.invalidationListener);
+        node.loadingProperty().removeListener(record.invalidationListener);
+        node.getChildren().removeListener(record.childrenListener);
+        record.invalidationListener = null;
+        record.childrenListener = null;
     }
 
     private ListChangeListener<TreeNode<T>> createNodeListChangeListener() {
         return (ListChangeListener.Change<? extends TreeNode<T>> c) -> {
+            getSkinnable().invalidateIndex();
             while (c.next()) {
-                if (c.wasAdded()) {
-                    c.getAddedSubList().forEach(this::addListenersToNode);
-                }
+                // removed nodes first, a node can be removed and added again within the same change (e.g. when sorting)
                 if (c.wasRemoved()) {
-                    c.getRemoved().forEach(this::removeListenersFromNode);
+                    c.getRemoved().forEach(child -> child.stream().forEach(this::removeListenersFromNode));
+                }
+                if (c.wasAdded()) {
+                    c.getAddedSubList().forEach(child -> child.stream().forEach(this::addListenersToNode));
                 }
             }
         };
@@ -151,569 +303,728 @@ public class TreeNodeViewSkin<T> extends SkinBase<TreeNodeView<T>> {
         rootNode.stream().forEach(this::addListenersToNode);
     }
 
-    private InvalidationListener createExpandListener(TreeNode<T> node) {
-        return it -> {
-            toggleChildrenVisibility(node, node.isExpanded(), true);
-            if (node.isExpanded()) {
-                drawNode(node);
-            }
-        };
-    }
-
+    /**
+     * Discards all cells and links and creates them again, e.g. because the cell factory or the
+     * link strategy has changed.
+     */
     private void buildTree() {
         TreeNode<T> root = getSkinnable().getRoot();
         contentGroup.getChildren().clear();
-        clearMapsForBuild();
+        additionalLinkNodes.clear();
+        cellPool.clear();
+        clearRecordsForBuild();
+        canvasRenderer.clear();
+        computeLevelOfDetail();
 
         if (root != null) {
-            calculatePositions(root);
-            drawNode(root);
-            drawAdditionalLinkedNodes();
+            updateTree();
         } else {
             contentGroup.getChildren().setAll(getSkinnable().getPlaceholder());
         }
     }
 
-    private void calculatePositions(TreeNode<T> root) {
-        if (getSkinnable().getLayoutType() == TreeNodeView.LayoutType.REGULAR) {
-            positionNodesRegular(root);
-        } else {
-            positionNodesCompact(root);
-        }
-    }
-
-    private void positionNodesCompact(TreeNode<T> root) {
-        computeAndCacheNodeDimension(root);
+    /**
+     * Creates a flat, breadth-first snapshot of the visible nodes. The snapshot contains everything
+     * the layout algorithm needs (structure, sizes and settings), so the layout can be computed
+     * without accessing the tree nodes or the view.
+     */
+    private LayoutSnapshot<T> createSnapshot(TreeNode<T> root) {
+        TreeNodeView<T> view = getSkinnable();
 
-        TreeNodeView.LayoutDirection layoutDirection = getSkinnable().getLayoutDirection();
-        if (layoutDirection == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT || layoutDirection == TreeNodeView.LayoutDirection.RIGHT_TO_LEFT) {
-            positionNodesCompactHorizontally(root, findMaxColumnHeight(root), layoutDirection);
-        } else {
-            positionNodesCompactVertically(root, findMaxRowWidth(root), layoutDirection);
-        }
-    }
+        // the subtree size also counts collapsed nodes, so start with the size of the previous layout and grow as needed
+        int capacity = Math.max(16, positionedRecords.size() + 1);
+        List<TreeNode<T>> nodes = new ArrayList<>(capacity);
+        int[] parent = new int[capacity];
+        Map<TreeNode<T>, TreeNode<T>> placeholders = new HashMap<>();
+        nodes.add(root);
+        parent[0] = -1;
+        for (int i = 0; i < nodes.size(); i++) {
+            TreeNode<T> node = nodes.get(i);
+            if (!node.isExpanded()) {
+                continue;
+            }
 
-    /**
-     * Calculate the width of the widest row/level in the tree.
-     */
-    private double findMaxRowWidth(TreeNode<T> root) {
-        Queue<TreeNode<T>> queue = new LinkedList<>();
-        queue.offer(root);
-        double maxRowWidth = 0;
-        while (!queue.isEmpty()) {
-            int size = queue.size();
-            double currentRowWidth = 0;
-            for (int i = 0; i < size; i++) {
-                TreeNode<T> node = queue.poll();
-                if (node == null) {
-                    continue;
-                }
-                currentRowWidth += computeNodeWidth(node);
-                if (node.isExpanded()) {
-                    for (TreeNode<T> child : node.getChildren()) {
-                        queue.offer(child);
-                    }
+            List<TreeNode<T>> children = node.getChildren();
+            if (children.isEmpty() && node.isLoading()) {
+                // shown in place of the children until they are loaded
+                TreeNode<T> placeholder = loadingPlaceholders.get(node);
+                if (placeholder == null) {
+                    placeholder = new TreeNode<>();
+                    placeholder.setParent(node);
                 }
+                placeholders.put(node, placeholder);
+                children = List.of(placeholder);
             }
-            // Add the horizontal gaps
-            currentRowWidth += (size - 1) * getSkinnable().getHgap();
-            maxRowWidth = Math.max(maxRowWidth, currentRowWidth);
-        }
-        return maxRowWidth;
-    }
-
-    private double findMaxColumnHeight(TreeNode<T> root) {
-        Queue<TreeNode<T>> queue = new LinkedList<>();
-        queue.offer(root);
-        double maxColumnHeight = 0;
-        while (!queue.isEmpty()) {
-            int size = queue.size();
-            double currentColumnHeight = 0;
-            for (int i = 0; i < size; i++) {
-                TreeNode<T> node = queue.poll();
-                if (node == null) {
-                    continue;
-                }
-                currentColumnHeight += computeNodeHeight(node);
-                if (node.isExpanded()) {
-                    for (TreeNode<T> child : node.getChildren()) {
-                        queue.offer(child);
-                    }
+
+            for (TreeNode<T> child : children) {
+                if (nodes.size() == parent.length) {
+                    parent = Arrays.copyOf(parent, parent.length * 2);
                 }
+                parent[nodes.size()] = i;
+                nodes.add(child);
             }
-            // Add the vertical gaps
-            currentColumnHeight += (size - 1) * getSkinnable().getVgap();
-            maxColumnHeight = Math.max(maxColumnHeight, currentColumnHeight);
         }
-        return maxColumnHeight;
+        loadingPlaceholders.clear();
+        loadingPlaceholders.putAll(placeholders);
+
+        int size = nodes.size();
+        double[] width = new double[size];
+        double[] height = new double[size];
+        for (int i = 0; i < size; i++) {
+            width[i] = computeNodeWidth(nodes.get(i));
+            height[i] = computeNodeHeight(nodes.get(i));
+        }
+
+        TreeLayoutData data = new TreeLayoutData(size, parent, width, height, view.getLayoutDirection(), view.getHgap(), view.getVgap(),
+                view.getNodeLineGap(), view.getRowAlignment(), view.getColumnAlignment());
+        return new LayoutSnapshot<>(nodes, data);
     }
 
-    private void drawNode(TreeNode<T> node) {
-        TreeNodeView<T> view = getSkinnable();
-        if (!nodeToPositionMap.containsKey(node)) {
-            calculatePositions(view.getRoot());
+    /**
+     * Stores the positions and sizes of the given snapshot in the records of the nodes.
+     */
+    private void applyPositions(LayoutSnapshot<T> snapshot) {
+        List<NodeRecord<T>> previousRecords = positionedRecords;
+        previousRecords.forEach(record -> record.positioned = false);
+
+        TreeLayoutData data = snapshot.data;
+        List<NodeRecord<T>> records = new ArrayList<>(data.getSize());
+        for (int i = 0; i < data.getSize(); i++) {
+            NodeRecord<T> record = nodeRecords.computeIfAbsent(snapshot.nodes.get(i), NodeRecord::new);
+            record.positioned = true;
+            record.parent = i == 0 ? null : records.get(data.getParent(i));
+            record.depth = data.getDepth(i);
+            record.x = data.getX(i);
+            record.y = data.getY(i);
+            record.width = data.getWidth(i);
+            record.height = data.getHeight(i);
+            records.add(record);
         }
+        positionedRecords = records;
 
-        Point2D point = nodeToPositionMap.get(node);
-        if (point == null) {
-            return;
+        levelMaxDimension = new double[data.getLevelCount()];
+        for (int level = 0; level < levelMaxDimension.length; level++) {
+            levelMaxDimension[level] = data.getMaxDimension(level);
         }
 
-        TreeNodeCell<T> cell = view.getCellFactory().call(node.getValue());
-        cell.setTreeNode(node);
-        cell.setPrefSize(computeNodeWidth(node), computeNodeHeight(node));
-        cell.setLayoutX(point.getX());
-        cell.setLayoutY(point.getY());
-        contentGroup.getChildren().add(cell);
+        previousRecords.forEach(this::discardIfUnused);
+    }
 
-        TreeNode<T> parent = node.getParent();
-        if (parent != null) {
-            Point2D parentPoint = nodeToPositionMap.get(parent);
-            if (parentPoint == null) {
-                return;
+    /*
+     * Records without listeners (e.g. of loading placeholders) only get kept while they are needed.
+     */
+    private void discardIfUnused(NodeRecord<T> record) {
+        if (!record.positioned && record.invalidationListener == null && record.cell == null && record.proxy == null && record.links == null) {
+            nodeRecords.remove(record.node, record);
+        }
+    }
+
+    private TreeLayoutAlgorithm getLayoutAlgorithm() {
+        TreeNodeView<T> view = getSkinnable();
+        if (view.getLayoutAlgorithm() != null) {
+            return view.getLayoutAlgorithm();
+        }
+        return view.getLayoutType() == TreeNodeView.LayoutType.REGULAR ? REGULAR_LAYOUT : COMPACT_LAYOUT;
+    }
+
+    /**
+     * Creates or updates the cell and the link of the given node. In virtualized mode cells and links
+     * outside of the realized area get released.
+     */
+    private void drawNode(NodeRecord<T> record, Set<Node> addedNodes, Set<Node> removedNodes) {
+        boolean realized = isRealized(record.x, record.y, record.width, record.height);
+        if (realized && proxyCells) {
+            if (record.cell != null) {
+                releaseCell(record.cell, removedNodes);
+                record.cell = null;
             }
-            List<Node> nodes = view.getLinkStrategy().drawNodeLink(getSkinnable().getLayoutDirection(), levelToMaxDimensionMap.get(node.getLevel()), parent, parentPoint, computeNodeWidth(parent), computeNodeHeight(parent), node, point, computeNodeWidth(node), computeNodeHeight(node), view.getNodeLineGap(), view.getVgap(), view.getHgap());
-            if (parent.getName() != null && node.getName() != null) {
-                nodes.forEach(n -> n.getStyleClass().add("link-" + parent.getName() + "-" + node.getName()));
+            drawProxy(record);
+        } else if (realized) {
+            removeProxy(record);
+            if (record.cell == null) {
+                record.cell = createCell(record.node);
+                addedNodes.add(record.cell);
             }
 
-            contentGroup.getChildren().addAll(nodes);
-            nodes.add(cell);
-            nodeToComponentsMap.put(node, nodes);
+            TreeNodeCell<T> cell = record.cell;
+            cell.setPrefSize(record.width, record.height);
+            cell.setLayoutX(record.x);
+            cell.setLayoutY(record.y);
         } else {
-            nodeToComponentsMap.put(node, List.of(cell));
+            if (record.cell != null) {
+                releaseCell(record.cell, removedNodes);
+                record.cell = null;
+            }
+            removeProxy(record);
         }
 
-        for (TreeNode<T> child : node.getChildren()) {
-            if (node.isExpanded()) {
-                drawNode(child);
+        NodeRecord<T> parent = record.parent;
+        if (parent != null) {
+            if (isLinkRealized(parent, record)) {
+                drawLink(parent, record, addedNodes, removedNodes);
+            } else if (record.links != null) {
+                removeLinks(record.links, removedNodes);
+                record.links = null;
             }
         }
+
+        if (record.cell != null || record.proxy != null || record.links != null) {
+            realizedRecords.add(record);
+        } else {
+            realizedRecords.remove(record);
+        }
     }
 
-    private void positionNodesRegular(TreeNode<T> root) {
-        nodeToPositionMap.clear();
-        levelToMaxDimensionMap.clear();
-        computeAndCacheNodeDimension(root);
-        TreeNodeView.LayoutDirection layoutDirection = getSkinnable().getLayoutDirection();
-        if (layoutDirection == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT || layoutDirection == TreeNodeView.LayoutDirection.RIGHT_TO_LEFT) {
-            positionNodesRegularHorizontally(root, 0, 0, layoutDirection);
+    /*
+     * Proxies are rectangles painted by the canvas renderer, they never become part of the scene graph.
+     */
+    private void drawProxy(NodeRecord<T> record) {
+        Rectangle proxy = record.proxy;
+        if (proxy == null) {
+            proxy = new Rectangle();
+            proxy.getStyleClass().add(PROXY_STYLE_CLASS);
+            record.proxy = proxy;
+        } else if (proxy.getX() == record.x && proxy.getY() == record.y && proxy.getWidth() == record.width && proxy.getHeight() == record.height) {
+            return;
         } else {
-            positionNodesRegularVertically(root, 0, 0, layoutDirection);
+            canvasRenderer.remove(proxy);
         }
+
+        proxy.setX(record.x);
+        proxy.setY(record.y);
+        proxy.setWidth(record.width);
+        proxy.setHeight(record.height);
+        canvasRenderer.add(proxy);
     }
 
-    private void positionNodesCompactVertically(TreeNode<T> root, double maxRowWidth, TreeNodeView.LayoutDirection direction) {
-        Queue<TreeNode<T>> queue = new LinkedList<>();
-        queue.offer(root);
-        double currentPositionY = 0;
+    private void removeProxy(NodeRecord<T> record) {
+        if (record.proxy != null) {
+            canvasRenderer.remove(record.proxy);
+            record.proxy = null;
+        }
+    }
 
-        double hgap = getSkinnable().getHgap();
-        double vgap = getSkinnable().getVgap();
-        double nodeLineGaps = getSkinnable().getNodeLineGap() * 2;
-        VPos alignment = getSkinnable().getRowAlignment();
+    private TreeNodeCell<T> createCell(TreeNode<T> node) {
+        if (node.getParent() != null && loadingPlaceholders.get(node.getParent()) == node) {
+            TreeNodeCell<T> cell = new TreeNodeCell<>();
+            cell.getStyleClass().add(LOADING_PLACEHOLDER_STYLE_CLASS);
+            cell.setTreeNode(node);
+            cell.setText("Loading...");
+            return cell;
+        }
 
-        while (!queue.isEmpty()) {
-            int size = queue.size();
-            double currentRowWidth = 0;
-            double currentLevelMaxHeight = 0;
-            double currentLevelTotalHeight;
+        TreeNodeCell<T> cell = cellPool.poll();
+        if (cell == null) {
+            cell = getSkinnable().getCellFactory().call(node.getValue());
+        } else {
+            cell.setItem(node.getValue());
+        }
+        cell.setTreeNode(node);
+        return cell;
+    }
 
-            currentLevelNodesCache.clear();
+    private void releaseCell(TreeNodeCell<T> cell, Set<Node> removedNodes) {
+        removedNodes.add(cell);
+        if (getSkinnable().isVirtualized() && cellPool.size() < MAX_POOLED_CELLS && !cell.getStyleClass().contains(LOADING_PLACEHOLDER_STYLE_CLASS)) {
+            cell.setTreeNode(null);
+            cellPool.add(cell);
+        }
+    }
 
-            for (int i = 0; i < size; i++) {
-                TreeNode<T> node = queue.poll();
-                if (node == null) {
-                    continue;
-                }
-                currentRowWidth += computeNodeWidth(node);
-                if (i < size - 1) {
-                    currentRowWidth += hgap;
-                }
-                currentLevelMaxHeight = Math.max(currentLevelMaxHeight, computeNodeHeight(node));
-                currentLevelNodesCache.add(node);
-            }
+    /**
+     * Reuses the existing link of a node if the geometry of the link did not change. If the parent and the
+     * child only moved by the same amount then the link nodes simply get translated. Otherwise a new link
+     * gets created by the link strategy.
+     */
+    private void drawLink(NodeRecord<T> parent, NodeRecord<T> record, Set<Node> addedNodes, Set<Node> removedNodes) {
+        TreeNodeView<T> view = getSkinnable();
 
-            currentLevelTotalHeight = currentLevelMaxHeight + vgap + nodeLineGaps;
+        double maxDimensionInLine = levelMaxDimension[record.depth];
 
-            if (direction == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP) {
-                currentPositionY -= currentLevelTotalHeight;
+        if (record.links != null && record.hasSameLinkGeometry(parent, maxDimensionInLine, simplifiedLinks)) {
+            double translateX = record.x - record.linkX;
+            double translateY = record.y - record.linkY;
+            for (Node link : record.links) {
+                if (!canvasRenderer.move(link, translateX, translateY)) {
+                    link.setTranslateX(translateX);
+                    link.setTranslateY(translateY);
+                }
             }
+            return;
+        }
 
-            double currentPositionX = (maxRowWidth - currentRowWidth) / 2;
+        if (record.links != null) {
+            removeLinks(record.links, removedNodes);
+        }
 
-            for (TreeNode<T> node : currentLevelNodesCache) {
-                if (node == null) {
-                    continue;
-                }
+        TreeNode<T> parentNode = parent.node;
+        TreeNode<T> node = record.node;
+        List<Node> links;
+        if (simplifiedLinks) {
+            links = createSimplifiedLink(parent, record);
+        } else {
+            links = view.getLinkStrategy().drawNodeLink(view.getLayoutDirection(), maxDimensionInLine, parentNode, new Point2D(parent.x, parent.y), parent.width, parent.height,
+                    node, new Point2D(record.x, record.y), record.width, record.height, view.getNodeLineGap(), view.getVgap(), view.getHgap());
+        }
+        if (parentNode.getName() != null && node.getName() != null) {
+            links.forEach(n -> n.getStyleClass().add("link-" + parentNode.getName() + "-" + node.getName()));
+        }
 
-                double adjustedYPosition = computeCompactAdjustedYPosition(currentPositionY, currentLevelMaxHeight, computeNodeHeight(node), alignment, direction);
-                nodeToPositionMap.put(node, new Point2D(currentPositionX, adjustedYPosition - (direction == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM ? nodeLineGaps : 0)));
+        record.setLink(links, parent, maxDimensionInLine, simplifiedLinks);
+        addLinks(links, addedNodes);
+    }
 
-                currentPositionX += computeNodeWidth(node);
-                if (!node.equals(currentLevelNodesCache.get(currentLevelNodesCache.size() - 1))) {
-                    currentPositionX += hgap;
-                }
-            }
+    /*
+     * A straight line from the parent to the child, used instead of the link strategy when the view is zoomed out.
+     */
+    private List<Node> createSimplifiedLink(NodeRecord<T> parent, NodeRecord<T> record) {
+        Line line = switch (getSkinnable().getLayoutDirection()) {
+            case TOP_TO_BOTTOM -> new Line(parent.x + parent.width / 2, parent.y + parent.height, record.x + record.width / 2, record.y);
+            case BOTTOM_TO_TOP -> new Line(parent.x + parent.width / 2, parent.y, record.x + record.width / 2, record.y + record.height);
+            case LEFT_TO_RIGHT -> new Line(parent.x + parent.width, parent.y + parent.height / 2, record.x, record.y + record.height / 2);
+            case RIGHT_TO_LEFT -> new Line(parent.x, parent.y + parent.height / 2, record.x + record.width, record.y + record.height / 2);
+        };
+        line.getStyleClass().add("link-line");
+        return List.of(line);
+    }
 
-            if (direction == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM) {
-                currentPositionY += currentLevelTotalHeight;
+    /*
+     * Links get added to the scene graph unless they can be painted by the canvas renderer.
+     */
+    private void addLinks(List<Node> links, Set<Node> addedNodes) {
+        boolean paintOnCanvas = simplifiedLinks || getSkinnable().getLinkRenderMode() == TreeNodeView.LinkRenderMode.CANVAS;
+        for (Node link : links) {
+            if (!paintOnCanvas || !canvasRenderer.add(link)) {
+                addedNodes.add(link);
             }
+        }
+    }
 
-            for (TreeNode<T> node : currentLevelNodesCache) {
-                if (node.isExpanded()) {
-                    for (TreeNode<T> child : node.getChildren()) {
-                        queue.offer(child);
-                    }
-                }
+    private void removeLinks(List<Node> links, Set<Node> removedNodes) {
+        for (Node link : links) {
+            if (!canvasRenderer.remove(link)) {
+                removedNodes.add(link);
             }
         }
     }
 
-    private void positionNodesCompactHorizontally(TreeNode<T> root, double maxColumnHeight, TreeNodeView.LayoutDirection direction) {
-        Queue<TreeNode<T>> queue = new LinkedList<>();
-        queue.offer(root);
-        double currentPositionX = 0;
-        double hgap = getSkinnable().getHgap();
-        double vgap = getSkinnable().getVgap();
-        double nodeColumnGaps = getSkinnable().getNodeLineGap() * 2;
-        HPos alignment = getSkinnable().getColumnAlignment();
+    /*
+     * True if a cell at the given location needs to be part of the scene graph. Always true when the
+     * view is not virtualized.
+     */
+    private boolean isRealized(double x, double y, double width, double height) {
+        return realizedBounds == null || realizedBounds.intersects(x, y, width, height);
+    }
 
-        while (!queue.isEmpty()) {
-            int size = queue.size();
-            double currentColumnHeight = 0;
-            double currentLevelMaxWidth = 0;
-            double currentLevelTotalWidth;
+    private boolean isLinkRealized(NodeRecord<T> source, NodeRecord<T> target) {
+        if (realizedBounds == null) {
+            return true;
+        }
 
-            currentLevelNodesCache.clear();
+        // the link lies within the box spanned by the two cells (plus the gap between cell and link)
+        double gap = getSkinnable().getNodeLineGap();
+        double minX = Math.min(source.x, target.x) - gap;
+        double minY = Math.min(source.y, target.y) - gap;
+        double maxX = Math.max(source.x + source.width, target.x + target.width) + gap;
+        double maxY = Math.max(source.y + source.height, target.y + target.height) + gap;
+        return realizedBounds.intersects(minX, minY, maxX - minX, maxY - minY);
+    }
 
-            for (int i = 0; i < size; i++) {
-                TreeNode<T> node = queue.poll();
-                if (node == null) {
-                    continue;
-                }
-                currentColumnHeight += computeNodeHeight(node);
-                if (i < size - 1) {
-                    currentColumnHeight += vgap;
-                }
-                currentLevelMaxWidth = Math.max(currentLevelMaxWidth, computeNodeWidth(node));
-                currentLevelNodesCache.add(node);
+    /**
+     * Returns the part of the content that is currently visible on screen, e.g. the viewport
+     * of a surrounding scroll pane, or null if it can not be determined.
+     */
+    private Bounds computeVisibleBounds() {
+        TreeNodeView<T> view = getSkinnable();
+        Scene scene = view.getScene();
+        if (scene == null) {
+            return null;
+        }
+
+        double minX = 0;
+        double minY = 0;
+        double maxX = scene.getWidth();
+        double maxY = scene.getHeight();
+
+        // ancestors with a clip (e.g. the viewport of a scroll pane) limit the visible area
+        for (Parent parent = view.getParent(); parent != null; parent = parent.getParent()) {
+            Node clip = parent.getClip();
+            if (clip != null) {
+                Bounds clipBounds = parent.localToScene(clip.getBoundsInParent());
+                minX = Math.max(minX, clipBounds.getMinX());
+                minY = Math.max(minY, clipBounds.getMinY());
+                maxX = Math.min(maxX, clipBounds.getMaxX());
+                maxY = Math.min(maxY, clipBounds.getMaxY());
             }
+        }
 
-            currentLevelTotalWidth = currentLevelMaxWidth + hgap + nodeColumnGaps;
+        if (maxX < minX || maxY < minY) {
+            return new BoundingBox(0, 0, 0, 0);
+        }
 
-            // Adjusting the X position for RIGHT_TO_LEFT direction
-            if (direction == TreeNodeView.LayoutDirection.RIGHT_TO_LEFT) {
-                currentPositionX -= currentLevelTotalWidth;
-            }
+        return contentGroup.sceneToLocal(new BoundingBox(minX, minY, maxX - minX, maxY - minY));
+    }
 
-            double currentPositionY = (maxColumnHeight - currentColumnHeight) / 2;
+    /*
+     * Determines whether cells and links have to be simplified based on the current scale of the
+     * content, returns true if anything changed.
+     */
+    private boolean computeLevelOfDetail() {
+        TreeNodeView<T> view = getSkinnable();
+        Transform transform = contentGroup.getLocalToSceneTransform();
+        double scale = Math.hypot(transform.getMxx(), transform.getMyx());
+
+        boolean newProxyCells = scale < view.getCellDetailThreshold();
+        boolean newSimplifiedLinks = scale < view.getLinkDetailThreshold();
+        boolean changed = newProxyCells != proxyCells || newSimplifiedLinks != simplifiedLinks;
+        proxyCells = newProxyCells;
+        simplifiedLinks = newSimplifiedLinks;
+        return changed;
+    }
 
-            for (TreeNode<T> node : currentLevelNodesCache) {
-                if (node == null) {
-                    continue;
-                }
+    /**
+     * Invoked whenever the scale of the view or the thresholds might have changed. Cells get replaced by
+     * proxies (or the other way round) and links get simplified (or restored) without a new layout.
+     */
+    private void updateLevelOfDetail() {
+        if (computeLevelOfDetail() && getSkinnable().getRoot() != null) {
+            updateScene();
+        }
+    }
 
-                double adjustedXPosition = computeCompactAdjustedXPosition(currentPositionX, currentLevelMaxWidth, computeNodeWidth(node), alignment, direction);
-                nodeToPositionMap.put(node, new Point2D(adjustedXPosition - (direction == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT ? nodeColumnGaps : 0), currentPositionY));
+    /*
+     * Keeps the visible canvas tiles sharp when zoomed in.
+     */
+    private void updateCanvasResolution() {
+        Transform transform = contentGroup.getLocalToSceneTransform();
+        Scene scene = getSkinnable().getScene();
+        double outputScale = scene != null && scene.getWindow() != null ? scene.getWindow().getRenderScaleX() : 1;
+        canvasRenderer.setScale(Math.hypot(transform.getMxx(), transform.getMyx()) * outputScale, computeVisibleBounds());
+    }
 
-                currentPositionY += computeNodeHeight(node);
-                if (!node.equals(currentLevelNodesCache.get(currentLevelNodesCache.size() - 1))) {
-                    currentPositionY += vgap;
-                }
-            }
+    /**
+     * Invoked whenever the visible area might have changed (scrolling, resizing). The cells and links
+     * only get updated when the visible area is no longer covered by the realized area.
+     */
+    private void updateViewport() {
+        updateCanvasResolution();
 
-            // Adjusting the X position for LEFT_TO_RIGHT direction
-            if (direction == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
-                currentPositionX += currentLevelTotalWidth;
-            }
+        if (!getSkinnable().isVirtualized() || getSkinnable().getRoot() == null) {
+            return;
+        }
 
-            for (TreeNode<T> node : currentLevelNodesCache) {
-                if (node.isExpanded()) {
-                    for (TreeNode<T> child : node.getChildren()) {
-                        queue.offer(child);
-                    }
-                }
-            }
+        Bounds visibleBounds = computeVisibleBounds();
+        if (visibleBounds == null || (realizedBounds != null && contains(realizedBounds, visibleBounds))) {
+            return;
         }
+
+        // the positions did not change, only the cells and links need to be updated
+        updateScene();
     }
 
-    private double computeAndCacheNodeDimension(TreeNode<T> node) {
-        TreeNodeView.LayoutDirection direction = getSkinnable().getLayoutDirection();
-        if (direction == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP || direction == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM) {
-            double nodeHeight = computeNodeHeight(node);
-            int level = node.getLevel();
-            levelToMaxDimensionMap.put(level, Math.max(nodeHeight, levelToMaxDimensionMap.getOrDefault(level, 0.0)));
+    private static boolean contains(Bounds outer, Bounds inner) {
+        return outer.getMinX() <= inner.getMinX() && outer.getMinY() <= inner.getMinY()
+                && outer.getMaxX() >= inner.getMaxX() && outer.getMaxY() >= inner.getMaxY();
+    }
 
-            double nodeWidth = computeNodeWidth(node);
-            if (!node.getChildren().isEmpty() && node.isExpanded()) {
-                double childrenTotalWidth = node.getChildren().stream().mapToDouble(this::computeAndCacheNodeDimension).sum()
-                        + getSkinnable().getHgap() * (node.getChildren().size() - 1);
-                nodeWidth = Math.max(nodeWidth, childrenTotalWidth);
+    private void updateRealizedBounds() {
+        realizedBounds = null;
+        if (getSkinnable().isVirtualized()) {
+            Bounds visibleBounds = computeVisibleBounds();
+            if (visibleBounds != null) {
+                realizedBounds = new BoundingBox(visibleBounds.getMinX() - VIEWPORT_MARGIN, visibleBounds.getMinY() - VIEWPORT_MARGIN,
+                        visibleBounds.getWidth() + VIEWPORT_MARGIN * 2, visibleBounds.getHeight() + VIEWPORT_MARGIN * 2);
             }
-            nodeTotalDimensionMap.put(node, nodeWidth);
-            return nodeWidth;
-        } else { // LEFT_TO_RIGHT or RIGHT_TO_LEFT
-            double nodeWidth = computeNodeWidth(node);
-            int level = node.getLevel();
-            levelToMaxDimensionMap.put(level, Math.max(nodeWidth, levelToMaxDimensionMap.getOrDefault(level, 0.0)));
-
-            double nodeHeight = computeNodeHeight(node);
-            if (!node.getChildren().isEmpty() && node.isExpanded()) {
-                double childrenTotalHeight = node.getChildren().stream().mapToDouble(this::computeAndCacheNodeDimension).sum()
-                        + getSkinnable().getVgap() * (node.getChildren().size() - 1);
-                nodeHeight = Math.max(nodeHeight, childrenTotalHeight);
-            }
-            nodeTotalDimensionMap.put(node, nodeHeight);
-            return nodeHeight;
         }
     }
 
-    private void positionNodesRegularVertically(TreeNode<T> node, double x, double y, TreeNodeView.LayoutDirection layoutDirection) {
-        double currentTotalWidth = nodeTotalDimensionMap.get(node);
-        double currentRealWidth = computeNodeWidth(node);
+    /*
+     * In virtualized mode the content group only contains the visible cells, an invisible
+     * rectangle keeps the bounds (and with it the preferred size and the scroll range) stable.
+     */
+    private void updateContentBounds() {
+        if (!getSkinnable().isVirtualized() || positionedRecords.isEmpty()) {
+            contentGroup.getChildren().remove(contentBounds);
+            return;
+        }
 
-        // Calculate the startX based on the total width of this node
-        double startX = x + (currentTotalWidth - currentRealWidth) / 2;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (NodeRecord<T> record : positionedRecords) {
+            minX = Math.min(minX, record.x);
+            minY = Math.min(minY, record.y);
+            maxX = Math.max(maxX, record.x + record.width);
+            maxY = Math.max(maxY, record.y + record.height);
+        }
 
-        int level = node.getLevel();
-        double maxLevelHeight = levelToMaxDimensionMap.get(level);
-        VPos alignment = getSkinnable().getRowAlignment();
-        double adjustedY = computeRegularAdjustedYPosition(y, maxLevelHeight, computeNodeHeight(node), alignment, layoutDirection);
+        contentBounds.setX(minX);
+        contentBounds.setY(minY);
+        contentBounds.setWidth(maxX - minX);
+        contentBounds.setHeight(maxY - minY);
 
-        nodeToPositionMap.put(node, new Point2D(startX, adjustedY));
+        if (!contentGroup.getChildren().contains(contentBounds)) {
+            contentGroup.getChildren().add(0, contentBounds);
+        }
+    }
 
-        // If the node is not expanded, don't position its children
-        if (!node.isExpanded()) {
+    /**
+     * Updates the display of the tree, e.g. after expanding or collapsing a node. The positions get
+     * calculated again, but cells and links of nodes that are still visible get reused. For large trees
+     * the positions get calculated on a background thread and the result gets applied later on, results
+     * of outdated layout runs get discarded.
+     */
+    private void updateTree() {
+        if (updatesSuspended) {
+            updatePending = true;
             return;
         }
 
-        double childrenTotalWidth = 0;
-        for (TreeNode<T> child : node.getChildren()) {
-            childrenTotalWidth += nodeTotalDimensionMap.get(child);
+        TreeNode<T> root = getSkinnable().getRoot();
+        if (root == null) {
+            buildTree();
+            return;
         }
-        // add gaps
-        childrenTotalWidth += getSkinnable().getHgap() * (node.getChildren().size() - 1);
 
-        double childrenStartX;
-        // If the parent node is wider than its children combined
-        if (currentRealWidth > childrenTotalWidth) {
-            childrenStartX = startX + (currentRealWidth - childrenTotalWidth) / 2;
-        } else {
-            childrenStartX = x;
-        }
-        double nextY;
-        if (layoutDirection == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP) {
-            nextY = y - maxLevelHeight - getSkinnable().getVgap() - getSkinnable().getNodeLineGap() * 2;
+        LayoutSnapshot<T> snapshot = createSnapshot(root);
+        TreeLayoutAlgorithm algorithm = getLayoutAlgorithm();
+        int generation = layoutGeneration.incrementAndGet();
+
+        if (snapshot.data.getSize() < BACKGROUND_LAYOUT_THRESHOLD) {
+            algorithm.layout(snapshot.data);
+            applyLayout(snapshot);
         } else {
-            nextY = y + maxLevelHeight + getSkinnable().getVgap() + getSkinnable().getNodeLineGap() * 2;
-        }
-        for (TreeNode<T> child : node.getChildren()) {
-            positionNodesRegularVertically(child, childrenStartX, nextY, layoutDirection);
-            childrenStartX += nodeTotalDimensionMap.get(child) + getSkinnable().getHgap();
+            layoutInBackground(snapshot, algorithm, generation);
         }
+
+        loadChildren(snapshot.nodes);
     }
 
-    private void positionNodesRegularHorizontally(TreeNode<T> node, double x, double y, TreeNodeView.LayoutDirection layoutDirection) {
-        double currentTotalHeight = nodeTotalDimensionMap.get(node);
-        double currentRealHeight = computeNodeHeight(node);
+    private void layoutInBackground(LayoutSnapshot<T> snapshot, TreeLayoutAlgorithm algorithm, int generation) {
+        CompletableFuture.runAsync(() -> {
+            // skip the computation if a newer layout has been requested in the meantime
+            if (generation == layoutGeneration.get()) {
+                algorithm.layout(snapshot.data);
+            }
+        }, LAYOUT_EXECUTOR).whenComplete((result, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                // the algorithm would most likely fail again, so the tree stays as it was
+                LOG.log(Level.WARNING, "failed to compute the layout of the tree", ex);
+                return;
+            }
+            if (generation == layoutGeneration.get()) {
+                applyLayout(snapshot);
+            }
+        }));
+    }
 
-        // Calculate the startY based on the total height of this node
-        double startY = y + (currentTotalHeight - currentRealHeight) / 2;
+    /**
+     * Loads the children of the visible, expanded nodes that have a children provider and prefetches
+     * the children of collapsed nodes (see {@link TreeNodeView#prefetchDepthProperty()}). The updates
+     * caused by the loading nodes get combined into a single update.
+     */
+    private void loadChildren(List<TreeNode<T>> nodes) {
+        int prefetchDepth = getSkinnable().getPrefetchDepth();
 
-        int level = node.getLevel();
-        Double maxLevelWidth = levelToMaxDimensionMap.get(level);
-        HPos alignment = getSkinnable().getColumnAlignment();
-        double adjustedX = computeRegularAdjustedXPosition(x, maxLevelWidth, computeNodeWidth(node), alignment, layoutDirection);
+        updatesSuspended = true;
+        try {
+            for (TreeNode<T> node : nodes) {
+                if (node.isExpanded()) {
+                    if (node.isChildrenLoadingRequired()) {
+                        node.loadChildren();
+                    }
+                } else if (prefetchDepth > 0) {
+                    prefetchChildren(node, prefetchDepth);
+                }
+            }
+        } finally {
+            updatesSuspended = false;
+        }
 
-        nodeToPositionMap.put(node, new Point2D(adjustedX, startY));
+        if (updatePending) {
+            updatePending = false;
+            updateTree();
+        }
+    }
 
-        // If the node is not expanded, don't position its children
-        if (!node.isExpanded()) {
+    private void prefetchChildren(TreeNode<T> node, int depth) {
+        if (node.getChildrenProvider() == null && node.getChildren().isEmpty()) {
             return;
         }
 
-        double childrenTotalHeight = 0;
-        for (TreeNode<T> child : node.getChildren()) {
-            childrenTotalHeight += nodeTotalDimensionMap.get(child);
+        node.loadChildren().thenAccept(children -> {
+            if (depth > 1) {
+                children.forEach(child -> prefetchChildren(child, depth - 1));
+            }
+        });
+    }
+
+    private void applyLayout(LayoutSnapshot<T> snapshot) {
+        if (realizedRecords.isEmpty()) {
+            // e.g. the placeholder was showing before
+            contentGroup.getChildren().clear();
+            canvasRenderer.clear();
         }
-        childrenTotalHeight += getSkinnable().getVgap() * (node.getChildren().size() - 1);
 
-        // Adjust the start position of children so the parent is vertically centered with respect to its children.
-        double childrenStartY = startY + (currentRealHeight / 2) - (childrenTotalHeight / 2);
+        applyPositions(snapshot);
+        updateContentBounds();
+        updateScene();
 
-        double nextX;
-        double nodeLineGaps = getSkinnable().getNodeLineGap() * 2;
-        if (layoutDirection == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
-            if (alignment == HPos.LEFT) {
-                nextX = adjustedX + maxLevelWidth + getSkinnable().getHgap() + nodeLineGaps;
-            } else if (alignment == HPos.CENTER) {
-                double offset = (maxLevelWidth - computeNodeWidth(node)) / 2;
-                nextX = adjustedX + offset + computeNodeWidth(node) + getSkinnable().getHgap() + nodeLineGaps;
-            } else { // HPos.RIGHT
-                nextX = adjustedX + computeNodeWidth(node) + getSkinnable().getHgap() + nodeLineGaps;
-            }
-        } else {  // RIGHT_TO_LEFT
-            if (alignment == HPos.LEFT) {
-                nextX = adjustedX - getSkinnable().getHgap() - nodeLineGaps;
-            } else if (alignment == HPos.CENTER) {
-                double offset = (maxLevelWidth - computeNodeWidth(node)) / 2;
-                nextX = adjustedX - offset - getSkinnable().getHgap() - nodeLineGaps;
-            } else { // HPos.RIGHT
-                nextX = adjustedX - maxLevelWidth + computeNodeWidth(node) - getSkinnable().getHgap() - nodeLineGaps;
-            }
-        }
-        for (TreeNode<T> child : node.getChildren()) {
-            positionNodesRegularHorizontally(child, nextX, childrenStartY, layoutDirection);
-            childrenStartY += nodeTotalDimensionMap.get(child) + getSkinnable().getVgap();
+        if (revealedNode != null) {
+            scrollToRevealedNode();
         }
     }
 
-    private double computeRegularAdjustedXPosition(double x, double maxLevelWidth, double nodeWidth, HPos alignment, TreeNodeView.LayoutDirection direction) {
-        if (direction == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
-            return switch (alignment) {
-                case LEFT -> x;
-                case CENTER -> x + (maxLevelWidth - nodeWidth) / 2;
-                case RIGHT -> x + maxLevelWidth - nodeWidth;
-            };
-        } else { // RIGHT_TO_LEFT
-            return switch (alignment) {
-                case LEFT -> x - maxLevelWidth;
-                case CENTER -> x - (maxLevelWidth + nodeWidth) / 2;
-                case RIGHT -> x - nodeWidth;
-            };
+    /**
+     * Expands the ancestors of the given nodes with a single update of the tree and scrolls to
+     * the first node once it has been laid out.
+     */
+    void reveal(List<TreeNode<T>> nodes) {
+        updatesSuspended = true;
+        try {
+            nodes.forEach(TreeNodeView::expandAncestors);
+        } finally {
+            updatesSuspended = false;
         }
-    }
 
-    private double computeRegularAdjustedYPosition(double y, double maxLevelHeight, double nodeHeight, VPos alignment, TreeNodeView.LayoutDirection layoutDirection) {
-        if (layoutDirection == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM) {
-            return switch (alignment) {
-                case TOP -> y;
-                case CENTER -> y + (maxLevelHeight - nodeHeight) / 2;
-                case BASELINE, BOTTOM -> y + maxLevelHeight - nodeHeight;
-            };
-        } else {
-            return switch (alignment) {
-                case TOP -> y - maxLevelHeight;
-                case CENTER -> y - (maxLevelHeight + nodeHeight) / 2;
-                case BASELINE, BOTTOM -> y - nodeHeight;
-            };
+        revealedNode = nodes.isEmpty() ? null : nodes.get(0);
+        if (updatePending) {
+            updatePending = false;
+            updateTree();
+        } else if (revealedNode != null) {
+            // all nodes were visible already
+            scrollToRevealedNode();
         }
     }
 
-    private double computeCompactAdjustedYPosition(double y, double maxLevelHeight, double nodeHeight, VPos alignment, TreeNodeView.LayoutDirection layoutDirection) {
-        if (layoutDirection == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM) {
-            return switch (alignment) {
-                case TOP -> y;
-                case CENTER -> y + (maxLevelHeight - nodeHeight) / 2;
-                case BASELINE, BOTTOM -> y + maxLevelHeight - nodeHeight;
-            };
-        } else {
-            return switch (alignment) {
-                case TOP -> y;
-                case CENTER -> y + (maxLevelHeight / 2) - (nodeHeight / 2);
-                case BASELINE, BOTTOM -> y + maxLevelHeight - nodeHeight;
-            };
+    /*
+     * Centers the revealed node within the viewport of the closest scroll pane ancestor.
+     */
+    private void scrollToRevealedNode() {
+        NodeRecord<T> record = nodeRecords.get(revealedNode);
+        revealedNode = null;
+        if (record == null || !record.positioned) {
+            return;
         }
+
+        ScrollPane scrollPane = null;
+        for (Parent parent = getSkinnable().getParent(); parent != null && scrollPane == null; parent = parent.getParent()) {
+            if (parent instanceof ScrollPane pane) {
+                scrollPane = pane;
+            }
+        }
+        if (scrollPane == null || scrollPane.getContent() == null) {
+            return;
+        }
+
+        // the size of the content changes with the layout of the tree
+        scrollPane.applyCss();
+        scrollPane.layout();
+
+        Node content = scrollPane.getContent();
+        Bounds bounds = content.getLayoutBounds();
+        Bounds viewportBounds = scrollPane.getViewportBounds();
+        Point2D center = content.sceneToLocal(contentGroup.localToScene(record.x + record.width / 2, record.y + record.height / 2));
+
+        scrollPane.setHvalue(computeScrollValue(center.getX() - bounds.getMinX(), bounds.getWidth(), viewportBounds.getWidth(), scrollPane.getHmin(), scrollPane.getHmax()));
+        scrollPane.setVvalue(computeScrollValue(center.getY() - bounds.getMinY(), bounds.getHeight(), viewportBounds.getHeight(), scrollPane.getVmin(), scrollPane.getVmax()));
     }
 
-    private double computeCompactAdjustedXPosition(double x, double maxLevelWidth, double nodeWidth, HPos alignment, TreeNodeView.LayoutDirection direction) {
-        if (direction == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
-            return switch (alignment) {
-                case LEFT -> x;
-                case CENTER -> x + (maxLevelWidth - nodeWidth) / 2;
-                case RIGHT -> x + maxLevelWidth - nodeWidth;
-            };
-        } else {
-            return switch (alignment) {
-                case LEFT -> x + maxLevelWidth - nodeWidth;
-                case CENTER -> x + (maxLevelWidth / 2) - (nodeWidth / 2);
-                case RIGHT -> x;
-            };
+    private static double computeScrollValue(double center, double contentSize, double viewportSize, double min, double max) {
+        if (contentSize <= viewportSize) {
+            return min;
         }
+
+        double offset = Math.max(0, Math.min(contentSize - viewportSize, center - viewportSize / 2));
+        return min + (max - min) * offset / (contentSize - viewportSize);
     }
 
     /**
-     * Toggle the visibility of the node's children
+     * Creates, reuses or removes cells and links based on the current positions and the realized area.
      */
-    private void toggleChildrenVisibility(TreeNode<T> node, boolean isVisible, boolean updateTreeAfterToggle) {
-        for (TreeNode<T> child : node.getChildren()) {
-            if (!nodeToComponentsMap.containsKey(child)) {
-                drawNode(child);
-            }
-            List<Node> components = nodeToComponentsMap.get(child);
-            if (components != null) {
-                for (Node component : components) {
-                    component.setVisible(isVisible);
-                    component.setManaged(isVisible);
+    private void updateScene() {
+        updateRealizedBounds();
+
+        // remove the cells and links of the nodes that are no longer visible
+        Set<Node> removedNodes = new HashSet<>();
+        removeLinks(additionalLinkNodes, removedNodes);
+        additionalLinkNodes.clear();
+        realizedRecords.removeIf(record -> {
+            if (!record.positioned) {
+                if (record.cell != null) {
+                    releaseCell(record.cell, removedNodes);
+                    record.cell = null;
                 }
+                removeProxy(record);
+                if (record.links != null) {
+                    removeLinks(record.links, removedNodes);
+                    record.links = null;
+                }
+                discardIfUnused(record);
+                return true;
             }
-            if (child.isExpanded()) {
-                // Avoid calling updateTree repeatedly, set updateTreeAfterToggle false here
-                toggleChildrenVisibility(child, isVisible && child.isExpanded(), false);
+            if (record.links != null && record.parent == null) {
+                removeLinks(record.links, removedNodes);
+                record.links = null;
             }
-        }
-        if (updateTreeAfterToggle) {
-            updateTree();
-        }
-    }
+            return false;
+        });
 
-    /**
-     * When expanding or collapsing, the display of the tree needs to be updated
-     */
-    private void updateTree() {
-        contentGroup.getChildren().clear();
-        clearMapsForUpdate();
-        TreeNode<T> root = getSkinnable().getRoot();
-        if (root != null) {
-            calculatePositions(root);
-            drawNode(root);
-            drawAdditionalLinkedNodes();
+        Set<Node> addedNodes = new LinkedHashSet<>();
+        for (NodeRecord<T> record : positionedRecords) {
+            if (record.positioned) {
+                drawNode(record, addedNodes, removedNodes);
+            }
         }
-    }
+        drawAdditionalLinkedNodes(addedNodes);
 
-    private void drawAdditionalLinkedNodes() {
-        TreeNode<T> root = getSkinnable().getRoot();
-        if (root != null) {
-            root.stream().forEach(this::drawLinksForNode);
+        if (!removedNodes.isEmpty()) {
+            contentGroup.getChildren().removeAll(removedNodes);
         }
+        contentGroup.getChildren().addAll(addedNodes);
+
+        canvasRenderer.render();
     }
 
-    private void drawLinksForNode(TreeNode<T> node) {
-        Point2D sourcePosition = nodeToPositionMap.get(node);
-        for (TreeNode<T> linkedNode : node.getLinkedNodes()) {
-            Point2D targetPosition = nodeToPositionMap.get(linkedNode);
-            if (sourcePosition != null && targetPosition != null) {
-                List<Node> nodes = getSkinnable().getLinkStrategy().drawNodeLink(getSkinnable().getLayoutDirection(), levelToMaxDimensionMap.get(node.getLevel()), node, sourcePosition, computeNodeWidth(node), computeNodeHeight(node), linkedNode, targetPosition, computeNodeWidth(linkedNode), computeNodeHeight(linkedNode), getSkinnable().getNodeLineGap(), getSkinnable().getVgap(), getSkinnable().getHgap());
-                if (node.getName() != null && linkedNode.getName() != null) {
-                    nodes.forEach(n -> n.getStyleClass().add("link-extra-" + node.getName() + "-" + linkedNode.getName()));
+    private void drawAdditionalLinkedNodes(Set<Node> addedNodes) {
+        TreeNodeView<T> view = getSkinnable();
+        for (NodeRecord<T> source : positionedRecords) {
+            if (!source.positioned || source.node.getLinkedNodes().isEmpty()) {
+                continue;
+            }
+
+            TreeNode<T> node = source.node;
+            for (TreeNode<T> linkedNode : node.getLinkedNodes()) {
+                NodeRecord<T> target = nodeRecords.get(linkedNode);
+                if (target != null && target.positioned && isLinkRealized(source, target)) {
+                    List<Node> nodes = view.getLinkStrategy().drawNodeLink(view.getLayoutDirection(), levelMaxDimension[source.depth], node, new Point2D(source.x, source.y), source.width, source.height,
+                            linkedNode, new Point2D(target.x, target.y), target.width, target.height, view.getNodeLineGap(), view.getVgap(), view.getHgap());
+                    if (node.getName() != null && linkedNode.getName() != null) {
+                        nodes.forEach(n -> n.getStyleClass().add("link-extra-" + node.getName() + "-" + linkedNode.getName()));
+                    }
+                    addLinks(nodes, addedNodes);
+                    additionalLinkNodes.addAll(nodes);
                 }
-                contentGroup.getChildren().addAll(nodes);
-//                additionalLinkedNodeList.addAll(nodes);
             }
         }
     }
 
     /**
-     * Clear the position information of the nodes; do not clear the listeners
-     */
-    private void clearMapsForUpdate() {
-        nodeToComponentsMap.clear();
-//        additionalLinkedNodeList.clear();
-        nodeToPositionMap.clear();
-        nodeTotalDimensionMap.clear();
-        levelToMaxDimensionMap.clear();
-        currentLevelNodesCache.clear();
-    }
-
-    /**
-     * Clear all maps; (including listeners)
+     * Forgets the positions, cells and links of all nodes; the listeners stay attached.
      */
-    private void clearMapsForBuild() {
-        clearMapsForUpdate();
-        expandListenerMap.clear();
-        invailidateListenerMap.clear();
-        childrenListListenerMap.clear();
+    private void clearRecordsForBuild() {
+        loadingPlaceholders.clear();
+        realizedRecords.forEach(record -> {
+            record.cell = null;
+            record.proxy = null;
+            record.links = null;
+        });
+        realizedRecords.clear();
+        positionedRecords.forEach(record -> record.positioned = false);
+        positionedRecords.forEach(this::discardIfUnused);
+        positionedRecords = new ArrayList<>();
+        levelMaxDimension = new double[0];
     }
 
     public double computeNodeWidth(TreeNode<T> node) {
@@ -747,4 +1058,98 @@ public class TreeNodeViewSkin<T> extends SkinBase<TreeNodeView<T>> {
     public void refresh() {
         buildTree();
     }
-}
\ No newline at end of file
+
+    /**
+     * Everything the skin keeps track of for a single node: the listeners attached to the node, the
+     * position and size computed by the last layout, the cell (or the proxy, when zoomed out) of the node
+     * and the link to its parent together with the geometry that was used for drawing the link. In
+     * virtualized mode the cell and the link can be null if they are outside the realized area.
+     */
+    private static final class NodeRecord<T> {
+
+        private final TreeNode<T> node;
+
+        private InvalidationListener invalidationListener;
+        private ListChangeListener<TreeNode<T>> childrenListener;
+
+        private boolean positioned;
+        private NodeRecord<T> parent;
+        private int depth;
+        private double x;
+        private double y;
+        private double width;
+        private double height;
+
+        private TreeNodeCell<T> cell;
+        private Rectangle proxy;
+
+        private List<Node> links;
+        private boolean linkSimplified;
+        private double linkX;
+        private double linkY;
+        private double linkOffsetX;
+        private double linkOffsetY;
+        private double linkParentWidth;
+        private double linkParentHeight;
+        private double linkWidth;
+        private double linkHeight;
+        private double linkMaxDimensionInLine;
+
+        private NodeRecord(TreeNode<T> node) {
+            this.node = node;
+        }
+
+        private void setLink(List<Node> links, NodeRecord<T> parent, double maxDimensionInLine, boolean simplified) {
+            this.links = links;
+            this.linkSimplified = simplified;
+            this.linkX = x;
+            this.linkY = y;
+            this.linkOffsetX = x - parent.x;
+            this.linkOffsetY = y - parent.y;
+            this.linkParentWidth = parent.width;
+            this.linkParentHeight = parent.height;
+            this.linkWidth = width;
+            this.linkHeight = height;
+            this.linkMaxDimensionInLine = maxDimensionInLine;
+        }
+
+        /*
+         * True if the link only needs to be moved, because the parent and the child kept their sizes
+         * and their position relative to each other.
+         */
+        private boolean hasSameLinkGeometry(NodeRecord<T> parent, double maxDimensionInLine, boolean simplified) {
+            return simplified == linkSimplified
+                    && parent.width == linkParentWidth && parent.height == linkParentHeight
+                    && width == linkWidth && height == linkHeight
+                    && maxDimensionInLine == linkMaxDimensionInLine
+                    && x - parent.x == linkOffsetX && y - parent.y == linkOffsetY;
+        }
+
+        private void collectNodes(Set<Node> nodes) {
+            if (cell != null) {
+                nodes.add(cell);
+            }
+            if (proxy != null) {
+                nodes.add(proxy);
+            }
+            if (links != null) {
+                nodes.addAll(links);
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the visible part of the tree, the indices of the layout data
+     * correspond to the indices of the node list.
+     */
+    private static final class LayoutSnapshot<T> {
+
+        private final List<TreeNode<T>> nodes;
+        private final TreeLayoutData data;
+
+        private LayoutSnapshot(List<TreeNode<T>> nodes, TreeLayoutData data) {
+            this.nodes = nodes;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+
+/**
+ * Base class for the layouts of the {@link TreeNodeView}, provides the alignment of a node
+ * within the row (or column) of its level.
+ */
+public abstract class AbstractTreeLayout implements TreeLayoutAlgorithm {
+
+    /**
+     * Aligns a node inside of its column (left to right and right to left layouts).
+     *
+     * @param x             the start of the column, for right to left layouts the right edge of the column
+     * @param maxLevelWidth the width of the column
+     * @param nodeWidth     the width of the node
+     * @return the x coordinate of the node
+     */
+    protected double computeAdjustedXPosition(double x, double maxLevelWidth, double nodeWidth, HPos alignment, TreeNodeView.LayoutDirection direction) {
+        if (direction == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
+            return switch (alignment) {
+                case LEFT -> x;
+                case CENTER -> x + (maxLevelWidth - nodeWidth) / 2;
+                case RIGHT -> x + maxLevelWidth - nodeWidth;
+            };
+        } else { // RIGHT_TO_LEFT
+            return switch (alignment) {
+                case LEFT -> x - maxLevelWidth;
+                case CENTER -> x - (maxLevelWidth + nodeWidth) / 2;
+                case RIGHT -> x - nodeWidth;
+            };
+        }
+    }
+
+    /**
+     * Aligns a node inside of its row (top to bottom and bottom to top layouts).
+     *
+     * @param y              the start of the row, for bottom to top layouts the bottom edge of the row
+     * @param maxLevelHeight the height of the row
+     * @param nodeHeight     the height of the node
+     * @return the y coordinate of the node
+     */
+    protected double computeAdjustedYPosition(double y, double maxLevelHeight, double nodeHeight, VPos alignment, TreeNodeView.LayoutDirection layoutDirection) {
+        if (layoutDirection == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM) {
+            return switch (alignment) {
+                case TOP -> y;
+                case CENTER -> y + (maxLevelHeight - nodeHeight) / 2;
+                case BASELINE, BOTTOM -> y + maxLevelHeight - nodeHeight;
+            };
+        } else {
+            return switch (alignment) {
+                case TOP -> y - maxLevelHeight;
+                case CENTER -> y - (maxLevelHeight + nodeHeight) / 2;
+                case BASELINE, BOTTOM -> y - nodeHeight;
+            };
+        }
+    }
+}
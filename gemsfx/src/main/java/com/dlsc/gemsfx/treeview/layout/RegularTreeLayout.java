@@ -0,0 +1,163 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+
+/**
+ * The layout used for {@link TreeNodeView.LayoutType#REGULAR}. Every node reserves the full
+ * width (or height) of its subtree and gets centered within that space. This leads to wide
+ * but very regular trees.
+ * <p>
+ * The nodes get processed in two linear passes over the breadth-first ordered snapshot: the
+ * first pass (from the last node to the root) sums up the sizes of the subtrees, the second
+ * pass (from the root to the last node) places each node inside the slot that was assigned
+ * to it by its parent.
+ * </p>
+ */
+public class RegularTreeLayout extends AbstractTreeLayout {
+
+    @Override
+    public void layout(TreeLayoutData data) {
+        int size = data.getSize();
+        if (size == 0) {
+            return;
+        }
+
+        boolean vertical = data.isVertical();
+        double gap = vertical ? data.getHgap() : data.getVgap();
+
+        // the total width (vertical) or height (horizontal) of each subtree, children have larger indices than their parents
+        double[] total = new double[size];
+        for (int i = size - 1; i >= 0; i--) {
+            double nodeSize = vertical ? data.getWidth(i) : data.getHeight(i);
+            int childCount = data.getChildCount(i);
+            if (childCount > 0) {
+                total[i] = Math.max(nodeSize, childrenTotal(data, total, i, gap));
+            } else {
+                total[i] = nodeSize;
+            }
+        }
+
+        // the slot assigned to each node by its parent
+        double[] slotX = new double[size];
+        double[] slotY = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (vertical) {
+                positionVertically(data, total, slotX, slotY, i);
+            } else {
+                positionHorizontally(data, total, slotX, slotY, i);
+            }
+        }
+    }
+
+    private double childrenTotal(TreeLayoutData data, double[] total, int node, double gap) {
+        int childCount = data.getChildCount(node);
+        double childrenTotal = 0;
+        for (int n = 0; n < childCount; n++) {
+            childrenTotal += total[data.getChild(node, n)];
+        }
+        return childrenTotal + gap * (childCount - 1);
+    }
+
+    private void positionVertically(TreeLayoutData data, double[] total, double[] slotX, double[] slotY, int node) {
+        TreeNodeView.LayoutDirection layoutDirection = data.getLayoutDirection();
+        double x = slotX[node];
+        double y = slotY[node];
+        double currentRealWidth = data.getWidth(node);
+
+        // Calculate the startX based on the total width of this node
+        double startX = x + (total[node] - currentRealWidth) / 2;
+
+        double maxLevelHeight = data.getMaxHeight(data.getDepth(node));
+        VPos alignment = data.getRowAlignment();
+        double adjustedY = computeAdjustedYPosition(y, maxLevelHeight, data.getHeight(node), alignment, layoutDirection);
+
+        data.setPosition(node, startX, adjustedY);
+
+        int childCount = data.getChildCount(node);
+        if (childCount == 0) {
+            return;
+        }
+
+        double childrenTotalWidth = childrenTotal(data, total, node, data.getHgap());
+
+        double childrenStartX;
+        // If the parent node is wider than its children combined
+        if (currentRealWidth > childrenTotalWidth) {
+            childrenStartX = startX + (currentRealWidth - childrenTotalWidth) / 2;
+        } else {
+            childrenStartX = x;
+        }
+
+        double nextY;
+        if (layoutDirection == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP) {
+            nextY = y - maxLevelHeight - data.getVgap() - data.getNodeLineGap() * 2;
+        } else {
+            nextY = y + maxLevelHeight + data.getVgap() + data.getNodeLineGap() * 2;
+        }
+
+        for (int n = 0; n < childCount; n++) {
+            int child = data.getChild(node, n);
+            slotX[child] = childrenStartX;
+            slotY[child] = nextY;
+            childrenStartX += total[child] + data.getHgap();
+        }
+    }
+
+    private void positionHorizontally(TreeLayoutData data, double[] total, double[] slotX, double[] slotY, int node) {
+        TreeNodeView.LayoutDirection layoutDirection = data.getLayoutDirection();
+        double x = slotX[node];
+        double y = slotY[node];
+        double currentRealHeight = data.getHeight(node);
+        double nodeWidth = data.getWidth(node);
+
+        // Calculate the startY based on the total height of this node
+        double startY = y + (total[node] - currentRealHeight) / 2;
+
+        double maxLevelWidth = data.getMaxWidth(data.getDepth(node));
+        HPos alignment = data.getColumnAlignment();
+        double adjustedX = computeAdjustedXPosition(x, maxLevelWidth, nodeWidth, alignment, layoutDirection);
+
+        data.setPosition(node, adjustedX, startY);
+
+        int childCount = data.getChildCount(node);
+        if (childCount == 0) {
+            return;
+        }
+
+        double childrenTotalHeight = childrenTotal(data, total, node, data.getVgap());
+
+        // Adjust the start position of children so the parent is vertically centered with respect to its children.
+        double childrenStartY = startY + (currentRealHeight / 2) - (childrenTotalHeight / 2);
+
+        double nextX;
+        double nodeLineGaps = data.getNodeLineGap() * 2;
+        if (layoutDirection == TreeNodeView.LayoutDirection.LEFT_TO_RIGHT) {
+            if (alignment == HPos.LEFT) {
+                nextX = adjustedX + maxLevelWidth + data.getHgap() + nodeLineGaps;
+            } else if (alignment == HPos.CENTER) {
+                double offset = (maxLevelWidth - nodeWidth) / 2;
+                nextX = adjustedX + offset + nodeWidth + data.getHgap() + nodeLineGaps;
+            } else { // HPos.RIGHT
+                nextX = adjustedX + nodeWidth + data.getHgap() + nodeLineGaps;
+            }
+        } else {  // RIGHT_TO_LEFT
+            if (alignment == HPos.LEFT) {
+                nextX = adjustedX - data.getHgap() - nodeLineGaps;
+            } else if (alignment == HPos.CENTER) {
+                double offset = (maxLevelWidth - nodeWidth) / 2;
+                nextX = adjustedX - offset - data.getHgap() - nodeLineGaps;
+            } else { // HPos.RIGHT
+                nextX = adjustedX - maxLevelWidth + nodeWidth - data.getHgap() - nodeLineGaps;
+            }
+        }
+
+        for (int n = 0; n < childCount; n++) {
+            int child = data.getChild(node, n);
+            slotX[child] = nextX;
+            slotY[child] = childrenStartY;
+            childrenStartY += total[child] + data.getVgap();
+        }
+    }
+}
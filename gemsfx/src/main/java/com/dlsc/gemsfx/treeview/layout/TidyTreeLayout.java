@@ -0,0 +1,229 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView;
+
+import java.util.Arrays;
+
+/**
+ * The layout used for {@link TreeNodeView.LayoutType#COMPACT}. A "tidy tree" layout based on the
+ * algorithm of Walker as improved by Buchheim, Juenger and Leipert ("Improving Walker's Algorithm
+ * to Run in Linear Time"). Parents get centered above their children and subtrees are moved as
+ * closely together as possible without overlapping, which leads to much narrower trees than the
+ * regular layout. Nodes of the same level are placed in the same row (or column).
+ * <p>
+ * The implementation runs in linear time and works directly on the primitive arrays of the
+ * snapshot: the first walk processes the nodes from the last one to the root (in a breadth-first
+ * order all descendants of a node come after the node), the second walk from the root to the
+ * last node.
+ * </p>
+ */
+public class TidyTreeLayout extends AbstractTreeLayout {
+
+    @Override
+    public void layout(TreeLayoutData data) {
+        int size = data.getSize();
+        if (size == 0) {
+            return;
+        }
+
+        new Walker(data).layout();
+    }
+
+    /*
+     * Holds the state of a single layout run.
+     */
+    private final class Walker {
+
+        private final TreeLayoutData data;
+        private final boolean vertical;
+        private final double gap;
+
+        private final double[] breadth;
+        private final double[] prelim;
+        private final double[] mod;
+        private final double[] shift;
+        private final double[] change;
+        private final double[] midpoint;
+        private final int[] thread;
+        private final int[] ancestor;
+
+        private Walker(TreeLayoutData data) {
+            this.data = data;
+            this.vertical = data.isVertical();
+            this.gap = vertical ? data.getHgap() : data.getVgap();
+
+            int size = data.getSize();
+            breadth = new double[size];
+            prelim = new double[size];
+            mod = new double[size];
+            shift = new double[size];
+            change = new double[size];
+            midpoint = new double[size];
+            thread = new int[size];
+            ancestor = new int[size];
+
+            Arrays.fill(thread, -1);
+            for (int i = 0; i < size; i++) {
+                breadth[i] = vertical ? data.getWidth(i) : data.getHeight(i);
+                ancestor[i] = i;
+            }
+        }
+
+        private void layout() {
+            int size = data.getSize();
+
+            // first walk, arranges the children of each node relative to each other
+            for (int v = size - 1; v >= 0; v--) {
+                int childCount = data.getChildCount(v);
+                if (childCount == 0) {
+                    continue;
+                }
+
+                int first = data.getChild(v, 0);
+                int last = first + childCount - 1;
+                int defaultAncestor = first;
+                for (int w = first; w <= last; w++) {
+                    if (w == first) {
+                        prelim[w] = isLeaf(w) ? 0 : midpoint[w];
+                    } else {
+                        prelim[w] = prelim[w - 1] + distance(w - 1, w);
+                        if (!isLeaf(w)) {
+                            mod[w] = prelim[w] - midpoint[w];
+                        }
+                    }
+                    defaultAncestor = apportion(w, first, defaultAncestor);
+                }
+
+                executeShifts(first, last);
+                midpoint[v] = (prelim[first] + prelim[last]) / 2;
+            }
+
+            prelim[0] = isLeaf(0) ? 0 : midpoint[0];
+
+            // second walk, sums up the modifiers of the ancestors
+            double[] center = new double[size];
+            double[] modSum = new double[size];
+            double minEdge = Double.MAX_VALUE;
+            for (int v = 0; v < size; v++) {
+                center[v] = prelim[v] + modSum[v];
+                minEdge = Math.min(minEdge, center[v] - breadth[v] / 2);
+
+                int childCount = data.getChildCount(v);
+                for (int n = 0; n < childCount; n++) {
+                    modSum[data.getChild(v, n)] = modSum[v] + mod[v];
+                }
+            }
+
+            // the distance of each level from the root
+            int levelCount = data.getLevelCount();
+            double[] levelOffset = new double[levelCount];
+            double depthGap = (vertical ? data.getVgap() : data.getHgap()) + data.getNodeLineGap() * 2;
+            for (int level = 1; level < levelCount; level++) {
+                levelOffset[level] = levelOffset[level - 1] + data.getMaxDimension(level - 1) + depthGap;
+            }
+
+            TreeNodeView.LayoutDirection direction = data.getLayoutDirection();
+            boolean reversed = direction == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP || direction == TreeNodeView.LayoutDirection.RIGHT_TO_LEFT;
+            for (int v = 0; v < size; v++) {
+                int level = data.getDepth(v);
+                double offset = reversed ? -levelOffset[level] : levelOffset[level];
+                double position = center[v] - breadth[v] / 2 - minEdge;
+                if (vertical) {
+                    data.setPosition(v, position, computeAdjustedYPosition(offset, data.getMaxHeight(level), data.getHeight(v), data.getRowAlignment(), direction));
+                } else {
+                    data.setPosition(v, computeAdjustedXPosition(offset, data.getMaxWidth(level), data.getWidth(v), data.getColumnAlignment(), direction), position);
+                }
+            }
+        }
+
+        private boolean isLeaf(int v) {
+            return data.getChildCount(v) == 0;
+        }
+
+        private double distance(int left, int right) {
+            return (breadth[left] + breadth[right]) / 2 + gap;
+        }
+
+        private int nextLeft(int v) {
+            return isLeaf(v) ? thread[v] : data.getChild(v, 0);
+        }
+
+        private int nextRight(int v) {
+            return isLeaf(v) ? thread[v] : data.getChild(v, data.getChildCount(v) - 1);
+        }
+
+        /*
+         * Moves the subtree of v away from the subtrees of its left siblings until the contours
+         * do not overlap anymore.
+         */
+        private int apportion(int v, int leftmostSibling, int defaultAncestor) {
+            if (v == leftmostSibling) {
+                return defaultAncestor;
+            }
+
+            int vip = v;
+            int vop = v;
+            int vim = v - 1;
+            int vom = leftmostSibling;
+            double sip = mod[vip];
+            double sop = mod[vop];
+            double sim = mod[vim];
+            double som = mod[vom];
+
+            while (nextRight(vim) != -1 && nextLeft(vip) != -1) {
+                vim = nextRight(vim);
+                vip = nextLeft(vip);
+                vom = nextLeft(vom);
+                vop = nextRight(vop);
+                ancestor[vop] = v;
+
+                double s = (prelim[vim] + sim) - (prelim[vip] + sip) + distance(vim, vip);
+                if (s > 0) {
+                    int a = data.getParent(ancestor[vim]) == data.getParent(v) ? ancestor[vim] : defaultAncestor;
+                    moveSubtree(a, v, s);
+                    sip += s;
+                    sop += s;
+                }
+
+                sim += mod[vim];
+                sip += mod[vip];
+                som += mod[vom];
+                sop += mod[vop];
+            }
+
+            if (nextRight(vim) != -1 && nextRight(vop) == -1) {
+                thread[vop] = nextRight(vim);
+                mod[vop] += sim - sop;
+            }
+
+            if (nextLeft(vip) != -1 && nextLeft(vom) == -1) {
+                thread[vom] = nextLeft(vip);
+                mod[vom] += sip - som;
+                defaultAncestor = v;
+            }
+
+            return defaultAncestor;
+        }
+
+        private void moveSubtree(int wm, int wp, double s) {
+            // siblings have consecutive indices
+            int subtrees = wp - wm;
+            change[wp] -= s / subtrees;
+            shift[wp] += s;
+            change[wm] += s / subtrees;
+            prelim[wp] += s;
+            mod[wp] += s;
+        }
+
+        private void executeShifts(int first, int last) {
+            double currentShift = 0;
+            double currentChange = 0;
+            for (int w = last; w >= first; w--) {
+                prelim[w] += currentShift;
+                mod[w] += currentShift;
+                currentChange += change[w];
+                currentShift += shift[w] + currentChange;
+            }
+        }
+    }
+}
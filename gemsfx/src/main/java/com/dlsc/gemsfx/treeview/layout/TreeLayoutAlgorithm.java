@@ -0,0 +1,22 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+/**
+ * Computes the positions of the nodes of a tree. The algorithm works on a flat snapshot of
+ * the visible part of the tree (see {@link TreeLayoutData}) where every node is identified by
+ * its index. Implementations have to set the position of every node via
+ * {@link TreeLayoutData#setPosition(int, double, double)}.
+ * <p>
+ * The snapshot does not reference any scene graph nodes or tree nodes, so algorithms can be
+ * executed on any thread.
+ * </p>
+ */
+@FunctionalInterface
+public interface TreeLayoutAlgorithm {
+
+    /**
+     * Computes the position (upper left corner) of every node of the given tree.
+     *
+     * @param data the tree
+     */
+    void layout(TreeLayoutData data);
+}
@@ -0,0 +1,202 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+
+import java.util.Objects;
+
+/**
+ * A flat snapshot of the visible part of a tree, used as the input and output of a
+ * {@link TreeLayoutAlgorithm}. The nodes are identified by their index, the root has
+ * the index 0 and the nodes are stored in breadth-first order, which means that the
+ * children of a node have consecutive indices and that every node has a larger index
+ * than its parent. All values are kept in primitive arrays.
+ */
+public final class TreeLayoutData {
+
+    private final int size;
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final double[] width;
+    private final double[] height;
+    private final double[] x;
+    private final double[] y;
+
+    private final int levelCount;
+    private final double[] levelMaxWidth;
+    private final double[] levelMaxHeight;
+
+    private final TreeNodeView.LayoutDirection layoutDirection;
+    private final double hgap;
+    private final double vgap;
+    private final double nodeLineGap;
+    private final VPos rowAlignment;
+    private final HPos columnAlignment;
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param size            the number of nodes
+     * @param parent          the index of the parent of each node (-1 for the root), the nodes have to be in breadth-first order
+     * @param width           the width of each node
+     * @param height          the height of each node
+     * @param layoutDirection the direction of the layout
+     * @param hgap            the horizontal gap between nodes
+     * @param vgap            the vertical gap between nodes
+     * @param nodeLineGap     the gap between a node and its links
+     * @param rowAlignment    the alignment of the nodes of a level (top to bottom and bottom to top)
+     * @param columnAlignment the alignment of the nodes of a level (left to right and right to left)
+     */
+    public TreeLayoutData(int size, int[] parent, double[] width, double[] height, TreeNodeView.LayoutDirection layoutDirection,
+                          double hgap, double vgap, double nodeLineGap, VPos rowAlignment, HPos columnAlignment) {
+        this.size = size;
+        this.parent = parent;
+        this.width = width;
+        this.height = height;
+        this.layoutDirection = Objects.requireNonNull(layoutDirection, "layout direction can not be null");
+        this.hgap = hgap;
+        this.vgap = vgap;
+        this.nodeLineGap = nodeLineGap;
+        this.rowAlignment = Objects.requireNonNull(rowAlignment, "row alignment can not be null");
+        this.columnAlignment = Objects.requireNonNull(columnAlignment, "column alignment can not be null");
+
+        depth = new int[size];
+        childStart = new int[size];
+        childCount = new int[size];
+        x = new double[size];
+        y = new double[size];
+
+        int maxDepth = 0;
+        for (int i = 1; i < size; i++) {
+            int p = parent[i];
+            if (p < 0 || p >= i) {
+                throw new IllegalArgumentException("nodes have to be in breadth-first order, invalid parent " + p + " of node " + i);
+            }
+            if (childCount[p] == 0) {
+                childStart[p] = i;
+            } else if (childStart[p] + childCount[p] != i) {
+                throw new IllegalArgumentException("nodes have to be in breadth-first order, children of node " + p + " are not consecutive");
+            }
+            childCount[p]++;
+            depth[i] = depth[p] + 1;
+            maxDepth = Math.max(maxDepth, depth[i]);
+        }
+
+        levelCount = size == 0 ? 0 : maxDepth + 1;
+        levelMaxWidth = new double[levelCount];
+        levelMaxHeight = new double[levelCount];
+        for (int i = 0; i < size; i++) {
+            levelMaxWidth[depth[i]] = Math.max(levelMaxWidth[depth[i]], width[i]);
+            levelMaxHeight[depth[i]] = Math.max(levelMaxHeight[depth[i]], height[i]);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the index of the parent of the given node or -1 for the root
+     */
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @return the depth of the given node, the root has the depth 0
+     */
+    public int getDepth(int node) {
+        return depth[node];
+    }
+
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    /**
+     * @return the index of the n-th child of the given node
+     */
+    public int getChild(int node, int n) {
+        return childStart[node] + n;
+    }
+
+    public double getWidth(int node) {
+        return width[node];
+    }
+
+    public double getHeight(int node) {
+        return height[node];
+    }
+
+    public double getX(int node) {
+        return x[node];
+    }
+
+    public double getY(int node) {
+        return y[node];
+    }
+
+    /**
+     * Sets the position (upper left corner) of the given node.
+     */
+    public void setPosition(int node, double x, double y) {
+        this.x[node] = x;
+        this.y[node] = y;
+    }
+
+    /**
+     * @return the number of levels (the maximum depth plus one)
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public double getMaxWidth(int level) {
+        return levelMaxWidth[level];
+    }
+
+    public double getMaxHeight(int level) {
+        return levelMaxHeight[level];
+    }
+
+    /**
+     * @return the maximum height (top to bottom and bottom to top) or width (left to right and right to left) of the nodes of the given level
+     */
+    public double getMaxDimension(int level) {
+        return isVertical() ? levelMaxHeight[level] : levelMaxWidth[level];
+    }
+
+    /**
+     * @return true if the layout direction is top to bottom or bottom to top
+     */
+    public boolean isVertical() {
+        return layoutDirection == TreeNodeView.LayoutDirection.TOP_TO_BOTTOM || layoutDirection == TreeNodeView.LayoutDirection.BOTTOM_TO_TOP;
+    }
+
+    public TreeNodeView.LayoutDirection getLayoutDirection() {
+        return layoutDirection;
+    }
+
+    public double getHgap() {
+        return hgap;
+    }
+
+    public double getVgap() {
+        return vgap;
+    }
+
+    public double getNodeLineGap() {
+        return nodeLineGap;
+    }
+
+    public VPos getRowAlignment() {
+        return rowAlignment;
+    }
+
+    public HPos getColumnAlignment() {
+        return columnAlignment;
+    }
+}
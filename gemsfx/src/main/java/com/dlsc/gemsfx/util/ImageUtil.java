@@ -0,0 +1,353 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.geometry.Dimension2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utility methods for resampling and encoding images without the need for the
+ * JavaFX / Swing bridge. All methods can be called from any thread.
+ */
+public final class ImageUtil {
+
+    /**
+     * The formats supported by {@link #encode(Image, Format)}.
+     */
+    public enum Format {
+        PNG("png"),
+        JPEG("jpg");
+
+        private final String formatName;
+
+        Format(String formatName) {
+            this.formatName = formatName;
+        }
+    }
+
+    private static final ExecutorService ENCODER_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r);
+        thread.setName("Image Encoder Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private ImageUtil() {
+    }
+
+    /**
+     * Reads the pixels of the given image in the pre-multiplied ARGB format.
+     *
+     * @param image the image to read
+     * @return the pixels, row by row
+     */
+    public static int[] getPixels(Image image) {
+        Objects.requireNonNull(image, "image can not be null");
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return pixels;
+    }
+
+    /**
+     * Creates a new image from the given pre-multiplied ARGB pixels. The pixel array
+     * will be used directly, no copy is made.
+     *
+     * @param pixels the pixels, row by row
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @return the new image
+     */
+    public static WritableImage createImage(int[] pixels, int width, int height) {
+        return new WritableImage(new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance()));
+    }
+
+    /**
+     * Reads the size of the image at the given URL from the header of the image file,
+     * without decoding any pixels. This makes it possible to request a decoded size that
+     * does not exceed the native size of the image, as {@link Image} enlarges images that
+     * are smaller than the requested size.
+     *
+     * @param url the URL of the image
+     * @return the size of the image in pixels or null if it could not be determined
+     */
+    public static Dimension2D readImageSize(String url) {
+        Objects.requireNonNull(url, "url can not be null");
+        try (ImageInputStream stream = openImageStream(url)) {
+            ImageReader reader = getImageReader(stream, url);
+            try {
+                reader.setInput(stream, true, true);
+                return new Dimension2D(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a region of the image at the given URL. Only the rows (and for tiled formats
+     * the tiles) covering the region get decoded, so small regions of very large images can
+     * be read without holding the full image in memory. The region has to lie within the
+     * bounds of the image.
+     *
+     * @param url         the URL of the image
+     * @param x           the x coordinate of the region in pixels of the image
+     * @param y           the y coordinate of the region in pixels of the image
+     * @param width       the width of the region
+     * @param height      the height of the region
+     * @param subsampling only every n-th pixel of every n-th row gets read, 1 reads all pixels
+     * @return the pixels in the pre-multiplied ARGB format, row by row, each row contains
+     * {@code ceil(width / subsampling)} pixels
+     * @throws IOException if the image could not be decoded
+     */
+    public static int[] readRegion(String url, int x, int y, int width, int height, int subsampling) throws IOException {
+        Objects.requireNonNull(url, "url can not be null");
+        if (width <= 0 || height <= 0 || subsampling <= 0) {
+            throw new IllegalArgumentException("invalid region " + width + "x" + height + " or subsampling " + subsampling);
+        }
+
+        long pixelCount = (long) ((width + subsampling - 1) / subsampling) * ((height + subsampling - 1) / subsampling);
+        if (pixelCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("the region " + width + "x" + height + " is too large to be read with a subsampling of " + subsampling);
+        }
+
+        try (ImageInputStream stream = openImageStream(url)) {
+            ImageReader reader = getImageReader(stream, url);
+            try {
+                reader.setInput(stream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(x, y, width, height));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                int[] pixels = new int[Math.multiplyExact(image.getWidth(), image.getHeight())];
+                image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
+                premultiply(pixels);
+                return pixels;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /*
+     * Files get opened for random access, so that readers can skip the parts of the file they do not need.
+     */
+    private static ImageInputStream openImageStream(String url) throws IOException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+
+        ImageInputStream stream = "file".equalsIgnoreCase(uri.getScheme())
+                ? ImageIO.createImageInputStream(new File(uri))
+                : ImageIO.createImageInputStream(uri.toURL().openStream());
+        if (stream == null) {
+            throw new IOException("unable to open " + url);
+        }
+        return stream;
+    }
+
+    private static ImageReader getImageReader(ImageInputStream stream, String url) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            throw new IOException("no image reader found for " + url);
+        }
+        return readers.next();
+    }
+
+    /*
+     * Converts ARGB pixels in place into the pre-multiplied format.
+     */
+    private static void premultiply(int[] pixels) {
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            int a = pixel >>> 24;
+            if (a == 0) {
+                pixels[i] = 0;
+            } else if (a < 255) {
+                int r = ((pixel >> 16) & 0xFF) * a / 255;
+                int g = ((pixel >> 8) & 0xFF) * a / 255;
+                int b = (pixel & 0xFF) * a / 255;
+                pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * Computes the size of an image of the given size so that neither its width nor its
+     * height exceeds the given maximum size. The aspect ratio is preserved.
+     *
+     * @param width   the width of the image
+     * @param height  the height of the image
+     * @param maxSize the maximum width and height, a value of zero or less means "no limit"
+     * @return the bounded width and height
+     */
+    public static int[] computeBoundedSize(int width, int height, double maxSize) {
+        if (maxSize <= 0 || (width <= maxSize && height <= maxSize)) {
+            return new int[]{width, height};
+        }
+
+        double scale = maxSize / Math.max(width, height);
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    /**
+     * Scales the given pre-multiplied ARGB pixels down to the given size. Each target pixel
+     * is the area weighted average of all the source pixels it covers (box filter), which
+     * avoids the aliasing of nearest neighbour or bilinear sampling when the scale factor
+     * is large, e.g. when turning a photo into an avatar.
+     *
+     * @param pixels       the source pixels, row by row
+     * @param width        the width of the source
+     * @param height       the height of the source
+     * @param targetWidth  the width of the result, not larger than the width of the source
+     * @param targetHeight the height of the result, not larger than the height of the source
+     * @return the scaled pixels, row by row
+     */
+    public static int[] downscale(int[] pixels, int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0 || targetWidth > width || targetHeight > height) {
+            throw new IllegalArgumentException("invalid target size: " + targetWidth + "x" + targetHeight + " for source size " + width + "x" + height);
+        }
+
+        if (targetWidth == width && targetHeight == height) {
+            return pixels.clone();
+        }
+
+        // horizontal pass, four float channels per pixel
+        float[] rows = new float[targetWidth * height * 4];
+        double scaleX = (double) width / targetWidth;
+        for (int x = 0; x < targetWidth; x++) {
+            double start = x * scaleX;
+            double end = start + scaleX;
+            int first = (int) start;
+            int last = Math.min(width, (int) Math.ceil(end));
+            for (int y = 0; y < height; y++) {
+                float a = 0, r = 0, g = 0, b = 0;
+                int offset = y * width;
+                for (int i = first; i < last; i++) {
+                    float weight = (float) (Math.min(end, i + 1) - Math.max(start, i));
+                    int pixel = pixels[offset + i];
+                    a += weight * (pixel >>> 24);
+                    r += weight * ((pixel >> 16) & 0xFF);
+                    g += weight * ((pixel >> 8) & 0xFF);
+                    b += weight * (pixel & 0xFF);
+                }
+                int index = (y * targetWidth + x) * 4;
+                rows[index] = a;
+                rows[index + 1] = r;
+                rows[index + 2] = g;
+                rows[index + 3] = b;
+            }
+        }
+
+        // vertical pass
+        int[] result = new int[targetWidth * targetHeight];
+        double scaleY = (double) height / targetHeight;
+        float area = (float) (scaleX * scaleY);
+        for (int y = 0; y < targetHeight; y++) {
+            double start = y * scaleY;
+            double end = start + scaleY;
+            int first = (int) start;
+            int last = Math.min(height, (int) Math.ceil(end));
+            for (int x = 0; x < targetWidth; x++) {
+                float a = 0, r = 0, g = 0, b = 0;
+                for (int j = first; j < last; j++) {
+                    float weight = (float) (Math.min(end, j + 1) - Math.max(start, j));
+                    int index = (j * targetWidth + x) * 4;
+                    a += weight * rows[index];
+                    r += weight * rows[index + 1];
+                    g += weight * rows[index + 2];
+                    b += weight * rows[index + 3];
+                }
+                result[y * targetWidth + x] = (channel(a / area) << 24) | (channel(r / area) << 16) | (channel(g / area) << 8) | channel(b / area);
+            }
+        }
+
+        return result;
+    }
+
+    private static int channel(float value) {
+        return Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /**
+     * Encodes the given image in the background. PNG output keeps the alpha channel,
+     * JPEG output gets composed onto a white background as JPEG does not support
+     * transparency. The pixels of the image are read on the background thread, so the
+     * image must not be modified until the returned future completes.
+     *
+     * @param image  the image to encode
+     * @param format the output format
+     * @return a future that completes with the encoded bytes
+     */
+    public static CompletableFuture<byte[]> encode(Image image, Format format) {
+        Objects.requireNonNull(image, "image can not be null");
+        Objects.requireNonNull(format, "format can not be null");
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return encodeNow(image, format);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, ENCODER_EXECUTOR);
+    }
+
+    private static byte[] encodeNow(Image image, Format format) throws IOException {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = getPixels(image);
+
+        BufferedImage bufferedImage;
+        if (format == Format.PNG) {
+            bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        } else {
+            // composing pre-multiplied pixels onto white: c + (255 - a)
+            for (int i = 0; i < pixels.length; i++) {
+                int pixel = pixels[i];
+                int background = 255 - (pixel >>> 24);
+                int r = Math.min(255, ((pixel >> 16) & 0xFF) + background);
+                int g = Math.min(255, ((pixel >> 8) & 0xFF) + background);
+                int b = Math.min(255, (pixel & 0xFF) + background);
+                pixels[i] = (r << 16) | (g << 8) | b;
+            }
+            bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        bufferedImage.getRaster().setDataElements(0, 0, width, height, pixels);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(bufferedImage, format.formatName, out)) {
+            throw new IOException("no image writer found for format " + format);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,490 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An optional, persistent cache for rasterized SVG images. Once a directory has been set
+ * via {@link #setDirectory(Path)} every image rendered by {@link SVGImageCache} is also
+ * written to disk, and on the next launch of the application the image is read back
+ * instead of parsing and rendering the SVG again. This speeds up the cold start of
+ * icon-heavy user interfaces. Rasters are either read on demand or all at once via
+ * {@link #loadAll()}, e.g. while a splash screen is showing.
+ * <p>
+ * The rasters are stored as raw pre-multiplied ARGB pixels together with a SHA-256 hash
+ * of the SVG source. A cached raster is returned right away, the source is validated in
+ * the background (once per URL and session). When the source has changed, the stale
+ * files get deleted and the images of the URL are evicted from {@link SVGImageCache},
+ * which makes the views showing them render the new version.
+ * </p>
+ * The disk cache is disabled by default.
+ */
+public final class SVGDiskCache {
+
+    private static final Logger LOG = Logger.getLogger(SVGDiskCache.class.getName());
+
+    private static final int MAGIC = 0x47535647; // "GSVG"
+
+    private static final int VERSION = 2;
+
+    private static final int HASH_OFFSET = 4 + 4 + 4 + 4;
+
+    private static final int HASH_LENGTH = 32;
+
+    /*
+     * magic, version, width, height, source hash, requested width and height, output
+     * scales, length of the url, followed by the url and the pixels
+     */
+    private static final int HEADER_LENGTH = HASH_OFFSET + HASH_LENGTH + 4 * 8 + 4;
+
+    private static final String FILE_EXTENSION = ".raster";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r);
+        thread.setName("SVG Disk Cache Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /*
+     * The hashes of the sources that have been validated during this session.
+     */
+    private static final Map<String, byte[]> SOURCE_HASHES = new ConcurrentHashMap<>();
+
+    private static volatile Path directory;
+
+    private SVGDiskCache() {
+    }
+
+    /**
+     * Sets the directory where the rasters will be stored. Passing null disables the disk cache.
+     *
+     * @param directory the cache directory or null
+     */
+    public static void setDirectory(Path directory) {
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        SVGDiskCache.directory = directory;
+    }
+
+    /**
+     * Returns the directory where the rasters are stored or null if the disk cache is disabled.
+     *
+     * @return the cache directory
+     */
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Deletes all rasters from the cache directory.
+     */
+    public static void clear() {
+        Path dir = directory;
+        SOURCE_HASHES.clear();
+        if (dir == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "failed to clear svg disk cache", e);
+        }
+    }
+
+    /**
+     * Reads all rasters of the cache directory in the background and places them in the
+     * {@link SVGImageCache}, as long as its byte budget allows. Calling this early during
+     * startup means that the views of the first screen find their images in memory and
+     * neither have to parse nor render the SVG files. The sources of the rasters are
+     * validated afterwards.
+     *
+     * @return a future that completes when the rasters have been read
+     */
+    public static CompletableFuture<Void> loadAll() {
+        Path dir = directory;
+        if (dir == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> loadAll(dir), EXECUTOR);
+    }
+
+    private static void loadAll(Path dir) {
+        Set<String> unvalidated = new LinkedHashSet<>();
+        List<Path> invalid = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                if (SVGImageCache.getCurrentBytes() >= SVGImageCache.getMaxBytes()) {
+                    break;
+                }
+
+                Raster raster = readOrNull(file);
+                if (raster == null) {
+                    invalid.add(file);
+                    continue;
+                }
+
+                long bytes = (long) raster.image.getWidth() * (long) raster.image.getHeight() * 4L;
+                if (SVGImageCache.getCurrentBytes() + bytes > SVGImageCache.getMaxBytes()) {
+                    // do not evict images that are already in use
+                    continue;
+                }
+
+                try {
+                    URL url = new URI(raster.url).toURL();
+                    SVGImageCache.putImage(url, raster.requestedWidth, raster.requestedHeight, raster.outputScaleX, raster.outputScaleY, raster.image);
+                } catch (Exception e) {
+                    LOG.log(Level.FINE, "invalid url in svg disk cache: " + raster.url, e);
+                    continue;
+                }
+
+                if (!raster.validated) {
+                    unvalidated.add(raster.url);
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "failed to read svg disk cache", e);
+        }
+
+        // the files are closed by now, which allows deleting them on all platforms
+        invalid.forEach(SVGDiskCache::delete);
+
+        for (String urlString : unvalidated) {
+            try {
+                validate(new URI(urlString).toURL());
+            } catch (Exception e) {
+                LOG.log(Level.FINE, "failed to validate svg source: " + urlString, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the raster for the given SVG, size and output scale from disk.
+     *
+     * @return the image or null if the disk cache is disabled or does not contain the raster
+     */
+    static Image load(URL url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
+        Path dir = directory;
+        if (dir == null) {
+            return null;
+        }
+
+        String urlString = url.toExternalForm();
+        Path file = dir.resolve(fileName(urlString, requestedWidth, requestedHeight, outputScaleX, outputScaleY));
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        Raster raster = readOrNull(file);
+        if (raster == null || !raster.url.equals(urlString)) {
+            delete(file);
+            return null;
+        }
+
+        if (!raster.validated) {
+            EXECUTOR.execute(() -> validate(url));
+        }
+
+        return raster.image;
+    }
+
+    /*
+     * Returns null if the file could not be read, is corrupt, has been written by an older
+     * version or belongs to a source that has changed since the raster was written.
+     */
+    private static Raster readOrNull(Path file) {
+        try {
+            return read(file);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "failed to read svg raster from disk cache: " + file, e);
+            return null;
+        }
+    }
+
+    /*
+     * Plain reads are all it takes, the pixels have to be copied into the array backing
+     * the image anyway.
+     */
+    private static Raster read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                return null;
+            }
+
+            ByteBuffer header = readFully(channel, HEADER_LENGTH);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+
+            int width = header.getInt();
+            int height = header.getInt();
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(hash);
+            double requestedWidth = header.getDouble();
+            double requestedHeight = header.getDouble();
+            double outputScaleX = header.getDouble();
+            double outputScaleY = header.getDouble();
+            int urlLength = header.getInt();
+
+            if (width <= 0 || height <= 0 || urlLength < 0 || size != HEADER_LENGTH + urlLength + (long) width * height * 4) {
+                return null;
+            }
+
+            String url = new String(readFully(channel, urlLength).array(), StandardCharsets.UTF_8);
+
+            byte[] currentHash = SOURCE_HASHES.get(url);
+            if (currentHash != null && !Arrays.equals(hash, currentHash)) {
+                return null;
+            }
+
+            int[] pixels = new int[width * height];
+            readFully(channel, pixels.length * 4).asIntBuffer().get(pixels);
+
+            Image image = new WritableImage(new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance()));
+            return new Raster(url, requestedWidth, requestedHeight, outputScaleX, outputScaleY, currentHash != null, image);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "failed to delete svg raster from disk cache: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the raster for the given SVG, size and output scale to disk in the background.
+     */
+    static void store(URL url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY, Image image) {
+        Path dir = directory;
+        if (dir == null) {
+            return;
+        }
+
+        EXECUTOR.execute(() -> {
+            String urlString = url.toExternalForm();
+            Path file = dir.resolve(fileName(urlString, requestedWidth, requestedHeight, outputScaleX, outputScaleY));
+            try {
+                byte[] hash = SOURCE_HASHES.get(urlString);
+                if (hash == null) {
+                    hash = hashSource(url);
+                    SOURCE_HASHES.put(urlString, hash);
+                }
+
+                int width = (int) image.getWidth();
+                int height = (int) image.getHeight();
+                int[] pixels = new int[width * height];
+                PixelReader reader = image.getPixelReader();
+                reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+
+                byte[] urlBytes = urlString.getBytes(StandardCharsets.UTF_8);
+
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + urlBytes.length + pixels.length * 4);
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putInt(width);
+                buffer.putInt(height);
+                buffer.put(hash);
+                buffer.putDouble(requestedWidth);
+                buffer.putDouble(requestedHeight);
+                buffer.putDouble(outputScaleX);
+                buffer.putDouble(outputScaleY);
+                buffer.putInt(urlBytes.length);
+                buffer.put(urlBytes);
+                buffer.asIntBuffer().put(pixels);
+
+                // write to a temporary file first so that readers never see a partial file
+                Path tempFile = Files.createTempFile(dir, "svg", ".tmp");
+                Files.write(tempFile, buffer.array());
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                LOG.log(Level.FINE, "failed to write svg raster to disk cache: " + file, e);
+            }
+        });
+    }
+
+    /*
+     * Compares the hash of the current source with the hashes stored in the rasters and
+     * deletes the rasters (in memory and on disk) of changed sources.
+     */
+    private static void validate(URL url) {
+        String urlString = url.toExternalForm();
+        if (SOURCE_HASHES.containsKey(urlString)) {
+            return;
+        }
+
+        byte[] currentHash;
+        try {
+            currentHash = hashSource(url);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "failed to validate svg source: " + urlString, e);
+            return;
+        }
+
+        SOURCE_HASHES.put(urlString, currentHash);
+
+        Path dir = directory;
+        if (dir == null) {
+            return;
+        }
+
+        boolean changed = false;
+        String prefix = urlHash(urlString);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                if (!Arrays.equals(currentHash, readHash(file))) {
+                    delete(file);
+                    changed = true;
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "failed to validate svg disk cache for: " + urlString, e);
+        }
+
+        if (changed) {
+            SVGImageCache.invalidate(url);
+        }
+    }
+
+    /*
+     * Waits until the writes and validations that have been submitted so far are done, used by tests.
+     */
+    static void awaitBackgroundTasks() {
+        CompletableFuture.runAsync(() -> {
+        }, EXECUTOR).join();
+    }
+
+    /*
+     * Forgets which sources have been validated, as if the application had been restarted.
+     */
+    static void forgetValidatedSources() {
+        SOURCE_HASHES.clear();
+    }
+
+    private static byte[] readHash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_OFFSET + HASH_LENGTH);
+            channel.read(buffer);
+            if (buffer.position() < HASH_OFFSET + HASH_LENGTH) {
+                return null;
+            }
+            return Arrays.copyOfRange(buffer.array(), HASH_OFFSET, HASH_OFFSET + HASH_LENGTH);
+        }
+    }
+
+    private static byte[] hashSource(URL url) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream is = url.openStream()) {
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = is.read(bytes)) != -1) {
+                digest.update(bytes, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /*
+     * The file name starts with the hash of the url so that all rasters of a source
+     * can be found again, followed by the hash of size and scale.
+     */
+    private static String fileName(String url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
+        String variant = SVGImageCache.normalizeWidth(requestedWidth) + "x" + SVGImageCache.normalizeHeight(requestedWidth, requestedHeight) + "@" + outputScaleX + "x" + outputScaleY;
+        return urlHash(url) + "-" + hex(sha256().digest(variant.getBytes(StandardCharsets.UTF_8))).substring(0, 16) + FILE_EXTENSION;
+    }
+
+    private static String urlHash(String url) {
+        return hex(sha256().digest(url.getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Raster {
+
+        private final String url;
+        private final double requestedWidth;
+        private final double requestedHeight;
+        private final double outputScaleX;
+        private final double outputScaleY;
+        private final boolean validated;
+        private final Image image;
+
+        private Raster(String url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY, boolean validated, Image image) {
+            this.url = url;
+            this.requestedWidth = requestedWidth;
+            this.requestedHeight = requestedHeight;
+            this.outputScaleX = outputScaleX;
+            this.outputScaleY = outputScaleY;
+            this.validated = validated;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.dlsc.gemsfx.util;
+
+import com.github.weisj.jsvg.SVGDocument;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An icon atlas (a.k.a. sprite sheet) renders a set of SVG icons at a set of sizes into
+ * packed images. Views can then display a single icon by showing the region of
+ * the atlas image that belongs to the icon (see {@link com.dlsc.gemsfx.SVGIconAtlasView}
+ * or {@link javafx.scene.image.ImageView#setViewport(Rectangle2D)}). This way thousands
+ * of icon instances, e.g. in the cells of a large table, share a single texture on the
+ * graphics card instead of uploading many tiny ones.
+ * <p>
+ * Neither the width nor the height of an atlas image exceeds 4096 pixels, the maximum
+ * texture size supported by most graphics cards. Icons that do not fit into the first
+ * image spill over into additional pages, use {@link #getImage(URL, double)} to find the
+ * page of an icon.
+ * </p>
+ * <p>
+ * The size of an icon is its width in logical pixels, the height is derived from
+ * the aspect ratio of the SVG. The output scale maps logical pixels to device pixels,
+ * e.g. use 2 for an atlas that will be shown on a 200% display.
+ * </p>
+ * Creating an atlas renders all icons, so it should not be done on the JavaFX application
+ * thread when the set of icons is large. The atlas itself is immutable.
+ */
+public final class SVGIconAtlas {
+
+    /*
+     * Transparent gap between icons so that smooth scaling of one icon does not pick up
+     * pixels of its neighbours.
+     */
+    private static final int PADDING = 1;
+
+    private static final int MAX_SIZE = 4096;
+
+    private final List<WritableImage> pages;
+    private final double outputScale;
+    private final Map<String, Entry> entries;
+
+    private SVGIconAtlas(List<WritableImage> pages, double outputScale, Map<String, Entry> entries) {
+        this.pages = pages;
+        this.outputScale = outputScale;
+        this.entries = entries;
+    }
+
+    /**
+     * Creates a new atlas for the given SVG files at the given sizes with an output scale of 1.
+     *
+     * @param urls  the URLs of the SVG files
+     * @param sizes the sizes (widths) at which each icon will be available
+     * @return the new atlas
+     */
+    public static SVGIconAtlas create(Collection<URL> urls, double... sizes) {
+        return createScaled(urls, 1, sizes);
+    }
+
+    /**
+     * Creates a new atlas for the given SVG files at the given sizes and output scale,
+     * e.g. {@code createScaled(urls, 2, 16, 24)} for 16 and 24 pixel icons on a 200% display.
+     *
+     * @param urls        the URLs of the SVG files
+     * @param outputScale the output scale, e.g. the render scale of the window
+     * @param sizes       the sizes (widths) at which each icon will be available
+     * @return the new atlas
+     */
+    public static SVGIconAtlas createScaled(Collection<URL> urls, double outputScale, double... sizes) {
+        Objects.requireNonNull(urls, "urls can not be null");
+        if (outputScale <= 0) {
+            throw new IllegalArgumentException("output scale must be larger than zero, but was " + outputScale);
+        }
+        if (sizes.length == 0) {
+            throw new IllegalArgumentException("at least one size is required");
+        }
+
+        // load each document only once and create an entry per requested size
+        List<Entry> entries = new ArrayList<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        for (URL url : urls) {
+            if (seen.put(url.toExternalForm(), Boolean.TRUE) != null) {
+                continue;
+            }
+
+            SVGDocument document = SVGUtil.loadSVGDocument(url);
+            if (document == null) {
+                continue;
+            }
+
+            for (double size : sizes) {
+                Dimension dimension = SVGUtil.computeImageSize(document, size, -1, outputScale, outputScale);
+                entries.add(new Entry(key(url.toExternalForm(), size), document, dimension.width, dimension.height));
+            }
+        }
+
+        // shelf packing, tallest icons first
+        entries.sort(Comparator.comparingInt((Entry entry) -> entry.height).reversed());
+
+        long area = 0;
+        int maxIconWidth = 1;
+        for (Entry entry : entries) {
+            area += (long) (entry.width + PADDING) * (entry.height + PADDING);
+            maxIconWidth = Math.max(maxIconWidth, entry.width + PADDING);
+        }
+
+        int atlasWidth = Math.max(maxIconWidth, Math.min(MAX_SIZE, (int) Math.ceil(Math.sqrt(area))));
+
+        // rows that would make a page taller than the maximum size start a new page
+        List<Integer> pageHeights = new ArrayList<>();
+        int page = 0;
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        for (Entry entry : entries) {
+            if (x + entry.width > atlasWidth) {
+                x = 0;
+                y += rowHeight + PADDING;
+                rowHeight = 0;
+            }
+            if (x == 0 && y > 0 && y + entry.height > MAX_SIZE) {
+                pageHeights.add(y - PADDING);
+                page++;
+                y = 0;
+            }
+            entry.page = page;
+            entry.x = x;
+            entry.y = y;
+            x += entry.width + PADDING;
+            rowHeight = Math.max(rowHeight, entry.height);
+        }
+        pageHeights.add(Math.max(1, y + rowHeight));
+
+        List<WritableImage> pages = new ArrayList<>();
+        Map<String, Entry> entriesByKey = new HashMap<>();
+        for (int i = 0; i < pageHeights.size(); i++) {
+            int atlasHeight = pageHeights.get(i);
+            int[] pixels = new int[atlasWidth * atlasHeight];
+            BufferedImage bufferedImage = SVGUtil.createBufferedImage(pixels, atlasWidth, atlasHeight);
+            Graphics2D g2d = bufferedImage.createGraphics();
+
+            for (Entry entry : entries) {
+                if (entry.page != i) {
+                    continue;
+                }
+
+                Graphics2D iconGraphics = (Graphics2D) g2d.create(entry.x, entry.y, entry.width, entry.height);
+                SVGUtil.render(entry.document, iconGraphics, entry.width, entry.height);
+                iconGraphics.dispose();
+
+                // the document is no longer needed once the icon has been rendered
+                entry.document = null;
+                entriesByKey.put(entry.key, entry);
+            }
+
+            g2d.dispose();
+
+            pages.add(new WritableImage(new PixelBuffer<>(atlasWidth, atlasHeight, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance())));
+        }
+
+        return new SVGIconAtlas(Collections.unmodifiableList(pages), outputScale, entriesByKey);
+    }
+
+    /**
+     * Returns the packed images (pages) containing all icons. Most atlases only have
+     * a single page.
+     *
+     * @return the atlas images
+     */
+    public List<WritableImage> getImages() {
+        return pages;
+    }
+
+    /**
+     * Returns the atlas image (page) that contains the given icon at the given size.
+     *
+     * @param url  the URL of the SVG file
+     * @param size the size of the icon
+     * @return the image containing the icon or null if the atlas does not contain the icon in that size
+     */
+    public WritableImage getImage(URL url, double size) {
+        Entry entry = entries.get(key(url.toExternalForm(), size));
+        return entry != null ? pages.get(entry.page) : null;
+    }
+
+    /**
+     * Returns the atlas image (page) that contains the given icon at the given size.
+     *
+     * @param urlString the URL string of the SVG file
+     * @param size      the size of the icon
+     * @return the image containing the icon or null if the atlas does not contain the icon in that size
+     */
+    public WritableImage getImage(String urlString, double size) {
+        try {
+            return getImage(new URI(urlString).toURL(), size);
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the output scale used for rendering the icons.
+     *
+     * @return the output scale
+     */
+    public double getOutputScale() {
+        return outputScale;
+    }
+
+    /**
+     * Returns the number of icons (URL and size combinations) in this atlas.
+     *
+     * @return the number of icons
+     */
+    public int getIconCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the region of the atlas image (in pixels) that contains the given icon
+     * at the given size. The region refers to the page returned by {@link #getImage(URL, double)}.
+     *
+     * @param url  the URL of the SVG file
+     * @param size the size of the icon
+     * @return the region of the icon or null if the atlas does not contain the icon in that size
+     */
+    public Rectangle2D getViewport(URL url, double size) {
+        Entry entry = entries.get(key(url.toExternalForm(), size));
+        return entry != null ? entry.viewport() : null;
+    }
+
+    /**
+     * Returns the region of the atlas image (in pixels) that contains the given icon
+     * at the given size.
+     *
+     * @param urlString the URL string of the SVG file
+     * @param size      the size of the icon
+     * @return the region of the icon or null if the atlas does not contain the icon in that size
+     */
+    public Rectangle2D getViewport(String urlString, double size) {
+        try {
+            return getViewport(new URI(urlString).toURL(), size);
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String key(String url, double size) {
+        return url + "@" + size;
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private SVGDocument document;
+        private final int width;
+        private final int height;
+        private int page;
+        private int x;
+        private int y;
+
+        private Entry(String key, SVGDocument document, int width, int height) {
+            this.key = key;
+            this.document = document;
+            this.width = width;
+            this.height = height;
+        }
+
+        private Rectangle2D viewport() {
+            return new Rectangle2D(x, y, width, height);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A least-recently-used cache for rasterized SVG images. Images are keyed by the
+ * URL of the SVG document, the requested width and height, and the output scale
+ * factors that were used for rendering them. This allows many views that display
+ * the same icon at the same size to share a single {@link Image} instance instead
+ * of rendering (and storing) the same pixels over and over again.
+ * <p>
+ * The requested size is normalized the same way {@link SVGUtil} resolves it for
+ * rendering: a positive width wins over the height (the height follows from the aspect
+ * ratio), and non-positive values mean "intrinsic size". E.g. the sizes (16, 16) and
+ * (16, 0) share the same entry.
+ * </p>
+ * <p>
+ * The cache is bounded by a byte budget. The size of an entry is estimated as
+ * {@code width * height * 4} bytes, which is the size of the ARGB pixel buffer
+ * backing the image. When the budget is exceeded the least recently used entries
+ * get evicted.
+ * </p>
+ * All methods of this class are thread-safe and can be called from background
+ * loading threads.
+ */
+public final class SVGImageCache {
+
+    /**
+     * The default byte budget of the cache (32 MB).
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final Map<Key, Image> IMAGES = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final List<WeakReference<Consumer<URL>>> INVALIDATION_LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+
+    private static long currentBytes;
+
+    private SVGImageCache() {
+    }
+
+    /**
+     * Returns the image for the given SVG url rendered with the given size and output
+     * scale. The image will be taken from the cache if it has been rendered before, otherwise
+     * it will be loaded from the {@link SVGDiskCache} (if enabled) or rendered via
+     * {@link SVGUtil#toImage(URL, double, double, double, double)} and then placed in the cache.
+     *
+     * @param url             the URL of the SVG file.
+     * @param requestedWidth  the logical width of the Image.
+     * @param requestedHeight the logical height of the Image.
+     * @param outputScaleX    the horizontal scale factor.
+     * @param outputScaleY    the vertical scale factor.
+     * @return the (possibly shared) image representing the SVG file
+     */
+    public static Image getImage(URL url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
+        Objects.requireNonNull(url, "url can not be null");
+
+        Key key = new Key(url.toExternalForm(), requestedWidth, requestedHeight, outputScaleX, outputScaleY);
+
+        Image image = get(key);
+        if (image == null) {
+            // load / render outside the lock, concurrent renders of the same key are harmless
+            image = SVGDiskCache.load(url, requestedWidth, requestedHeight, outputScaleX, outputScaleY);
+            if (image == null) {
+                image = SVGUtil.toImage(url, requestedWidth, requestedHeight, outputScaleX, outputScaleY);
+                if (image != null) {
+                    SVGDiskCache.store(url, requestedWidth, requestedHeight, outputScaleX, outputScaleY, image);
+                }
+            }
+            if (image != null) {
+                put(key, image);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns the cached image for the given SVG url, size and output scale, or null if
+     * no such image is currently in the cache. This method never renders.
+     *
+     * @param url             the URL of the SVG file.
+     * @param requestedWidth  the logical width of the Image.
+     * @param requestedHeight the logical height of the Image.
+     * @param outputScaleX    the horizontal scale factor.
+     * @param outputScaleY    the vertical scale factor.
+     * @return the cached image or null
+     */
+    public static Image getCachedImage(URL url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
+        Objects.requireNonNull(url, "url can not be null");
+        return get(new Key(url.toExternalForm(), requestedWidth, requestedHeight, outputScaleX, outputScaleY));
+    }
+
+    /**
+     * Stores an already rendered image in the cache.
+     *
+     * @param url             the URL of the SVG file.
+     * @param requestedWidth  the logical width of the Image.
+     * @param requestedHeight the logical height of the Image.
+     * @param outputScaleX    the horizontal scale factor.
+     * @param outputScaleY    the vertical scale factor.
+     * @param image           the rendered image
+     */
+    public static void putImage(URL url, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY, Image image) {
+        Objects.requireNonNull(url, "url can not be null");
+        Objects.requireNonNull(image, "image can not be null");
+        put(new Key(url.toExternalForm(), requestedWidth, requestedHeight, outputScaleX, outputScaleY), image);
+    }
+
+    /**
+     * Removes all images of the given SVG url from the cache, e.g. because the SVG file
+     * has changed, and notifies the invalidation listeners so that views currently
+     * showing one of the images can render it again.
+     *
+     * @param url the URL of the SVG file.
+     */
+    public static void invalidate(URL url) {
+        Objects.requireNonNull(url, "url can not be null");
+        String urlString = url.toExternalForm();
+
+        synchronized (SVGImageCache.class) {
+            Iterator<Map.Entry<Key, Image>> iterator = IMAGES.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Image> entry = iterator.next();
+                if (entry.getKey().url.equals(urlString)) {
+                    currentBytes -= sizeOf(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (INVALIDATION_LISTENERS.isEmpty()) {
+            return;
+        }
+
+        Platform.runLater(() -> {
+            for (WeakReference<Consumer<URL>> reference : INVALIDATION_LISTENERS) {
+                Consumer<URL> listener = reference.get();
+                if (listener == null) {
+                    INVALIDATION_LISTENERS.remove(reference);
+                } else {
+                    listener.accept(url);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a listener that gets invoked on the JavaFX application thread with the URL
+     * passed to {@link #invalidate(URL)}. The listener is only referenced weakly, the
+     * caller has to keep a strong reference to it for as long as it is needed.
+     *
+     * @param listener the listener
+     */
+    public static void addInvalidationListener(Consumer<URL> listener) {
+        Objects.requireNonNull(listener, "listener can not be null");
+        INVALIDATION_LISTENERS.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Removes a listener previously added via {@link #addInvalidationListener(Consumer)}.
+     *
+     * @param listener the listener
+     */
+    public static void removeInvalidationListener(Consumer<URL> listener) {
+        INVALIDATION_LISTENERS.removeIf(reference -> {
+            Consumer<URL> existing = reference.get();
+            return existing == null || existing == listener;
+        });
+    }
+
+    /**
+     * Removes all images from the cache.
+     */
+    public static synchronized void clear() {
+        IMAGES.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Returns the number of images currently stored in the cache.
+     *
+     * @return the number of cached images
+     */
+    public static synchronized int size() {
+        return IMAGES.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes currently occupied by the cached images.
+     *
+     * @return the estimated size of the cache in bytes
+     */
+    public static synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * Returns the byte budget of the cache.
+     *
+     * @return the maximum number of bytes that the cached images may occupy
+     */
+    public static synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the byte budget of the cache. Setting a smaller value than before will
+     * immediately evict the least recently used images. A value of zero disables
+     * caching.
+     *
+     * @param maxBytes the maximum number of bytes that the cached images may occupy
+     */
+    public static synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("max bytes can not be negative, but was " + maxBytes);
+        }
+        SVGImageCache.maxBytes = maxBytes;
+        evict();
+    }
+
+    private static synchronized Image get(Key key) {
+        return IMAGES.get(key);
+    }
+
+    private static synchronized void put(Key key, Image image) {
+        long bytes = sizeOf(image);
+        if (bytes > maxBytes) {
+            return;
+        }
+
+        Image oldImage = IMAGES.put(key, image);
+        if (oldImage != null) {
+            currentBytes -= sizeOf(oldImage);
+        }
+        currentBytes += bytes;
+
+        evict();
+    }
+
+    private static void evict() {
+        Iterator<Image> iterator = IMAGES.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= sizeOf(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /*
+     * Mirrors SVGUtil.computeImageSize(), which ignores the height when a width is given.
+     */
+    static double normalizeWidth(double requestedWidth) {
+        return requestedWidth > 0 ? requestedWidth : 0;
+    }
+
+    static double normalizeHeight(double requestedWidth, double requestedHeight) {
+        return requestedWidth > 0 || requestedHeight <= 0 ? 0 : requestedHeight;
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4L;
+    }
+
+    private static final class Key {
+
+        private final String url;
+        private final double width;
+        private final double height;
+        private final double outputScaleX;
+        private final double outputScaleY;
+
+        private Key(String url, double width, double height, double outputScaleX, double outputScaleY) {
+            this.url = url;
+            this.width = normalizeWidth(width);
+            this.height = normalizeHeight(width, height);
+            this.outputScaleX = outputScaleX;
+            this.outputScaleY = outputScaleY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Double.compare(key.width, width) == 0
+                    && Double.compare(key.height, height) == 0
+                    && Double.compare(key.outputScaleX, outputScaleX) == 0
+                    && Double.compare(key.outputScaleY, outputScaleY) == 0
+                    && url.equals(key.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, width, height, outputScaleX, outputScaleY);
+        }
+    }
+}
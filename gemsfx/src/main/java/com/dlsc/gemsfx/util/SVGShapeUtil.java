@@ -0,0 +1,553 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.SVGPath;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Shear;
+import javafx.scene.transform.Transform;
+import javafx.scene.transform.Translate;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A utility class that converts SVG files into a retained scene graph of JavaFX shapes
+ * ({@link SVGPath}, {@link Rectangle}, {@link Circle}, ...). Unlike the images created by
+ * {@link SVGUtil} the resulting nodes are resolution independent, they can be scaled via
+ * transforms without ever having to render the SVG again. The conversion only relies on
+ * the XML parser of the JDK and on JavaFX, it does not touch AWT.
+ * <p>
+ * The converter supports the subset of SVG that is typically found in icons: the
+ * elements svg, g, path, rect, circle, ellipse, line, polyline and polygon, the
+ * presentation attributes for fills and strokes (as attributes, inline styles or simple
+ * class and element rules inside style elements), opacity, and transforms. Gradients and
+ * patterns are approximated by the color of their first stop. Unsupported elements (e.g.
+ * use, clipPath, mask, filter, text, image) are ignored, as are the attributes that refer
+ * to them (clip-path, mask, filter).
+ * </p>
+ * The returned nodes are not attached to a scene, so the conversion can run on any thread.
+ */
+public final class SVGShapeUtil {
+
+    private static final Pattern NUMBER = Pattern.compile("[-+]?(?:\\d*\\.\\d+|\\d+\\.?)(?:[eE][-+]?\\d+)?");
+
+    private static final Pattern TRANSFORM = Pattern.compile("(matrix|translate|scale|rotate|skewX|skewY)\\s*\\(([^)]*)\\)");
+
+    private static final Pattern CSS_RULE = Pattern.compile("([^{}]+)\\{([^{}]*)}");
+
+    private static final Pattern URL_REFERENCE = Pattern.compile("url\\(\\s*['\"]?#([^)'\"]+)['\"]?\\s*\\)");
+
+    private SVGShapeUtil() {
+    }
+
+    /**
+     * Converts the SVG file at the given URL into a group of JavaFX shapes.
+     *
+     * @param url the URL of the SVG file.
+     * @return a group containing the shapes of the SVG file.
+     */
+    public static Group toGroup(URL url) {
+        try (InputStream is = url.openStream()) {
+            return toGroup(is);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Converts the given SVG file into a group of JavaFX shapes.
+     *
+     * @param svgFile the SVG file.
+     * @return a group containing the shapes of the SVG file.
+     */
+    public static Group toGroup(File svgFile) {
+        try {
+            return toGroup(svgFile.toURI().toURL());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Converts the SVG read from the given input stream into a group of JavaFX shapes.
+     * The layout bounds of the returned group always match the size of the SVG document
+     * (as defined by its width / height attributes or its view box), which makes it
+     * easy to scale the group to a requested size.
+     *
+     * @param is the InputStream of the SVG file.
+     * @return a group containing the shapes of the SVG file.
+     */
+    public static Group toGroup(InputStream is) {
+        Document document = parseDocument(is);
+        Element root = document.getDocumentElement();
+
+        Builder builder = new Builder(document);
+
+        double[] viewBox = parseNumbers(root.getAttribute("viewBox"));
+        boolean hasViewBox = viewBox.length == 4 && viewBox[2] > 0 && viewBox[3] > 0;
+
+        double width = parseLength(root.getAttribute("width"), hasViewBox ? viewBox[2] : 0);
+        double height = parseLength(root.getAttribute("height"), hasViewBox ? viewBox[3] : 0);
+
+        Group content = new Group();
+        Style rootStyle = new Style().derive(builder.resolveProperties(root, "svg"), builder);
+        builder.buildChildren(root, rootStyle, content);
+
+        if (hasViewBox) {
+            content.getTransforms().addAll(
+                    new Scale(width / viewBox[2], height / viewBox[3]),
+                    new Translate(-viewBox[0], -viewBox[1]));
+        }
+
+        if (width <= 0 || height <= 0) {
+            width = content.getBoundsInParent().getMaxX();
+            height = content.getBoundsInParent().getMaxY();
+        }
+
+        // defines the layout bounds of the group, does not get painted and is not pickable
+        Rectangle bounds = new Rectangle(width, height);
+        bounds.setFill(null);
+        bounds.setStroke(null);
+        bounds.setMouseTransparent(true);
+
+        Group group = new Group(bounds, content);
+        group.getStyleClass().add("svg-shape-group");
+        return group;
+    }
+
+    private static Document parseDocument(InputStream is) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setExpandEntityReferences(false);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+            return documentBuilder.parse(is);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * Walks the DOM and creates the JavaFX nodes.
+     */
+    private static final class Builder {
+
+        private final Map<String, Map<String, String>> cssRules = new HashMap<>();
+        private final Map<String, Element> elementsById = new HashMap<>();
+
+        private Builder(Document document) {
+            NodeList styles = document.getElementsByTagNameNS("*", "style");
+            for (int i = 0; i < styles.getLength(); i++) {
+                parseStyleSheet(styles.item(i).getTextContent());
+            }
+            collectIds(document.getDocumentElement());
+        }
+
+        private void collectIds(Element element) {
+            String id = element.getAttribute("id");
+            if (!id.isEmpty()) {
+                elementsById.put(id, element);
+            }
+            for (Element child : childElements(element)) {
+                collectIds(child);
+            }
+        }
+
+        private void parseStyleSheet(String text) {
+            Matcher matcher = CSS_RULE.matcher(text.replaceAll("(?s)/\\*.*?\\*/", ""));
+            while (matcher.find()) {
+                Map<String, String> declarations = parseDeclarations(matcher.group(2));
+                for (String selector : matcher.group(1).split(",")) {
+                    cssRules.computeIfAbsent(selector.trim(), key -> new LinkedHashMap<>()).putAll(declarations);
+                }
+            }
+        }
+
+        private void buildChildren(Element parent, Style parentStyle, Group group) {
+            for (Element child : childElements(parent)) {
+                Node node = build(child, parentStyle);
+                if (node != null) {
+                    group.getChildren().add(node);
+                }
+            }
+        }
+
+        private Node build(Element element, Style parentStyle) {
+            String name = localName(element);
+
+            Map<String, String> properties = resolveProperties(element, name);
+            if ("none".equals(properties.get("display"))) {
+                return null;
+            }
+
+            Style style = parentStyle.derive(properties, this);
+
+            Node node;
+            switch (name) {
+                case "g":
+                case "svg":
+                case "a":
+                    Group group = new Group();
+                    buildChildren(element, style, group);
+                    if (name.equals("svg")) {
+                        group.getTransforms().add(new Translate(length(element, "x"), length(element, "y")));
+                    }
+                    node = group;
+                    break;
+                case "path":
+                    SVGPath path = new SVGPath();
+                    path.setContent(element.getAttribute("d"));
+                    path.setFillRule(style.fillRule);
+                    node = path;
+                    break;
+                case "rect":
+                    Rectangle rectangle = new Rectangle(length(element, "x"), length(element, "y"), length(element, "width"), length(element, "height"));
+                    double rx = length(element, "rx");
+                    double ry = length(element, "ry");
+                    rectangle.setArcWidth(2 * (rx > 0 ? rx : ry));
+                    rectangle.setArcHeight(2 * (ry > 0 ? ry : rx));
+                    node = rectangle;
+                    break;
+                case "circle":
+                    node = new Circle(length(element, "cx"), length(element, "cy"), length(element, "r"));
+                    break;
+                case "ellipse":
+                    node = new Ellipse(length(element, "cx"), length(element, "cy"), length(element, "rx"), length(element, "ry"));
+                    break;
+                case "line":
+                    node = new Line(length(element, "x1"), length(element, "y1"), length(element, "x2"), length(element, "y2"));
+                    break;
+                case "polyline":
+                    node = new Polyline(parseNumbers(element.getAttribute("points")));
+                    break;
+                case "polygon":
+                    node = new Polygon(parseNumbers(element.getAttribute("points")));
+                    break;
+                default:
+                    // defs, style, title, gradients, clip paths, text, ... do not render directly
+                    return null;
+            }
+
+            if (node instanceof Shape) {
+                style.apply((Shape) node, !name.equals("line"));
+            }
+
+            String opacity = properties.get("opacity");
+            if (opacity != null) {
+                node.setOpacity(parseDouble(opacity, 1));
+            }
+
+            String transform = element.getAttribute("transform");
+            if (!transform.isEmpty()) {
+                node.getTransforms().addAll(parseTransform(transform));
+            }
+
+            return node;
+        }
+
+        /*
+         * Presentation attributes have the lowest precedence, followed by style sheet rules,
+         * followed by the inline style attribute.
+         */
+        private Map<String, String> resolveProperties(Element element, String name) {
+            Map<String, String> properties = new HashMap<>();
+            for (String property : Style.PROPERTIES) {
+                String value = element.getAttribute(property);
+                if (!value.isEmpty()) {
+                    properties.put(property, value.trim());
+                }
+            }
+
+            Map<String, String> elementRule = cssRules.get(name);
+            if (elementRule != null) {
+                properties.putAll(elementRule);
+            }
+
+            String styleClass = element.getAttribute("class");
+            if (!styleClass.isEmpty()) {
+                for (String className : styleClass.trim().split("\\s+")) {
+                    Map<String, String> classRule = cssRules.get("." + className);
+                    if (classRule != null) {
+                        properties.putAll(classRule);
+                    }
+                }
+            }
+
+            String style = element.getAttribute("style");
+            if (!style.isEmpty()) {
+                properties.putAll(parseDeclarations(style));
+            }
+
+            return properties;
+        }
+
+        private Paint resolvePaint(String value, Paint currentColor) {
+            if (value == null || value.isEmpty() || value.equals("none") || value.equals("transparent")) {
+                return null;
+            }
+            if (value.equals("currentColor")) {
+                return currentColor;
+            }
+
+            Matcher matcher = URL_REFERENCE.matcher(value);
+            if (matcher.find()) {
+                // gradients and patterns are approximated by the color of their first stop
+                Element reference = elementsById.get(matcher.group(1));
+                while (reference != null) {
+                    for (Element stop : childElements(reference)) {
+                        if (localName(stop).equals("stop")) {
+                            Map<String, String> properties = new HashMap<>();
+                            properties.put("stop-color", stop.getAttribute("stop-color"));
+                            properties.putAll(parseDeclarations(stop.getAttribute("style")));
+                            return resolvePaint(properties.get("stop-color"), currentColor);
+                        }
+                    }
+                    String href = reference.getAttribute("href");
+                    if (href.isEmpty()) {
+                        href = reference.getAttributeNS("http://www.w3.org/1999/xlink", "href");
+                    }
+                    reference = href.startsWith("#") ? elementsById.get(href.substring(1)) : null;
+                }
+                return Color.BLACK;
+            }
+
+            try {
+                return Color.web(value);
+            } catch (IllegalArgumentException e) {
+                return Color.BLACK;
+            }
+        }
+    }
+
+    /*
+     * The inherited paint properties of an element.
+     */
+    private static final class Style {
+
+        private static final String[] PROPERTIES = {
+                "fill", "fill-opacity", "fill-rule", "stroke", "stroke-opacity", "stroke-width",
+                "stroke-linecap", "stroke-linejoin", "stroke-miterlimit", "opacity", "color", "display"
+        };
+
+        private Paint color = Color.BLACK;
+        private Paint fill = Color.BLACK;
+        private Paint stroke;
+        private double fillOpacity = 1;
+        private double strokeOpacity = 1;
+        private double strokeWidth = 1;
+        private double strokeMiterLimit = 4;
+        private FillRule fillRule = FillRule.NON_ZERO;
+        private StrokeLineCap strokeLineCap = StrokeLineCap.BUTT;
+        private StrokeLineJoin strokeLineJoin = StrokeLineJoin.MITER;
+
+        private Style derive(Map<String, String> properties, Builder builder) {
+            Style style = new Style();
+            style.fill = fill;
+            style.stroke = stroke;
+            style.fillOpacity = fillOpacity;
+            style.strokeOpacity = strokeOpacity;
+            style.strokeWidth = strokeWidth;
+            style.strokeMiterLimit = strokeMiterLimit;
+            style.fillRule = fillRule;
+            style.strokeLineCap = strokeLineCap;
+            style.strokeLineJoin = strokeLineJoin;
+            style.color = color;
+
+            // needs to be resolved first as fill and stroke can refer to it via "currentColor"
+            if (properties.containsKey("color")) {
+                style.color = builder.resolvePaint(properties.get("color"), color);
+            }
+
+            properties.forEach((property, value) -> {
+                switch (property) {
+                    case "fill":
+                        style.fill = builder.resolvePaint(value, style.color);
+                        break;
+                    case "stroke":
+                        style.stroke = builder.resolvePaint(value, style.color);
+                        break;
+                    case "fill-opacity":
+                        style.fillOpacity = parseDouble(value, 1);
+                        break;
+                    case "stroke-opacity":
+                        style.strokeOpacity = parseDouble(value, 1);
+                        break;
+                    case "stroke-width":
+                        style.strokeWidth = parseLength(value, 1);
+                        break;
+                    case "stroke-miterlimit":
+                        style.strokeMiterLimit = parseDouble(value, 4);
+                        break;
+                    case "fill-rule":
+                        style.fillRule = value.equals("evenodd") ? FillRule.EVEN_ODD : FillRule.NON_ZERO;
+                        break;
+                    case "stroke-linecap":
+                        style.strokeLineCap = value.equals("round") ? StrokeLineCap.ROUND : value.equals("square") ? StrokeLineCap.SQUARE : StrokeLineCap.BUTT;
+                        break;
+                    case "stroke-linejoin":
+                        style.strokeLineJoin = value.equals("round") ? StrokeLineJoin.ROUND : value.equals("bevel") ? StrokeLineJoin.BEVEL : StrokeLineJoin.MITER;
+                        break;
+                    default:
+                        break;
+                }
+            });
+
+            return style;
+        }
+
+        private void apply(Shape shape, boolean filled) {
+            // svg lines are never filled, javafx lines would be filled black by default
+            shape.setFill(filled ? withOpacity(fill, fillOpacity) : null);
+            shape.setStroke(withOpacity(stroke, strokeOpacity));
+            shape.setStrokeWidth(strokeWidth);
+            shape.setStrokeMiterLimit(strokeMiterLimit);
+            shape.setStrokeLineCap(strokeLineCap);
+            shape.setStrokeLineJoin(strokeLineJoin);
+        }
+
+        private static Paint withOpacity(Paint paint, double opacity) {
+            if (paint instanceof Color && opacity < 1) {
+                Color color = (Color) paint;
+                return color.deriveColor(0, 1, 1, Math.max(0, opacity));
+            }
+            return paint;
+        }
+    }
+
+    private static List<Transform> parseTransform(String value) {
+        List<Transform> transforms = new ArrayList<>();
+        Matcher matcher = TRANSFORM.matcher(value);
+        while (matcher.find()) {
+            double[] args = parseNumbers(matcher.group(2));
+            switch (matcher.group(1)) {
+                case "matrix":
+                    if (args.length == 6) {
+                        transforms.add(new Affine(args[0], args[2], args[4], args[1], args[3], args[5]));
+                    }
+                    break;
+                case "translate":
+                    if (args.length > 0) {
+                        transforms.add(new Translate(args[0], args.length > 1 ? args[1] : 0));
+                    }
+                    break;
+                case "scale":
+                    if (args.length > 0) {
+                        transforms.add(new Scale(args[0], args.length > 1 ? args[1] : args[0]));
+                    }
+                    break;
+                case "rotate":
+                    if (args.length > 0) {
+                        transforms.add(args.length > 2 ? new Rotate(args[0], args[1], args[2]) : new Rotate(args[0]));
+                    }
+                    break;
+                case "skewX":
+                    if (args.length > 0) {
+                        transforms.add(new Shear(Math.tan(Math.toRadians(args[0])), 0));
+                    }
+                    break;
+                case "skewY":
+                    if (args.length > 0) {
+                        transforms.add(new Shear(0, Math.tan(Math.toRadians(args[0]))));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return transforms;
+    }
+
+    private static Map<String, String> parseDeclarations(String text) {
+        Map<String, String> declarations = new LinkedHashMap<>();
+        for (String declaration : text.split(";")) {
+            int index = declaration.indexOf(':');
+            if (index > 0) {
+                declarations.put(declaration.substring(0, index).trim().toLowerCase(Locale.ROOT), declaration.substring(index + 1).trim());
+            }
+        }
+        return declarations;
+    }
+
+    private static List<Element> childElements(Element parent) {
+        List<Element> elements = new ArrayList<>();
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (children.item(i) instanceof Element) {
+                elements.add((Element) children.item(i));
+            }
+        }
+        return elements;
+    }
+
+    private static String localName(Element element) {
+        return element.getLocalName() != null ? element.getLocalName() : element.getTagName();
+    }
+
+    private static double length(Element element, String attribute) {
+        return parseLength(element.getAttribute(attribute), 0);
+    }
+
+    /*
+     * Lengths with absolute units are treated as pixels, percentages are not supported.
+     */
+    private static double parseLength(String value, double defaultValue) {
+        if (value == null || value.isEmpty() || value.endsWith("%")) {
+            return defaultValue;
+        }
+        Matcher matcher = NUMBER.matcher(value);
+        return matcher.find() ? Double.parseDouble(matcher.group()) : defaultValue;
+    }
+
+    private static double parseDouble(String value, double defaultValue) {
+        if (value.endsWith("%")) {
+            return parseLength(value.substring(0, value.length() - 1), defaultValue * 100) / 100;
+        }
+        return parseLength(value, defaultValue);
+    }
+
+    private static double[] parseNumbers(String value) {
+        List<Double> numbers = new ArrayList<>();
+        Matcher matcher = NUMBER.matcher(value);
+        while (matcher.find()) {
+            numbers.add(Double.parseDouble(matcher.group()));
+        }
+        double[] result = new double[numbers.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = numbers.get(i);
+        }
+        return result;
+    }
+}
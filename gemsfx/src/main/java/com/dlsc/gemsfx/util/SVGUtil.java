@@ -4,30 +4,70 @@ import com.github.weisj.jsvg.SVGDocument;
 import com.github.weisj.jsvg.attributes.ViewBox;
 import com.github.weisj.jsvg.geometry.size.FloatSize;
 import com.github.weisj.jsvg.parser.SVGLoader;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A utility class that provides methods for parsing SVG files and converting them to JavaFX Image objects.
  * <p>
  * This class provides methods for loading SVG documents from various sources, such as files, URLs, and input streams, and then rendering them to JavaFX Image objects.
  * </p>
+ * <p>
+ * Requested widths and heights are logical sizes. The output scale factors map them to device pixels,
+ * e.g. an icon requested with a width of 16 and an output scale of 2 (a 200% display) will be rendered
+ * into an image that is 32 pixels wide.
+ * </p>
  * Note for SVGUtil:
  * Currently, due to the limitation that weisj can only render BufferedImage from SVG,
  * SvgImageView does not support usage in native packaging scenarios.
  */
 public final class SVGUtil {
 
+    private static final Logger LOG = Logger.getLogger(SVGUtil.class.getName());
+
+    private static final int PRELOAD_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final ExecutorService PRELOAD_EXECUTOR = Executors.newFixedThreadPool(PRELOAD_THREADS, r -> {
+        Thread thread = new Thread(r);
+        thread.setName("SVG Preload Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
     private SVGUtil() {
     }
 
@@ -100,6 +140,92 @@ public final class SVGUtil {
         return toImage(loadSVGDocument(url), prefWidth, prefHeight, 1, 1);
     }
 
+    /**
+     * Parses and rasterizes the given SVG files at the given sizes in parallel and places
+     * the resulting images in the shared {@link SVGImageCache} (and the {@link SVGDiskCache}
+     * if enabled). An {@link com.dlsc.gemsfx.SVGImageView} that later displays one of the
+     * files with a fit width equal to one of the sizes will then find its image in the cache.
+     * Passing no sizes preloads the images at their intrinsic size.
+     *
+     * @param urls  the URLs of the SVG files.
+     * @param sizes the widths at which the SVG files will be rendered.
+     * @return a future that completes when all files have been processed and that reports the progress.
+     */
+    public static PreloadFuture preload(Collection<URL> urls, double... sizes) {
+        return preloadScaled(urls, 1, sizes);
+    }
+
+    /**
+     * Parses and rasterizes the given SVG files at the given sizes in parallel and places
+     * the resulting images in the shared {@link SVGImageCache} (and the {@link SVGDiskCache}
+     * if enabled). The work is done by a small, bounded pool of background threads, which
+     * makes it possible to warm up the icons of a screen while a splash screen is showing,
+     * e.g. by binding a progress bar to {@link PreloadFuture#progressProperty()}. For example
+     * {@code preloadScaled(urls, 2, 16, 24)} preloads 16 and 24 pixel icons for a 200% display.
+     *
+     * @param urls        the URLs of the SVG files.
+     * @param outputScale the output scale, e.g. the render scale of the window.
+     * @param sizes       the widths at which the SVG files will be rendered.
+     * @return a future that completes when all files have been processed and that reports the progress.
+     */
+    public static PreloadFuture preloadScaled(Collection<URL> urls, double outputScale, double... sizes) {
+        Objects.requireNonNull(urls, "urls can not be null");
+        Objects.requireNonNull(sizes, "sizes can not be null");
+
+        List<URL> list = new ArrayList<>(urls);
+        double[] widths = sizes.length > 0 ? sizes : new double[]{0};
+        PreloadFuture result = new PreloadFuture(list.size());
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            URL url = list.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> preload(url, outputScale, widths), PRELOAD_EXECUTOR)
+                    .whenComplete((ignored, ex) -> {
+                        if (ex != null) {
+                            LOG.log(Level.WARNING, "failed to preload svg: " + url, ex);
+                        }
+                        result.processed();
+                    });
+        }
+
+        CompletableFuture.allOf(futures).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(null);
+            }
+        });
+
+        return result;
+    }
+
+    /*
+     * Parses the document only once and only if at least one of the sizes is neither in the
+     * memory cache nor in the disk cache.
+     */
+    private static void preload(URL url, double outputScale, double[] widths) {
+        SVGDocument svgDocument = null;
+        for (double width : widths) {
+            if (SVGImageCache.getCachedImage(url, width, 0, outputScale, outputScale) != null) {
+                continue;
+            }
+
+            Image image = SVGDiskCache.load(url, width, 0, outputScale, outputScale);
+            if (image == null) {
+                if (svgDocument == null) {
+                    svgDocument = loadSVGDocument(url);
+                    if (svgDocument == null) {
+                        throw new IllegalArgumentException("unable to load svg document: " + url);
+                    }
+                }
+                image = toImage(svgDocument, width, 0, outputScale, outputScale);
+                SVGDiskCache.store(url, width, 0, outputScale, outputScale, image);
+            }
+
+            SVGImageCache.putImage(url, width, 0, outputScale, outputScale, image);
+        }
+    }
+
     private static SVGDocument loadSVGDocument(File svgFile) {
         URL svgUrl;
         try {
@@ -110,7 +236,7 @@ public final class SVGUtil {
         return loadSVGDocument(svgUrl);
     }
 
-    private static SVGDocument loadSVGDocument(URL url) {
+    static SVGDocument loadSVGDocument(URL url) {
         SVGLoader loader = new SVGLoader();
         return loader.load(url);
     }
@@ -122,10 +248,12 @@ public final class SVGUtil {
 
     /**
      * Converts an InputStream representing an SVG file to an Image object with the specified dimensions and scale factors.
+     * The requested size is a logical size, e.g. a requested width of 16 with an output scale of 2 results
+     * in an image that is 32 pixels wide. Without a requested size the intrinsic size of the SVG gets scaled.
      *
      * @param is              the InputStream of the SVG file.
-     * @param requestedWidth  the preferred width of the Image.
-     * @param requestedHeight the preferred height of the Image.
+     * @param requestedWidth  the logical width, the image is requestedWidth &times; outputScaleX pixels wide.
+     * @param requestedHeight the logical height, the image is requestedHeight &times; outputScaleY pixels high.
      * @param outputScaleX    the horizontal scale factor.
      * @param outputScaleY    the vertical scale factor.
      * @return an Image object representing the SVG file.
@@ -138,8 +266,8 @@ public final class SVGUtil {
      * Converts a URL representing an SVG file to an Image object with the specified dimensions and scale factors.
      *
      * @param url             the URL of the SVG file.
-     * @param requestedWidth  the preferred width of the Image.
-     * @param requestedHeight the preferred height of the Image.
+     * @param requestedWidth  the logical width, the image is requestedWidth &times; outputScaleX pixels wide.
+     * @param requestedHeight the logical height, the image is requestedHeight &times; outputScaleY pixels high.
      * @param outputScaleX    the horizontal scale factor.
      * @param outputScaleY    the vertical scale factor.
      * @return an Image object representing the SVG file.
@@ -152,8 +280,8 @@ public final class SVGUtil {
      * Converts a URL string representing an SVG file to an Image object with the specified dimensions and scale factors.
      *
      * @param urlStr          the URL string of the SVG file.
-     * @param requestedWidth  the preferred width of the Image.
-     * @param requestedHeight the preferred height of the Image.
+     * @param requestedWidth  the logical width, the image is requestedWidth &times; outputScaleX pixels wide.
+     * @param requestedHeight the logical height, the image is requestedHeight &times; outputScaleY pixels high.
      * @param outputScaleX    the horizontal scale factor.
      * @param outputScaleY    the vertical scale factor.
      * @return an Image object representing the SVG file.
@@ -166,6 +294,16 @@ public final class SVGUtil {
         }
     }
 
+    /**
+     * Converts an SVG file to an Image object with the specified dimensions and scale factors.
+     *
+     * @param svgFile         the SVG file.
+     * @param requestedWidth  the logical width, the image is requestedWidth &times; outputScaleX pixels wide.
+     * @param requestedHeight the logical height, the image is requestedHeight &times; outputScaleY pixels high.
+     * @param outputScaleX    the horizontal scale factor.
+     * @param outputScaleY    the vertical scale factor.
+     * @return an Image object representing the SVG file.
+     */
     public static Image toImage(File svgFile, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
         return toImage(loadSVGDocument(svgFile), requestedWidth, requestedHeight, outputScaleX, outputScaleY);
     }
@@ -174,11 +312,24 @@ public final class SVGUtil {
         if (svgDocument == null) {
             return null;
         }
-        BufferedImage image = renderImage(svgDocument, requestedWidth, requestedHeight, outputScaleX, outputScaleY);
-        return SwingFXUtils.toFXImage(image, null);
+
+        Dimension size = computeImageSize(svgDocument, requestedWidth, requestedHeight, outputScaleX, outputScaleY);
+
+        /*
+         * Render straight into the pixel array that backs the JavaFX image. This avoids the
+         * second copy and pixel conversion that SwingFXUtils.toFXImage() would perform.
+         * Every render gets its own array, the images are shared through SVGImageCache and
+         * must not change after they have been returned, so a re-render at the same size
+         * (e.g. after SVGImageCache.invalidate()) can not reuse the pixels of the old image.
+         */
+        int[] pixels = new int[size.width * size.height];
+        renderImage(svgDocument, createBufferedImage(pixels, size.width, size.height));
+
+        IntBuffer buffer = IntBuffer.wrap(pixels);
+        return new WritableImage(new PixelBuffer<>(size.width, size.height, buffer, PixelFormat.getIntArgbPreInstance()));
     }
 
-    private static BufferedImage renderImage(SVGDocument svgDocument, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
+    static Dimension computeImageSize(SVGDocument svgDocument, double requestedWidth, double requestedHeight, double outputScaleX, double outputScaleY) {
         FloatSize size = svgDocument.size();
         double width = size.width;
         double height = size.height;
@@ -190,11 +341,36 @@ public final class SVGUtil {
             requestedWidth = requestedHeight * aspectRatio;
         }
 
-        width = requestedWidth > 0 ? requestedWidth : width * outputScaleX;
-        height = requestedHeight > 0 ? requestedHeight : height * outputScaleY;
+        // the requested size is given in logical pixels, the output scale maps it to device pixels
+        width = (requestedWidth > 0 ? requestedWidth : width) * outputScaleX;
+        height = (requestedHeight > 0 ? requestedHeight : height) * outputScaleY;
+
+        return new Dimension(Math.max(1, (int) Math.ceil(width)), Math.max(1, (int) Math.ceil(height)));
+    }
 
-        BufferedImage image = new BufferedImage((int) width, (int) height, BufferedImage.TYPE_INT_ARGB);
+    /*
+     * Creates a buffered image that uses the given array as its pixel storage. The layout
+     * is the same as the one of PixelFormat.getIntArgbPreInstance(), which means that both
+     * AWT and JavaFX can operate on the very same pixels.
+     */
+    static BufferedImage createBufferedImage(int[] pixels, int width, int height) {
+        DirectColorModel colorModel = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), 32,
+                0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000, true, DataBuffer.TYPE_INT);
+        DataBufferInt dataBuffer = new DataBufferInt(pixels, pixels.length);
+        WritableRaster raster = Raster.createPackedRaster(dataBuffer, width, height, width, colorModel.getMasks(), null);
+        return new BufferedImage(colorModel, raster, true, null);
+    }
+
+    static void renderImage(SVGDocument svgDocument, BufferedImage image) {
         Graphics2D g2d = image.createGraphics();
+        render(svgDocument, g2d, image.getWidth(), image.getHeight());
+        g2d.dispose();
+    }
+
+    /*
+     * Renders the document into the area (0, 0, width, height) of the given graphics.
+     */
+    static void render(SVGDocument svgDocument, Graphics2D g2d, int width, int height) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
@@ -202,8 +378,55 @@ public final class SVGUtil {
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
 
-        svgDocument.render(null, g2d, new ViewBox(0, 0, (float) width, (float) height));
-        g2d.dispose();
-        return image;
+        svgDocument.render(null, g2d, new ViewBox(0, 0, width, height));
+    }
+
+    /**
+     * The future returned by the preload methods. Besides signalling completion it
+     * reports how many of the SVG files have been processed so far.
+     */
+    public static final class PreloadFuture extends CompletableFuture<Void> {
+
+        private final int total;
+        private final AtomicInteger processed = new AtomicInteger();
+
+        // only accessed on the FX thread, created on demand as it requires the toolkit
+        private ReadOnlyDoubleWrapper progress;
+        private volatile boolean progressObserved;
+
+        private PreloadFuture(int total) {
+            this.total = total;
+        }
+
+        private void processed() {
+            processed.incrementAndGet();
+            if (progressObserved) {
+                Platform.runLater(() -> progress.set(getProgress()));
+            }
+        }
+
+        /**
+         * Returns the progress, a value between 0 (nothing processed, yet) and 1 (all
+         * files processed). Can be called from any thread.
+         *
+         * @return the progress
+         */
+        public double getProgress() {
+            return total == 0 ? 1 : (double) processed.get() / total;
+        }
+
+        /**
+         * The progress as an observable property, updated on the JavaFX application
+         * thread. This method has to be called on the JavaFX application thread.
+         *
+         * @return the progress property
+         */
+        public ReadOnlyDoubleProperty progressProperty() {
+            if (progress == null) {
+                progress = new ReadOnlyDoubleWrapper(this, "progress", getProgress());
+                progressObserved = true;
+            }
+            return progress.getReadOnlyProperty();
+        }
     }
 }
@@ -2,7 +2,6 @@ module ch.eswitch.gemsfx {
     requires javafx.base;
     requires transitive javafx.controls;
     requires javafx.graphics;
-    requires javafx.swing;
     requires com.github.weisj.jsvg;
 
     requires jpro.utils.treeshowing;
@@ -13,6 +12,7 @@ module ch.eswitch.gemsfx {
     requires org.kordamp.ikonli.bootstrapicons;
 
     requires java.logging;
+    requires java.xml;
     requires java.prefs;
 
     requires net.synedra.validatorfx;
@@ -36,4 +36,5 @@ module ch.eswitch.gemsfx {
     exports com.dlsc.gemsfx.infocenter;
     exports com.dlsc.gemsfx.treeview;
     exports com.dlsc.gemsfx.treeview.link;
+    exports com.dlsc.gemsfx.treeview.layout;
 }
\ No newline at end of file
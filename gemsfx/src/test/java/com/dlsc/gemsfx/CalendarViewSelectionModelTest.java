@@ -0,0 +1,110 @@
+package com.dlsc.gemsfx;
+
+import com.dlsc.gemsfx.CalendarView.SelectionModel;
+import com.dlsc.gemsfx.CalendarView.SelectionModel.SelectionMode;
+import javafx.collections.FXCollections;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CalendarViewSelectionModelTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 10);
+
+    @Test
+    public void shouldTrackSelectedDates() {
+        // given
+        SelectionModel model = new SelectionModel();
+        model.setSelectionMode(SelectionMode.MULTIPLE_DATES);
+
+        // when
+        model.select(DATE);
+        model.select(DATE);
+        model.getSelectedDates().add(DATE.plusDays(1));
+
+        // then
+        assertEquals(List.of(DATE, DATE.plusDays(1)), model.getSelectedDates());
+        assertTrue(model.isSelected(DATE));
+        assertTrue(model.isSelected(DATE.plusDays(1)));
+        assertFalse(model.isSelected(DATE.plusDays(2)));
+
+        // when
+        model.clearSelection(DATE);
+
+        // then
+        assertFalse(model.isSelected(DATE));
+        assertTrue(model.isSelected(DATE.plusDays(1)));
+    }
+
+    @Test
+    public void shouldTrackReplacedList() {
+        // given
+        SelectionModel model = new SelectionModel();
+        model.setSelectionMode(SelectionMode.MULTIPLE_DATES);
+        model.select(DATE);
+
+        // when
+        model.setSelectedDates(FXCollections.observableArrayList(DATE.plusDays(5), DATE.plusDays(5)));
+
+        // then
+        assertFalse(model.isSelected(DATE));
+        assertTrue(model.isSelected(DATE.plusDays(5)));
+
+        // when, one of the two entries is removed
+        model.getSelectedDates().remove(0);
+
+        // then
+        assertTrue(model.isSelected(DATE.plusDays(5)));
+    }
+
+    @Test
+    public void shouldSelectAndClearRange() {
+        // given
+        SelectionModel model = new SelectionModel();
+        model.setSelectionMode(SelectionMode.MULTIPLE_DATES);
+        model.select(DATE.plusDays(3));
+
+        // when
+        model.selectRange(DATE, DATE.plusDays(9));
+
+        // then
+        assertEquals(10, model.getSelectedDates().size());
+        assertTrue(model.isSelected(DATE));
+        assertTrue(model.isSelected(DATE.plusDays(9)));
+
+        // when
+        model.clearSelectionRange(DATE.plusDays(2), DATE.plusDays(7));
+
+        // then
+        assertEquals(List.of(DATE, DATE.plusDays(1), DATE.plusDays(8), DATE.plusDays(9)), model.getSelectedDates());
+        assertFalse(model.isSelected(DATE.plusDays(3)));
+    }
+
+    @Test
+    public void shouldSelectRangeInDateRangeMode() {
+        // given
+        SelectionModel model = new SelectionModel();
+        model.setSelectionMode(SelectionMode.DATE_RANGE);
+
+        // when
+        model.selectRange(DATE, DATE.plusDays(4));
+
+        // then
+        assertEquals(DATE, model.getSelectedDate());
+        assertEquals(DATE.plusDays(4), model.getSelectedEndDate());
+        assertTrue(model.isSelected(DATE.plusDays(2)));
+
+        // when
+        model.clearSelectionRange(DATE.plusDays(3), DATE.plusDays(10));
+
+        // then
+        assertEquals(DATE, model.getSelectedDate());
+        assertNull(model.getSelectedEndDate());
+    }
+}
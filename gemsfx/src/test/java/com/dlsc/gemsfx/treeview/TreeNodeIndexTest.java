@@ -0,0 +1,89 @@
+package com.dlsc.gemsfx.treeview;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TreeNodeIndexTest {
+
+    @Test
+    public void shouldFindNodesByPrefix() {
+        // given
+        TreeNode<String> root = createTree();
+        TreeNodeIndex<String> index = new TreeNodeIndex<>(root);
+
+        // when
+        List<TreeNode<String>> result = index.search("ann");
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals("Anna Miller", result.get(0).getValue());
+        assertEquals("Annette Smith", result.get(1).getValue());
+    }
+
+    @Test
+    public void shouldRequireAllWordsOfQuery() {
+        // given
+        TreeNodeIndex<String> index = new TreeNodeIndex<>(createTree());
+
+        // when
+        List<TreeNode<String>> result = index.search("SMI, ann");
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals("Annette Smith", result.get(0).getValue());
+    }
+
+    @Test
+    public void shouldSearchNamesAndCollapsedSubtrees() {
+        // given
+        TreeNode<String> root = createTree();
+        root.getChildren().get(1).setExpanded(false);
+        TreeNodeIndex<String> index = new TreeNodeIndex<>(root);
+
+        // when
+        List<TreeNode<String>> result = index.search("sales smith");
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals("Annette Smith", result.get(0).getValue());
+    }
+
+    @Test
+    public void shouldReturnEmptyListForBlankQuery() {
+        // given
+        TreeNodeIndex<String> index = new TreeNodeIndex<>(createTree());
+
+        // when, then
+        assertEquals(5, index.size());
+        assertTrue(index.search(" - ").isEmpty());
+        assertTrue(index.search("xyz").isEmpty());
+    }
+
+    /*
+     * Creates the tree
+     *   John Smith
+     *     Anna Miller (development)
+     *     Peter Jones (sales)
+     *       Annette Smith (sales)
+     *       Bob Brown (sales)
+     */
+    private TreeNode<String> createTree() {
+        TreeNode<String> root = new TreeNode<>("John Smith");
+        TreeNode<String> anna = new TreeNode<>("Anna Miller");
+        anna.setName("development");
+        TreeNode<String> peter = new TreeNode<>("Peter Jones");
+        peter.setName("sales");
+        TreeNode<String> annette = new TreeNode<>("Annette Smith");
+        annette.setName("sales");
+        TreeNode<String> bob = new TreeNode<>("Bob Brown");
+        bob.setName("sales");
+
+        peter.getChildren().addAll(annette, bob);
+        root.getChildren().addAll(anna, peter);
+        return root;
+    }
+}
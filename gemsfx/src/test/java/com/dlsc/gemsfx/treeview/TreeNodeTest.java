@@ -0,0 +1,283 @@
+package com.dlsc.gemsfx.treeview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TreeNodeTest {
+
+    @Test
+    public void shouldUpdateDepthOfDescendants() {
+        // given
+        TreeNode<String> root = new TreeNode<>("root");
+        TreeNode<String> child = new TreeNode<>("child");
+        TreeNode<String> grandChild = new TreeNode<>("grandChild");
+        child.getChildren().add(grandChild);
+
+        // when
+        root.getChildren().add(child);
+
+        // then
+        assertEquals(0, root.getDepth());
+        assertEquals(1, child.getDepth());
+        assertEquals(2, grandChild.getDepth());
+
+        // when
+        root.getChildren().remove(child);
+
+        // then
+        assertEquals(0, child.getDepth());
+        assertEquals(1, grandChild.getDepth());
+    }
+
+    @Test
+    public void shouldUpdateIndices() {
+        // given
+        TreeNode<String> root = new TreeNode<>("root");
+        TreeNode<String> a = new TreeNode<>("a");
+        TreeNode<String> b = new TreeNode<>("b");
+        TreeNode<String> c = new TreeNode<>("c");
+        root.getChildren().addAll(a, b, c);
+
+        // when
+        root.getChildren().remove(a);
+
+        // then
+        assertEquals(-1, a.getIndex());
+        assertEquals(0, b.getIndex());
+        assertEquals(1, c.getIndex());
+        assertTrue(b.isFirstChild());
+        assertTrue(c.isLastChild());
+
+        // when
+        root.getChildren().add(0, a);
+
+        // then
+        assertEquals(0, a.getIndex());
+        assertEquals(1, b.getIndex());
+        assertEquals(2, c.getIndex());
+        assertFalse(b.isFirstChild());
+    }
+
+    @Test
+    public void shouldUpdateSubtreeSize() {
+        // given
+        TreeNode<String> root = new TreeNode<>("root");
+        TreeNode<String> child = new TreeNode<>("child");
+        root.getChildren().add(child);
+
+        TreeNode<String> subtree = new TreeNode<>("subtree");
+        subtree.getChildren().addAll(new TreeNode<>("x"), new TreeNode<>("y"));
+
+        // when
+        child.getChildren().add(subtree);
+
+        // then
+        assertEquals(5, root.getSubtreeSize());
+        assertEquals(4, child.getSubtreeSize());
+        assertEquals(3, subtree.getSubtreeSize());
+
+        // when
+        child.getChildren().clear();
+
+        // then
+        assertEquals(2, root.getSubtreeSize());
+        assertEquals(3, subtree.getSubtreeSize());
+    }
+
+    @Test
+    public void shouldKeepParentWhenReplacingWithSameChildren() {
+        // given
+        TreeNode<String> root = new TreeNode<>("root");
+        TreeNode<String> a = new TreeNode<>("a");
+        TreeNode<String> b = new TreeNode<>("b");
+        root.getChildren().addAll(a, b);
+
+        // when
+        root.getChildren().setAll(b, a);
+
+        // then
+        assertEquals(root, a.getParent());
+        assertEquals(root, b.getParent());
+        assertEquals(1, a.getIndex());
+        assertEquals(0, b.getIndex());
+        assertEquals(3, root.getSubtreeSize());
+    }
+
+    @Test
+    public void shouldStreamBreadthFirst() {
+        // given
+        TreeNode<String> root = createTree();
+
+        // when
+        List<String> values = root.stream().map(TreeNode::getValue).collect(Collectors.toList());
+
+        // then
+        assertEquals(List.of("root", "a", "b", "a1", "a2", "b1"), values);
+    }
+
+    @Test
+    public void shouldStreamDepthFirst() {
+        // given
+        TreeNode<String> root = createTree();
+
+        // when
+        List<String> values = root.depthFirstStream().map(TreeNode::getValue).collect(Collectors.toList());
+
+        // then
+        assertEquals(List.of("root", "a", "a1", "a2", "b", "b1"), values);
+    }
+
+    @Test
+    public void shouldReportSize() {
+        // given
+        TreeNode<String> root = createTree();
+
+        // when
+        Spliterator<TreeNode<String>> breadthFirst = root.breadthFirstStream().spliterator();
+        Spliterator<TreeNode<String>> depthFirst = root.depthFirstStream().spliterator();
+
+        // then
+        assertEquals(6, breadthFirst.getExactSizeIfKnown());
+        assertEquals(6, depthFirst.getExactSizeIfKnown());
+    }
+
+    @Test
+    public void shouldKeepOrderInParallelStreams() {
+        // given
+        TreeNode<Integer> root = new TreeNode<>(0);
+        List<TreeNode<Integer>> nodes = new ArrayList<>(List.of(root));
+        Random random = new Random(42);
+        for (int i = 1; i < 50_000; i++) {
+            TreeNode<Integer> node = new TreeNode<>(i);
+            nodes.get(random.nextInt(i)).getChildren().add(node);
+            nodes.add(node);
+        }
+
+        // when
+        List<TreeNode<Integer>> depthFirst = root.depthFirstStream().parallel().collect(Collectors.toList());
+        List<TreeNode<Integer>> breadthFirst = root.breadthFirstStream().parallel().collect(Collectors.toList());
+
+        // then
+        assertEquals(root.depthFirstStream().collect(Collectors.toList()), depthFirst);
+        assertEquals(root.breadthFirstStream().collect(Collectors.toList()), breadthFirst);
+        assertEquals(50_000, depthFirst.size());
+    }
+
+    @Test
+    public void shouldNotCallFailingChildrenProviderAgain() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        TreeNode<String> node = new TreeNode<>("node");
+        node.setChildrenProvider(n -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("server not available");
+        });
+
+        // when
+        node.loadChildren();
+        node.loadChildren();
+
+        // then
+        assertEquals(1, calls.get());
+        assertTrue(node.loadChildren().isCompletedExceptionally());
+        assertNotNull(node.getLoadingError());
+        assertFalse(node.isLoading());
+        assertFalse(node.isChildrenLoadingRequired());
+        assertFalse(node.isLeaf());
+    }
+
+    @Test
+    public void shouldRetryFailedChildrenProvider() {
+        // given
+        AtomicInteger calls = new AtomicInteger();
+        TreeNode<String> node = new TreeNode<>("node");
+        node.setChildrenProvider(n -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        node.loadChildren();
+
+        // when
+        node.setExpanded(false);
+        node.setExpanded(true);
+
+        // then
+        assertEquals(2, calls.get());
+
+        // when
+        node.retryLoadingChildren();
+
+        // then
+        assertEquals(3, calls.get());
+        assertTrue(node.getLoadingError() instanceof NullPointerException);
+    }
+
+    @Test
+    public void shouldClearLoadingErrorWhenRetrying() {
+        // given
+        TreeNode<String> node = new TreeNode<>("node");
+        AtomicInteger calls = new AtomicInteger();
+        node.setChildrenProvider(n -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("server not available");
+            }
+            return new CompletableFuture<>();
+        });
+        node.loadChildren();
+
+        // when
+        node.retryLoadingChildren();
+
+        // then
+        assertNull(node.getLoadingError());
+        assertTrue(node.isLoading());
+    }
+
+    @Test
+    public void shouldFailWhenChildrenProviderCompletesWithNull() {
+        // given
+        TreeNode<String> node = new TreeNode<>("node");
+        node.setChildrenProvider(n -> new CompletableFuture<>());
+        CompletableFuture<List<TreeNode<String>>> result = node.loadChildren();
+
+        // when (the future of the provider completed with null)
+        node.childrenLoaded(result, null, null);
+
+        // then
+        assertTrue(result.isCompletedExceptionally());
+        assertTrue(node.getLoadingError() instanceof NullPointerException);
+        assertFalse(node.isLoading());
+        assertTrue(node.getChildren().isEmpty());
+
+        // when
+        CompletableFuture<List<TreeNode<String>>> retried = node.retryLoadingChildren();
+
+        // then
+        assertFalse(retried.isDone());
+        assertNull(node.getLoadingError());
+        assertTrue(node.isLoading());
+    }
+
+    private TreeNode<String> createTree() {
+        TreeNode<String> root = new TreeNode<>("root");
+        TreeNode<String> a = new TreeNode<>("a");
+        TreeNode<String> b = new TreeNode<>("b");
+        a.getChildren().addAll(new TreeNode<>("a1"), new TreeNode<>("a2"));
+        b.getChildren().add(new TreeNode<>("b1"));
+        root.getChildren().addAll(a, b);
+        return root;
+    }
+}
@@ -0,0 +1,56 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView.LayoutDirection;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Pins the positions computed by the regular layout so that the port to the
+ * array based layout data keeps producing the same trees.
+ */
+public class RegularTreeLayoutTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private static final int[] PARENT = {-1, 0, 0, 0};
+    private static final double[] WIDTH = {20, 10, 10, 10};
+    private static final double[] HEIGHT = {10, 10, 10, 10};
+
+    @Test
+    public void shouldPlaceTreeTopToBottom() {
+        // given
+        TreeLayoutData data = new TreeLayoutData(4, PARENT, WIDTH, HEIGHT, LayoutDirection.TOP_TO_BOTTOM, 5, 7, 0, VPos.TOP, HPos.LEFT);
+
+        // when
+        new RegularTreeLayout().layout(data);
+
+        // then
+        assertPosition(data, 0, 10, 0);
+        assertPosition(data, 1, 0, 17);
+        assertPosition(data, 2, 15, 17);
+        assertPosition(data, 3, 30, 17);
+    }
+
+    @Test
+    public void shouldPlaceTreeLeftToRight() {
+        // given
+        TreeLayoutData data = new TreeLayoutData(4, PARENT, WIDTH, HEIGHT, LayoutDirection.LEFT_TO_RIGHT, 7, 5, 0, VPos.TOP, HPos.LEFT);
+
+        // when
+        new RegularTreeLayout().layout(data);
+
+        // then
+        assertPosition(data, 0, 0, 15);
+        assertPosition(data, 1, 27, 0);
+        assertPosition(data, 2, 27, 15);
+        assertPosition(data, 3, 27, 30);
+    }
+
+    private static void assertPosition(TreeLayoutData data, int node, double x, double y) {
+        assertEquals("x of node " + node, x, data.getX(node), EPSILON);
+        assertEquals("y of node " + node, y, data.getY(node), EPSILON);
+    }
+}
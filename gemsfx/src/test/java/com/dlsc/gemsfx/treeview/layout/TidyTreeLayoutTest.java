@@ -0,0 +1,214 @@
+package com.dlsc.gemsfx.treeview.layout;
+
+import com.dlsc.gemsfx.treeview.TreeNodeView.LayoutDirection;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TidyTreeLayoutTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private static final double HGAP = 5;
+    private static final double VGAP = 7;
+
+    @Test
+    public void shouldPlaceSmallTree() {
+        // given
+        int[] parent = {-1, 0, 0, 0};
+        double[] width = {20, 10, 10, 10};
+        double[] height = {10, 10, 10, 10};
+        TreeLayoutData data = new TreeLayoutData(4, parent, width, height, LayoutDirection.TOP_TO_BOTTOM, HGAP, VGAP, 0, VPos.TOP, HPos.LEFT);
+
+        // when
+        new TidyTreeLayout().layout(data);
+
+        // then
+        assertEquals(10, data.getX(0), EPSILON);
+        assertEquals(0, data.getY(0), EPSILON);
+
+        assertEquals(0, data.getX(1), EPSILON);
+        assertEquals(15, data.getX(2), EPSILON);
+        assertEquals(30, data.getX(3), EPSILON);
+        for (int i = 1; i < 4; i++) {
+            assertEquals(17, data.getY(i), EPSILON);
+        }
+    }
+
+    @Test
+    public void shouldNotOverlapNodesOfSameLevel() {
+        for (LayoutDirection direction : LayoutDirection.values()) {
+            // given
+            TreeLayoutData data = createRandomTree(2_000, direction, new Random(42));
+
+            // when
+            new TidyTreeLayout().layout(data);
+
+            // then
+            assertNoOverlap(data);
+        }
+    }
+
+    @Test
+    public void shouldCenterParentsOverChildren() {
+        for (LayoutDirection direction : LayoutDirection.values()) {
+            // given
+            TreeLayoutData data = createRandomTree(2_000, direction, new Random(7));
+
+            // when
+            new TidyTreeLayout().layout(data);
+
+            // then
+            for (int node = 0; node < data.getSize(); node++) {
+                int childCount = data.getChildCount(node);
+                if (childCount == 0) {
+                    continue;
+                }
+                double firstCenter = breadthCenter(data, data.getChild(node, 0));
+                double lastCenter = breadthCenter(data, data.getChild(node, childCount - 1));
+                assertEquals(direction + ", node " + node, (firstCenter + lastCenter) / 2, breadthCenter(data, node), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void shouldPlaceLevelsInRowsOrColumns() {
+        for (LayoutDirection direction : LayoutDirection.values()) {
+            // given
+            TreeLayoutData data = createRandomTree(500, direction, new Random(3));
+            boolean reversed = direction == LayoutDirection.BOTTOM_TO_TOP || direction == LayoutDirection.RIGHT_TO_LEFT;
+
+            // when
+            new TidyTreeLayout().layout(data);
+
+            // then
+            double[] levelPosition = new double[data.getLevelCount()];
+            Arrays.fill(levelPosition, Double.NaN);
+            for (int node = 0; node < data.getSize(); node++) {
+                int level = data.getDepth(node);
+                if (Double.isNaN(levelPosition[level])) {
+                    levelPosition[level] = depthPosition(data, node);
+                } else {
+                    assertEquals(direction + ", node " + node, levelPosition[level], depthPosition(data, node), EPSILON);
+                }
+            }
+
+            for (int level = 1; level < levelPosition.length; level++) {
+                if (reversed) {
+                    assertTrue(direction + ", level " + level, levelPosition[level] < levelPosition[level - 1]);
+                } else {
+                    assertTrue(direction + ", level " + level, levelPosition[level] > levelPosition[level - 1] + data.getMaxDimension(level - 1));
+                }
+            }
+
+            // the tree starts at the leading edge of the breadth axis
+            double minBreadth = Double.MAX_VALUE;
+            for (int node = 0; node < data.getSize(); node++) {
+                minBreadth = Math.min(minBreadth, breadthPosition(data, node));
+            }
+            assertEquals(direction.toString(), 0, minBreadth, EPSILON);
+        }
+    }
+
+    @Test
+    public void shouldLayoutLargeTreesInLinearTime() {
+        // given
+        TreeLayoutData wideTree = createRandomTree(100_000, LayoutDirection.TOP_TO_BOTTOM, new Random(1));
+
+        int[] parent = new int[100_000];
+        double[] size = new double[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i - 1;
+            size[i] = 10;
+        }
+        TreeLayoutData deepTree = new TreeLayoutData(parent.length, parent, size, size, LayoutDirection.TOP_TO_BOTTOM, HGAP, VGAP, 0, VPos.TOP, HPos.LEFT);
+
+        // when
+        long start = System.nanoTime();
+        new TidyTreeLayout().layout(wideTree);
+        new TidyTreeLayout().layout(deepTree);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertTrue("layout of 200,000 nodes took " + millis + " ms", millis < 5_000);
+        assertNoOverlap(wideTree);
+        assertEquals(deepTree.getX(0), deepTree.getX(deepTree.getSize() - 1), EPSILON);
+    }
+
+    /*
+     * Creates a tree in breadth-first order with zero to four children per node and
+     * random node sizes.
+     */
+    private static TreeLayoutData createRandomTree(int size, LayoutDirection direction, Random random) {
+        int[] parent = new int[size];
+        double[] width = new double[size];
+        double[] height = new double[size];
+
+        parent[0] = -1;
+        int next = 1;
+        for (int node = 0; node < size && next < size; node++) {
+            int childCount = random.nextInt(5);
+            if (childCount == 0 && node == next - 1) {
+                // the last node that has been created so far needs children or the tree stops growing
+                childCount = 1;
+            }
+            for (int n = 0; n < childCount && next < size; n++) {
+                parent[next++] = node;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            width[i] = 20 + random.nextInt(60);
+            height[i] = 10 + random.nextInt(30);
+        }
+
+        return new TreeLayoutData(size, parent, width, height, direction, HGAP, VGAP, 2, VPos.TOP, HPos.LEFT);
+    }
+
+    private static void assertNoOverlap(TreeLayoutData data) {
+        double gap = data.isVertical() ? data.getHgap() : data.getVgap();
+
+        List<List<Integer>> levels = new ArrayList<>();
+        for (int level = 0; level < data.getLevelCount(); level++) {
+            levels.add(new ArrayList<>());
+        }
+        for (int node = 0; node < data.getSize(); node++) {
+            levels.get(data.getDepth(node)).add(node);
+        }
+
+        for (List<Integer> level : levels) {
+            level.sort(Comparator.comparingDouble(node -> breadthPosition(data, node)));
+            for (int i = 1; i < level.size(); i++) {
+                int left = level.get(i - 1);
+                int right = level.get(i);
+                double leftEnd = breadthPosition(data, left) + breadthSize(data, left);
+                assertTrue("nodes " + left + " and " + right + " overlap", breadthPosition(data, right) >= leftEnd + gap - EPSILON);
+            }
+        }
+    }
+
+    private static double breadthPosition(TreeLayoutData data, int node) {
+        return data.isVertical() ? data.getX(node) : data.getY(node);
+    }
+
+    private static double breadthSize(TreeLayoutData data, int node) {
+        return data.isVertical() ? data.getWidth(node) : data.getHeight(node);
+    }
+
+    private static double breadthCenter(TreeLayoutData data, int node) {
+        return breadthPosition(data, node) + breadthSize(data, node) / 2;
+    }
+
+    private static double depthPosition(TreeLayoutData data, int node) {
+        return data.isVertical() ? data.getY(node) : data.getX(node);
+    }
+}
@@ -0,0 +1,60 @@
+package com.dlsc.gemsfx.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ImageUtilTest {
+
+    @Test
+    public void shouldAverageCoveredPixels() {
+        // given
+        int[] pixels = {
+                0xFF000000, 0xFFFFFFFF,
+                0xFFFFFFFF, 0xFF000000
+        };
+
+        // when
+        int[] result = ImageUtil.downscale(pixels, 2, 2, 1, 1);
+
+        // then
+        assertEquals(1, result.length);
+        assertEquals(0xFF808080, result[0]);
+    }
+
+    @Test
+    public void shouldKeepUniformColor() {
+        // given
+        int[] pixels = new int[7 * 5];
+        Arrays.fill(pixels, 0x80402010);
+
+        // when
+        int[] result = ImageUtil.downscale(pixels, 7, 5, 3, 2);
+
+        // then
+        int[] expected = new int[3 * 2];
+        Arrays.fill(expected, 0x80402010);
+        assertArrayEquals(expected, result);
+    }
+
+    @Test
+    public void shouldBoundSizePreservingAspectRatio() {
+        // when
+        int[] size = ImageUtil.computeBoundedSize(4000, 3000, 400);
+
+        // then
+        assertArrayEquals(new int[]{400, 300}, size);
+    }
+
+    @Test
+    public void shouldNotBoundSizeWithoutLimit() {
+        // when
+        int[] size = ImageUtil.computeBoundedSize(4000, 3000, -1);
+
+        // then
+        assertArrayEquals(new int[]{4000, 3000}, size);
+    }
+}
@@ -0,0 +1,197 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SVGDiskCacheTest {
+
+    private static final int[] PIXELS = {
+            0xFF000000, 0xFFFF0000, 0x80800000,
+            0x00000000, 0xFF00FF00, 0xFF0000FF
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path cacheDirectory;
+    private Path source;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = folder.newFolder("cache").toPath();
+        source = folder.newFile("icon.svg").toPath();
+        writeSource("<svg xmlns='http://www.w3.org/2000/svg' width='3' height='2'/>");
+        url = source.toUri().toURL();
+
+        SVGDiskCache.setDirectory(cacheDirectory);
+        SVGDiskCache.clear();
+        SVGImageCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        SVGDiskCache.clear();
+        SVGDiskCache.setDirectory(null);
+        SVGImageCache.clear();
+    }
+
+    @Test
+    public void shouldReadStoredRaster() {
+        // given
+        SVGDiskCache.store(url, 16, 0, 2, 2, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+
+        // when
+        Image image = SVGDiskCache.load(url, 16, 0, 2, 2);
+
+        // then
+        assertNotNull(image);
+        assertEquals(3, image.getWidth(), 0);
+        assertEquals(2, image.getHeight(), 0);
+        assertArrayEquals(PIXELS, readPixels(image));
+
+        // the height follows from the width, the output scale is part of the key
+        assertNotNull(SVGDiskCache.load(url, 16, 16, 2, 2));
+        assertNull(SVGDiskCache.load(url, 16, 0, 1, 1));
+        assertNull(SVGDiskCache.load(url, 24, 0, 2, 2));
+    }
+
+    @Test
+    public void shouldReadStoredRasterInNextSession() {
+        // given
+        SVGDiskCache.store(url, 16, 0, 1, 1, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+        SVGDiskCache.forgetValidatedSources();
+
+        // when
+        Image image = SVGDiskCache.load(url, 16, 0, 1, 1);
+        SVGDiskCache.awaitBackgroundTasks();
+
+        // then
+        assertNotNull(image);
+        assertArrayEquals(PIXELS, readPixels(image));
+        assertEquals(1, rasterFiles().size());
+    }
+
+    @Test
+    public void shouldDeleteRastersOfChangedSource() throws IOException {
+        // given
+        SVGDiskCache.store(url, 16, 0, 1, 1, createImage());
+        SVGDiskCache.store(url, 24, 0, 1, 1, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+        SVGDiskCache.forgetValidatedSources();
+        writeSource("<svg xmlns='http://www.w3.org/2000/svg' width='6' height='4'/>");
+
+        // when
+        Image stale = SVGDiskCache.load(url, 16, 0, 1, 1);
+        SVGDiskCache.awaitBackgroundTasks();
+
+        // then
+        // returned right away, the source gets validated in the background
+        assertNotNull(stale);
+        assertTrue(rasterFiles().isEmpty());
+        assertNull(SVGDiskCache.load(url, 16, 0, 1, 1));
+        assertNull(SVGDiskCache.load(url, 24, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldIgnoreTruncatedRaster() throws IOException {
+        // given
+        SVGDiskCache.store(url, 16, 0, 1, 1, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+        Path file = rasterFiles().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        // when
+        Image image = SVGDiskCache.load(url, 16, 0, 1, 1);
+
+        // then
+        assertNull(image);
+        assertTrue(rasterFiles().isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreCorruptRaster() throws IOException {
+        // given
+        SVGDiskCache.store(url, 16, 0, 1, 1, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+        Path file = rasterFiles().get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        Arrays.fill(bytes, 0, 8, (byte) 0x7F);
+        Files.write(file, bytes);
+
+        // when
+        Image image = SVGDiskCache.load(url, 16, 0, 1, 1);
+
+        // then
+        assertNull(image);
+        assertTrue(rasterFiles().isEmpty());
+    }
+
+    @Test
+    public void shouldLoadAllRastersIntoMemoryCache() throws IOException {
+        // given
+        SVGDiskCache.store(url, 16, 0, 1, 1, createImage());
+        SVGDiskCache.store(url, 16, 0, 2, 2, createImage());
+        SVGDiskCache.awaitBackgroundTasks();
+        Files.write(cacheDirectory.resolve("garbage.raster"), "not a raster".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        SVGDiskCache.loadAll().join();
+
+        // then
+        assertEquals(2, SVGImageCache.size());
+        assertNotNull(SVGImageCache.getCachedImage(url, 16, 0, 1, 1));
+        assertNotNull(SVGImageCache.getCachedImage(url, 16, 0, 2, 2));
+        assertEquals(2, rasterFiles().size());
+    }
+
+    private void writeSource(String svg) throws IOException {
+        Files.writeString(source, svg, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> rasterFiles() {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            return files.filter(file -> file.toString().endsWith(".raster")).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Image createImage() {
+        int[] pixels = PIXELS.clone();
+        return new WritableImage(new PixelBuffer<>(3, 2, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance()));
+    }
+
+    private static int[] readPixels(Image image) {
+        int[] pixels = new int[PIXELS.length];
+        image.getPixelReader().getPixels(0, 0, 3, 2, PixelFormat.getIntArgbPreInstance(), pixels, 0, 3);
+        return pixels;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.geometry.Rectangle2D;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SVGIconAtlasTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldCreateAtlasWithLiteralSizes() throws IOException {
+        // given
+        URL wide = createSVG("wide.svg", 24, 12);
+        URL square = createSVG("square.svg", 10, 10);
+
+        // when
+        SVGIconAtlas atlas = SVGIconAtlas.create(List.of(wide, square, wide), 16, 24);
+
+        // then
+        assertEquals(4, atlas.getIconCount());
+        assertEquals(1, atlas.getOutputScale(), 0);
+        assertSize(atlas.getViewport(wide, 16), 16, 8);
+        assertSize(atlas.getViewport(wide, 24), 24, 12);
+        assertSize(atlas.getViewport(square, 16), 16, 16);
+        assertNull(atlas.getViewport(square, 32));
+    }
+
+    @Test
+    public void shouldCreateAtlasWithOutputScale() throws IOException {
+        // given
+        URL wide = createSVG("wide.svg", 24, 12);
+
+        // when
+        SVGIconAtlas atlas = SVGIconAtlas.createScaled(List.of(wide), 2, 16);
+
+        // then
+        assertEquals(1, atlas.getIconCount());
+        assertEquals(2, atlas.getOutputScale(), 0);
+        assertSize(atlas.getViewport(wide, 16), 32, 16);
+    }
+
+    private URL createSVG(String name, int width, int height) throws IOException {
+        File file = folder.newFile(name);
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='" + width + "' height='" + height + "'>"
+                + "<rect width='" + width + "' height='" + height + "' fill='red'/>"
+                + "</svg>";
+        Files.writeString(file.toPath(), svg, StandardCharsets.UTF_8);
+        return file.toURI().toURL();
+    }
+
+    private static void assertSize(Rectangle2D viewport, double width, double height) {
+        assertEquals(width, viewport.getWidth(), 0);
+        assertEquals(height, viewport.getHeight(), 0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SVGImageCacheTest {
+
+    // 10 x 10 pixels, 4 bytes per pixel
+    private static final long IMAGE_BYTES = 400;
+
+    private URL first;
+    private URL second;
+
+    @Before
+    public void setUp() throws Exception {
+        first = URI.create("file:/icons/first.svg").toURL();
+        second = URI.create("file:/icons/second.svg").toURL();
+        SVGImageCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        SVGImageCache.clear();
+        SVGImageCache.setMaxBytes(SVGImageCache.DEFAULT_MAX_BYTES);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedImages() {
+        // given
+        SVGImageCache.setMaxBytes(3 * IMAGE_BYTES);
+        Image a = image(10, 10);
+        Image b = image(10, 10);
+        Image c = image(10, 10);
+        SVGImageCache.putImage(first, 16, 0, 1, 1, a);
+        SVGImageCache.putImage(first, 24, 0, 1, 1, b);
+        SVGImageCache.putImage(first, 32, 0, 1, 1, c);
+
+        // when
+        SVGImageCache.getCachedImage(first, 16, 0, 1, 1);
+        SVGImageCache.putImage(first, 48, 0, 1, 1, image(10, 10));
+
+        // then
+        assertEquals(3, SVGImageCache.size());
+        assertEquals(3 * IMAGE_BYTES, SVGImageCache.getCurrentBytes());
+        assertSame(a, SVGImageCache.getCachedImage(first, 16, 0, 1, 1));
+        assertNull(SVGImageCache.getCachedImage(first, 24, 0, 1, 1));
+        assertSame(c, SVGImageCache.getCachedImage(first, 32, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldEvictWhenBudgetShrinks() {
+        // given
+        SVGImageCache.putImage(first, 16, 0, 1, 1, image(10, 10));
+        SVGImageCache.putImage(first, 24, 0, 1, 1, image(10, 10));
+
+        // when
+        SVGImageCache.setMaxBytes(IMAGE_BYTES);
+
+        // then
+        assertEquals(1, SVGImageCache.size());
+        assertEquals(IMAGE_BYTES, SVGImageCache.getCurrentBytes());
+        assertNull(SVGImageCache.getCachedImage(first, 16, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldNotCacheImagesLargerThanBudget() {
+        // given
+        SVGImageCache.setMaxBytes(IMAGE_BYTES);
+
+        // when
+        SVGImageCache.putImage(first, 16, 0, 1, 1, image(20, 20));
+
+        // then
+        assertEquals(0, SVGImageCache.size());
+        assertEquals(0, SVGImageCache.getCurrentBytes());
+    }
+
+    @Test
+    public void shouldAccountBytesWhenReplacing() {
+        // given
+        SVGImageCache.putImage(first, 16, 0, 1, 1, image(10, 10));
+
+        // when
+        Image replacement = image(20, 20);
+        SVGImageCache.putImage(first, 16, 0, 1, 1, replacement);
+
+        // then
+        assertEquals(1, SVGImageCache.size());
+        assertEquals(4 * IMAGE_BYTES, SVGImageCache.getCurrentBytes());
+        assertSame(replacement, SVGImageCache.getCachedImage(first, 16, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldAccountBytesWhenInvalidating() {
+        // given
+        SVGImageCache.putImage(first, 16, 0, 1, 1, image(10, 10));
+        SVGImageCache.putImage(first, 16, 0, 2, 2, image(20, 20));
+        Image other = image(10, 10);
+        SVGImageCache.putImage(second, 16, 0, 1, 1, other);
+
+        // when
+        SVGImageCache.invalidate(first);
+
+        // then
+        assertEquals(1, SVGImageCache.size());
+        assertEquals(IMAGE_BYTES, SVGImageCache.getCurrentBytes());
+        assertSame(other, SVGImageCache.getCachedImage(second, 16, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldShareEntriesOfEquivalentSizes() {
+        // given
+        Image sized = image(10, 10);
+        Image intrinsic = image(10, 10);
+
+        // when
+        SVGImageCache.putImage(first, 16, 16, 1, 1, sized);
+        SVGImageCache.putImage(first, -1, -1, 1, 1, intrinsic);
+
+        // then
+        assertEquals(2, SVGImageCache.size());
+
+        // the height follows from the width
+        assertSame(sized, SVGImageCache.getCachedImage(first, 16, 0, 1, 1));
+        assertSame(sized, SVGImageCache.getCachedImage(first, 16, 8, 1, 1));
+
+        // non-positive sizes mean intrinsic size
+        assertSame(intrinsic, SVGImageCache.getCachedImage(first, 0, 0, 1, 1));
+        assertSame(intrinsic, SVGImageCache.getCachedImage(first, -1, 0, 1, 1));
+    }
+
+    @Test
+    public void shouldKeepOutputScalesApart() {
+        // given
+        Image normal = image(16, 16);
+        Image retina = image(32, 32);
+
+        // when
+        SVGImageCache.putImage(first, 16, 0, 1, 1, normal);
+        SVGImageCache.putImage(first, 16, 0, 2, 2, retina);
+
+        // then
+        assertEquals(2, SVGImageCache.size());
+        assertSame(normal, SVGImageCache.getCachedImage(first, 16, 0, 1, 1));
+        assertSame(retina, SVGImageCache.getCachedImage(first, 16, 0, 2, 2));
+        assertNull(SVGImageCache.getCachedImage(first, 16, 0, 1.5, 1.5));
+        assertNull(SVGImageCache.getCachedImage(second, 16, 0, 1, 1));
+    }
+
+    private static Image image(int width, int height) {
+        return new WritableImage(width, height);
+    }
+}
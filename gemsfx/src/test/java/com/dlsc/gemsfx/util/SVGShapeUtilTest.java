@@ -0,0 +1,210 @@
+package com.dlsc.gemsfx.util;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.SVGPath;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SVGShapeUtilTest {
+
+    @Test
+    public void shouldConvertPath() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='24' height='24'>"
+                + "<path d='M0 0 L10 10 Z' fill='#ff0000' fill-rule='evenodd' stroke='blue' stroke-width='2'/>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        assertEquals(1, content.getChildren().size());
+        SVGPath path = (SVGPath) content.getChildren().get(0);
+        assertEquals("M0 0 L10 10 Z", path.getContent());
+        assertEquals(Color.RED, path.getFill());
+        assertEquals(FillRule.EVEN_ODD, path.getFillRule());
+        assertEquals(Color.BLUE, path.getStroke());
+        assertEquals(2, path.getStrokeWidth(), 0);
+    }
+
+    @Test
+    public void shouldParseTransforms() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='24' height='24'>"
+                + "<g transform='translate(5, 6) scale(2)'><rect width='4' height='4'/></g>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        Node group = content.getChildren().get(0);
+        assertEquals(2, group.getTransforms().size());
+
+        Translate translate = (Translate) group.getTransforms().get(0);
+        assertEquals(5, translate.getX(), 0);
+        assertEquals(6, translate.getY(), 0);
+
+        Scale scale = (Scale) group.getTransforms().get(1);
+        assertEquals(2, scale.getX(), 0);
+        assertEquals(2, scale.getY(), 0);
+    }
+
+    @Test
+    public void shouldMapViewBoxToDocumentSize() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='48' height='24' viewBox='10 20 24 24'>"
+                + "<rect width='24' height='24'/>"
+                + "</svg>";
+
+        // when
+        Group group = toGroup(svg);
+
+        // then
+        Rectangle bounds = (Rectangle) group.getChildren().get(0);
+        assertEquals(48, bounds.getWidth(), 0);
+        assertEquals(24, bounds.getHeight(), 0);
+
+        Group content = content(group);
+        assertEquals(2, content.getTransforms().size());
+
+        Scale scale = (Scale) content.getTransforms().get(0);
+        assertEquals(2, scale.getX(), 0);
+        assertEquals(1, scale.getY(), 0);
+
+        Translate translate = (Translate) content.getTransforms().get(1);
+        assertEquals(-10, translate.getX(), 0);
+        assertEquals(-20, translate.getY(), 0);
+    }
+
+    @Test
+    public void shouldUseViewBoxSizeIfSizeIsMissing() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 16 32'>"
+                + "<rect width='16' height='32'/>"
+                + "</svg>";
+
+        // when
+        Group group = toGroup(svg);
+
+        // then
+        Rectangle bounds = (Rectangle) group.getChildren().get(0);
+        assertEquals(16, bounds.getWidth(), 0);
+        assertEquals(32, bounds.getHeight(), 0);
+    }
+
+    @Test
+    public void shouldResolveStylesInOrderOfPrecedence() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='24' height='24'>"
+                + "<style>.blue { fill: blue; } circle { fill: green; }</style>"
+                + "<g fill='red' stroke='black' stroke-width='3'>"
+                + "<rect class='blue' width='4' height='4'/>"
+                + "<circle class='blue' style='fill: yellow' r='2'/>"
+                + "<ellipse rx='2' ry='1'/>"
+                + "</g>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        Group group = (Group) content.getChildren().get(0);
+        Rectangle rectangle = (Rectangle) group.getChildren().get(0);
+        Circle circle = (Circle) group.getChildren().get(1);
+        Ellipse ellipse = (Ellipse) group.getChildren().get(2);
+
+        // class rule wins over the inherited attribute
+        assertEquals(Color.BLUE, rectangle.getFill());
+
+        // inline style wins over class and element rules
+        assertEquals(Color.YELLOW, circle.getFill());
+
+        // inherited from the group
+        assertEquals(Color.RED, ellipse.getFill());
+        assertEquals(Color.BLACK, ellipse.getStroke());
+        assertEquals(3, ellipse.getStrokeWidth(), 0);
+    }
+
+    @Test
+    public void shouldResolveCurrentColor() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='24' height='24' color='#00ff00'>"
+                + "<path d='M0 0 H10' fill='none' stroke='currentColor'/>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        SVGPath path = (SVGPath) content.getChildren().get(0);
+        assertNull(path.getFill());
+        assertEquals(Color.LIME, path.getStroke());
+    }
+
+    @Test
+    public void shouldApproximateGradientByFirstStop() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' width='24' height='24'>"
+                + "<defs><linearGradient id='gradient'>"
+                + "<stop offset='0' stop-color='#0000ff'/><stop offset='1' stop-color='#ff0000'/>"
+                + "</linearGradient></defs>"
+                + "<rect width='24' height='24' fill='url(#gradient)'/>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        assertEquals(1, content.getChildren().size());
+        Rectangle rectangle = (Rectangle) content.getChildren().get(0);
+        assertEquals(Color.BLUE, rectangle.getFill());
+    }
+
+    @Test
+    public void shouldIgnoreUnsupportedElements() {
+        // given
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink' width='24' height='24'>"
+                + "<title>Icon</title>"
+                + "<defs><clipPath id='clip'><rect width='4' height='4'/></clipPath></defs>"
+                + "<text x='0' y='10'>Hello</text>"
+                + "<use xlink:href='#shape'/>"
+                + "<image width='4' height='4' xlink:href='image.png'/>"
+                + "<mask id='mask'><rect width='4' height='4'/></mask>"
+                + "<path id='shape' d='M0 0 H10' clip-path='url(#clip)'/>"
+                + "<rect width='4' height='4' display='none'/>"
+                + "</svg>";
+
+        // when
+        Group content = content(toGroup(svg));
+
+        // then
+        assertEquals(1, content.getChildren().size());
+        assertTrue(content.getChildren().get(0) instanceof SVGPath);
+    }
+
+    private static Group toGroup(String svg) {
+        return SVGShapeUtil.toGroup(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /*
+     * The first child of the group only defines its layout bounds, the second one holds the shapes.
+     */
+    private static Group content(Group group) {
+        return (Group) group.getChildren().get(1);
+    }
+}
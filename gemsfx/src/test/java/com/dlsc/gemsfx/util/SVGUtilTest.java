@@ -0,0 +1,65 @@
+package com.dlsc.gemsfx.util;
+
+import com.github.weisj.jsvg.SVGDocument;
+import com.github.weisj.jsvg.parser.SVGLoader;
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class SVGUtilTest {
+
+    private static final SVGDocument DOCUMENT = load("<svg xmlns='http://www.w3.org/2000/svg' width='24' height='12'/>");
+
+    @Test
+    public void shouldScaleRequestedWidthByOutputScale() {
+        // when
+        Dimension size = SVGUtil.computeImageSize(DOCUMENT, 16, -1, 2, 2);
+
+        // then
+        assertEquals(new Dimension(32, 16), size);
+    }
+
+    @Test
+    public void shouldScaleRequestedHeightByOutputScale() {
+        // when
+        Dimension size = SVGUtil.computeImageSize(DOCUMENT, -1, 10, 2, 2);
+
+        // then
+        assertEquals(new Dimension(40, 20), size);
+    }
+
+    @Test
+    public void shouldIgnoreRequestedHeightIfWidthIsGiven() {
+        // when
+        Dimension size = SVGUtil.computeImageSize(DOCUMENT, 16, 100, 1, 1);
+
+        // then
+        assertEquals(new Dimension(16, 8), size);
+    }
+
+    @Test
+    public void shouldScaleIntrinsicSizeByOutputScale() {
+        // when
+        Dimension size = SVGUtil.computeImageSize(DOCUMENT, -1, -1, 1.5, 1.5);
+
+        // then
+        assertEquals(new Dimension(36, 18), size);
+    }
+
+    @Test
+    public void shouldRoundUpToWholePixels() {
+        // when
+        Dimension size = SVGUtil.computeImageSize(DOCUMENT, 15, -1, 1.25, 1.25);
+
+        // then
+        assertEquals(new Dimension(19, 10), size);
+    }
+
+    private static SVGDocument load(String svg) {
+        return new SVGLoader().load(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    }
+}